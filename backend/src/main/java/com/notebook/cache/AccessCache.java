@@ -0,0 +1,197 @@
+package com.notebook.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * (userId, notebookId) → role decisions, bounded by size (LRU) and TTL.
+ *
+ * Two counters per notebook keep it exact without scanning:
+ * <ul>
+ *   <li>the <em>notebook generation</em> is stamped on every entry; bumping it
+ *       (visibility change, delete, create) invalidates every user's entry at once</li>
+ *   <li>the <em>write counter</em> moves on any change, including a single
+ *       collaborator; a load is only installed if it did not move while the
+ *       query ran, so a slow reader can't cache a decision that was just revoked</li>
+ * </ul>
+ * Both live in fixed arrays of counters indexed by a hash of the notebook id,
+ * so memory stays constant however many notebooks are touched. Notebooks that
+ * share a stripe just invalidate each other now and then.
+ */
+public class AccessCache {
+
+    /**
+     * What a user may do with a notebook, weakest first
+     */
+    public enum Role {
+        NONE, PUBLIC, VIEWER, EDITOR, OWNER;
+
+        public boolean canRead() {
+            return this != NONE;
+        }
+
+        public boolean canEdit() {
+            return this == EDITOR || this == OWNER;
+        }
+
+        /**
+         * Role from a notebook row joined with the user's collaborator row (if any)
+         */
+        public static Role of(int userId, int ownerId, String visibility, String collaboratorRole) {
+            if (ownerId == userId) {
+                return OWNER;
+            }
+            if ("Editor".equals(collaboratorRole)) {
+                return EDITOR;
+            }
+            if ("Viewer".equals(collaboratorRole)) {
+                return VIEWER;
+            }
+            return "Public".equals(visibility) ? PUBLIC : NONE;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<Long, Entry> entries;
+
+    private static final int STRIPE_BITS = 12;
+
+    private final AtomicLongArray generations = new AtomicLongArray(1 << STRIPE_BITS);
+    private final AtomicLongArray writes = new AtomicLongArray(1 << STRIPE_BITS);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public AccessCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > AccessCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Cached role, or null (counted as a miss) if it has to be loaded
+     */
+    public Role get(int userId, int notebookId) {
+        long generation = counter(generations, notebookId);
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Long key = key(userId, notebookId);
+            Entry entry = entries.get(key);
+            if (entry != null && entry.generation == generation && entry.expiresAt > now) {
+                hits.incrementAndGet();
+                return entry.role;
+            }
+            if (entry != null) {
+                entries.remove(key);
+                if (entry.generation == generation) {
+                    expirations.incrementAndGet();
+                }
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Token to read before querying the database and hand back to {@link #put}
+     */
+    public long beginLoad(int notebookId) {
+        return counter(writes, notebookId);
+    }
+
+    public void put(int userId, int notebookId, Role role, long loadToken) {
+        long generation = counter(generations, notebookId);
+        synchronized (this) {
+            // Something changed while loading: use the answer, but don't keep it
+            if (counter(writes, notebookId) != loadToken) {
+                return;
+            }
+            entries.put(key(userId, notebookId),
+                    new Entry(role, generation, System.currentTimeMillis() + ttlMillis));
+        }
+    }
+
+    /**
+     * One user's role on one notebook changed (collaborator added or removed)
+     */
+    public void invalidate(int userId, int notebookId) {
+        synchronized (this) {
+            bump(writes, notebookId);
+            entries.remove(key(userId, notebookId));
+        }
+        invalidations.incrementAndGet();
+    }
+
+    /**
+     * Every user's role on the notebook may have changed (visibility, create, delete)
+     */
+    public void invalidateNotebook(int notebookId) {
+        synchronized (this) {
+            bump(writes, notebookId);
+            bump(generations, notebookId);
+        }
+        invalidations.incrementAndGet();
+    }
+
+    public synchronized Map<String, Object> stats() {
+        long h = hits.get();
+        long m = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("hitRatio", h + m == 0 ? 0.0 : (double) h / (h + m));
+        // Every hit is an access query that never reached the database
+        stats.put("dbQueriesSaved", h);
+        stats.put("expirations", expirations.get());
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        stats.put("entries", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlSeconds", ttlMillis / 1000);
+        return stats;
+    }
+
+    private static long key(int userId, int notebookId) {
+        return ((long) userId << 32) | (notebookId & 0xffffffffL);
+    }
+
+    private static long counter(AtomicLongArray counters, int notebookId) {
+        return counters.get(stripe(notebookId));
+    }
+
+    private static void bump(AtomicLongArray counters, int notebookId) {
+        counters.incrementAndGet(stripe(notebookId));
+    }
+
+    private static int stripe(int notebookId) {
+        // Fibonacci hashing spreads sequential ids over the stripes
+        return (notebookId * 0x9E3779B9) >>> (32 - STRIPE_BITS);
+    }
+
+    private static class Entry {
+        final Role role;
+        final long generation;
+        final long expiresAt;
+
+        Entry(Role role, long generation, long expiresAt) {
+            this.role = role;
+            this.generation = generation;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
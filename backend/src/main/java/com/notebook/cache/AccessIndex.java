@@ -0,0 +1,179 @@
+package com.notebook.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+
+/**
+ * In-memory index of which notebooks each user can reach: owned and shared
+ * (by role) per user, plus one global set of public notebooks.
+ *
+ * Entries are loaded lazily and then kept current by NotebookDAO's writers.
+ * A load is only installed if no write happened while it ran (same rule as
+ * AccessCache), so an update can't be lost to a slower concurrent load.
+ */
+public class AccessIndex {
+
+    private final ConcurrentHashMap<Integer, UserNotebooks> users = new ConcurrentHashMap<>();
+    private volatile IntSet publicIds;
+    private final AtomicLong changes = new AtomicLong();
+
+    /**
+     * A user's owned and shared notebooks, or null if not loaded yet
+     */
+    public UserNotebooks get(int userId) {
+        return users.get(userId);
+    }
+
+    /**
+     * Public notebook ids, or null if not loaded yet
+     */
+    public IntSet getPublic() {
+        return publicIds;
+    }
+
+    /**
+     * Token to read before querying the database and hand back to install
+     */
+    public long beginLoad() {
+        return changes.get();
+    }
+
+    public UserNotebooks install(int userId, UserNotebooks loaded, long loadToken) {
+        // Checked inside compute so a writer can't slip in between the check and the put
+        users.compute(userId, (id, current) -> {
+            if (current != null || changes.get() != loadToken) {
+                return current;
+            }
+            return loaded;
+        });
+        return loaded;
+    }
+
+    public synchronized IntSet installPublic(IntSet loaded, long loadToken) {
+        if (publicIds == null && changes.get() == loadToken) {
+            publicIds = loaded;
+        }
+        return loaded;
+    }
+
+    public void notebookCreated(int notebookId, int ownerId, boolean isPublic) {
+        changes.incrementAndGet();
+        users.computeIfPresent(ownerId, (id, entry) -> entry.withOwned(notebookId));
+        if (isPublic) {
+            updatePublic(notebookId, true);
+        }
+    }
+
+    public void notebookDeleted(int notebookId) {
+        changes.incrementAndGet();
+        // Owner and collaborators aren't known here; drop the id from every loaded user
+        for (Integer userId : users.keySet()) {
+            users.computeIfPresent(userId, (id, entry) -> entry.without(notebookId));
+        }
+        updatePublic(notebookId, false);
+    }
+
+    public void collaboratorAdded(int notebookId, int userId, String role) {
+        changes.incrementAndGet();
+        users.computeIfPresent(userId, (id, entry) -> entry.withShared(notebookId, role));
+    }
+
+    public void collaboratorRemoved(int notebookId, int userId) {
+        changes.incrementAndGet();
+        users.computeIfPresent(userId, (id, entry) -> entry.withShared(notebookId, null));
+    }
+
+    public void visibilityChanged(int notebookId, boolean isPublic) {
+        changes.incrementAndGet();
+        updatePublic(notebookId, isPublic);
+    }
+
+    private synchronized void updatePublic(int notebookId, boolean isPublic) {
+        if (publicIds != null) {
+            publicIds = isPublic ? publicIds.with(notebookId) : publicIds.without(notebookId);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long ids = 0;
+        for (UserNotebooks entry : users.values()) {
+            ids += entry.owned.size() + entry.editor.size() + entry.viewer.size() + entry.all.size();
+        }
+        IntSet publicSnapshot = publicIds;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("users", users.size());
+        stats.put("userNotebookIds", ids);
+        stats.put("publicNotebooks", publicSnapshot == null ? 0 : publicSnapshot.size());
+        // Four bytes per id in the primitive arrays
+        stats.put("estimatedBytes", 4 * (ids + (publicSnapshot == null ? 0 : publicSnapshot.size())));
+        return stats;
+    }
+
+    /**
+     * Immutable owned/shared id sets of one user
+     */
+    public static final class UserNotebooks {
+        public static final UserNotebooks EMPTY = new UserNotebooks(IntSet.EMPTY, IntSet.EMPTY, IntSet.EMPTY);
+
+        private final IntSet owned;
+        private final IntSet editor;
+        private final IntSet viewer;
+        // Union of the three, built once since every search and dashboard reads it
+        private final IntSet all;
+
+        public UserNotebooks(IntSet owned, IntSet editor, IntSet viewer) {
+            this.owned = owned;
+            this.editor = editor;
+            this.viewer = viewer;
+            this.all = owned.union(editor).union(viewer);
+        }
+
+        /**
+         * "Owner", "Editor", "Viewer" for owned/shared notebooks, otherwise null
+         */
+        public String roleOf(int notebookId) {
+            if (owned.contains(notebookId)) {
+                return "Owner";
+            }
+            if (editor.contains(notebookId)) {
+                return "Editor";
+            }
+            if (viewer.contains(notebookId)) {
+                return "Viewer";
+            }
+            return null;
+        }
+
+        /**
+         * Owned and shared ids together
+         */
+        public IntSet all() {
+            return all;
+        }
+
+        /**
+         * Test for the notebooks this user can read, given the public ids; copies neither set
+         */
+        public IntPredicate readableWith(IntSet publicIds) {
+            IntSet member = all;
+            return id -> publicIds.contains(id) || member.contains(id);
+        }
+
+        UserNotebooks withOwned(int notebookId) {
+            return new UserNotebooks(owned.with(notebookId), editor, viewer);
+        }
+
+        UserNotebooks withShared(int notebookId, String role) {
+            return new UserNotebooks(owned,
+                    "Editor".equals(role) ? editor.with(notebookId) : editor.without(notebookId),
+                    "Viewer".equals(role) ? viewer.with(notebookId) : viewer.without(notebookId));
+        }
+
+        UserNotebooks without(int notebookId) {
+            return new UserNotebooks(owned.without(notebookId), editor.without(notebookId), viewer.without(notebookId));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.notebook.cache;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of ints backed by a sorted primitive array.
+ * Lookups are a binary search; updates copy, which is fine for the small,
+ * rarely changing id sets it holds. Safe to share between threads.
+ */
+public final class IntSet {
+
+    public static final IntSet EMPTY = new IntSet(new int[0]);
+
+    private final int[] values;
+
+    private IntSet(int[] sortedDistinct) {
+        this.values = sortedDistinct;
+    }
+
+    public static IntSet of(int... values) {
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return size == 0 ? EMPTY : new IntSet(Arrays.copyOf(sorted, size));
+    }
+
+    public boolean contains(int value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+
+    public IntSet with(int value) {
+        int pos = Arrays.binarySearch(values, value);
+        if (pos >= 0) {
+            return this;
+        }
+        int insertAt = -pos - 1;
+        int[] next = new int[values.length + 1];
+        System.arraycopy(values, 0, next, 0, insertAt);
+        next[insertAt] = value;
+        System.arraycopy(values, insertAt, next, insertAt + 1, values.length - insertAt);
+        return new IntSet(next);
+    }
+
+    public IntSet without(int value) {
+        int pos = Arrays.binarySearch(values, value);
+        if (pos < 0) {
+            return this;
+        }
+        if (values.length == 1) {
+            return EMPTY;
+        }
+        int[] next = new int[values.length - 1];
+        System.arraycopy(values, 0, next, 0, pos);
+        System.arraycopy(values, pos + 1, next, pos, values.length - pos - 1);
+        return new IntSet(next);
+    }
+
+    /**
+     * Linear merge of two sorted arrays
+     */
+    public IntSet union(IntSet other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+        int[] a = values;
+        int[] b = other.values;
+        int[] merged = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                merged[n++] = a[i++];
+            } else if (a[i] > b[j]) {
+                merged[n++] = b[j++];
+            } else {
+                merged[n++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            merged[n++] = a[i++];
+        }
+        while (j < b.length) {
+            merged[n++] = b[j++];
+        }
+        return new IntSet(n == merged.length ? merged : Arrays.copyOf(merged, n));
+    }
+
+    /**
+     * Copy of the values in ascending order
+     */
+    public int[] toArray() {
+        return values.clone();
+    }
+
+    /**
+     * Boxed copy, e.g. for a JDBC array parameter
+     */
+    public Integer[] toBoxedArray() {
+        Integer[] boxed = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            boxed[i] = values[i];
+        }
+        return boxed;
+    }
+}
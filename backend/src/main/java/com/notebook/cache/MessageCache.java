@@ -0,0 +1,278 @@
+package com.notebook.cache;
+
+import com.notebook.chat.ChatHub;
+import com.notebook.models.Message;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded ring buffers of the most recent messages of hot notebooks.
+ * Notebooks are evicted least-recently-used once the estimated size of all
+ * buffers passes the byte cap.
+ *
+ * Consistency relies on the ChatHub version: writers bump it before touching
+ * the cache, and a fill is only installed if the version did not move while
+ * the rows were being loaded.
+ */
+public class MessageCache {
+
+    private final int capacity;
+    private final long maxBytes;
+    private final LinkedHashMap<Integer, Ring> rings = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public MessageCache(int capacity, long maxBytes) {
+        this.capacity = capacity;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Messages per notebook kept in memory
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Cached view of a notebook, or null if it has to be loaded. Not counted:
+     * the caller reports through {@link #recordLookup} whether it could use it.
+     */
+    public synchronized Snapshot get(int notebookId) {
+        Ring ring = rings.get(notebookId);
+        return ring == null ? null : ring.snapshot(true);
+    }
+
+    /**
+     * Count a read as a hit only if a snapshot that was already cached answered
+     * it; freshly loaded snapshots and reads that went to the database are misses
+     */
+    public void recordLookup(Snapshot snapshot, boolean answered) {
+        (snapshot != null && snapshot.cached && answered ? hits : misses).incrementAndGet();
+    }
+
+    /**
+     * Install rows loaded from the database.
+     *
+     * @param newest up to capacity + 1 newest messages in ascending id order; the
+     *               extra row, if present, only tells us the history is incomplete
+     * @param versionBeforeLoad ChatHub version read before the query ran
+     * @return a snapshot of the loaded rows, whether or not it was cached
+     */
+    public Snapshot fill(int notebookId, List<Message> newest, long versionBeforeLoad) {
+        int floorId = 0;
+        List<Message> rows = newest;
+        if (newest.size() > capacity) {
+            int extra = newest.size() - capacity;
+            floorId = newest.get(extra - 1).getMessageId();
+            rows = newest.subList(extra, newest.size());
+        }
+
+        Ring ring = new Ring(capacity, floorId);
+        for (Message message : rows) {
+            ring.add(message);
+        }
+
+        synchronized (this) {
+            // A send or delete landed while loading: serve the rows, but don't cache a possibly stale view
+            if (ChatHub.currentVersion(notebookId) == versionBeforeLoad && !rings.containsKey(notebookId)) {
+                rings.put(notebookId, ring);
+                totalBytes += ring.bytes;
+                evictOverflow();
+            }
+        }
+        return ring.snapshot(false);
+    }
+
+    /**
+     * Add a newly stored message to its notebook's buffer, if the notebook is cached
+     */
+    public synchronized void append(Message message) {
+        Ring ring = rings.get(message.getNotebookId());
+        if (ring == null) {
+            return;
+        }
+        long before = ring.bytes;
+        ring.add(message);
+        totalBytes += ring.bytes - before;
+        evictOverflow();
+    }
+
+    public synchronized void invalidate(int notebookId) {
+        Ring ring = rings.remove(notebookId);
+        if (ring != null) {
+            totalBytes -= ring.bytes;
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<Integer, Ring>> it = rings.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            totalBytes -= it.next().getValue().bytes;
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        long h = hits.get();
+        long m = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("hitRatio", h + m == 0 ? 0.0 : (double) h / (h + m));
+        stats.put("evictions", evictions.get());
+        stats.put("notebooks", rings.size());
+        stats.put("estimatedBytes", totalBytes);
+        stats.put("maxBytes", maxBytes);
+        return stats;
+    }
+
+    private static long estimateBytes(Message message) {
+        // Object headers and fields plus UTF-16 text; rough but stable
+        long chars = length(message.getMessageText()) + length(message.getUserName()) + length(message.getType());
+        return 96 + 2 * chars;
+    }
+
+    private static int length(String s) {
+        return s == null ? 0 : s.length();
+    }
+
+    /**
+     * Fixed-size ring of messages in ascending id order
+     */
+    private static class Ring {
+        private final Message[] slots;
+        private int head;
+        private int size;
+        // Every message of the notebook with an id above this is in the ring (0 = whole history)
+        private int floorId;
+        private long bytes;
+
+        Ring(int capacity, int floorId) {
+            this.slots = new Message[capacity];
+            this.floorId = floorId;
+        }
+
+        void add(Message message) {
+            // Concurrent inserts can finish out of id order; keep the ring sorted and skip duplicates
+            int pos = size;
+            while (pos > 0) {
+                int prevId = at(pos - 1).getMessageId();
+                if (prevId == message.getMessageId()) {
+                    return;
+                }
+                if (prevId < message.getMessageId()) {
+                    break;
+                }
+                pos--;
+            }
+            if (pos == 0 && size == slots.length) {
+                // Older than everything in a full ring: it falls below the floor
+                floorId = Math.max(floorId, message.getMessageId());
+                return;
+            }
+
+            if (size == slots.length) {
+                Message evicted = slots[head];
+                bytes -= estimateBytes(evicted);
+                floorId = evicted.getMessageId();
+                slots[head] = null;
+                head = (head + 1) % slots.length;
+                size--;
+                pos--;
+            }
+
+            for (int i = size; i > pos; i--) {
+                slots[index(i)] = slots[index(i - 1)];
+            }
+            slots[index(pos)] = message;
+            size++;
+            bytes += estimateBytes(message);
+        }
+
+        private Message at(int i) {
+            return slots[index(i)];
+        }
+
+        private int index(int i) {
+            return (head + i) % slots.length;
+        }
+
+        Snapshot snapshot(boolean cached) {
+            List<Message> copy = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                copy.add(at(i));
+            }
+            return new Snapshot(Collections.unmodifiableList(copy), floorId, cached);
+        }
+    }
+
+    /**
+     * Immutable view of a notebook's newest messages
+     */
+    public static class Snapshot {
+        private final List<Message> messages;
+        private final int floorId;
+        // Served from the cache rather than loaded for this read
+        private final boolean cached;
+
+        Snapshot(List<Message> messages, int floorId, boolean cached) {
+            this.messages = messages;
+            this.floorId = floorId;
+            this.cached = cached;
+        }
+
+        /**
+         * True when the buffer holds the notebook's entire history
+         */
+        public boolean isComplete() {
+            return floorId == 0;
+        }
+
+        /**
+         * Whether every message newer than afterId is in the buffer
+         */
+        public boolean coversAfter(int afterId) {
+            return afterId >= floorId;
+        }
+
+        public List<Message> after(int afterId, String type) {
+            List<Message> result = new ArrayList<>();
+            for (Message message : messages) {
+                if (message.getMessageId() > afterId && matches(message, type)) {
+                    result.add(message);
+                }
+            }
+            return result;
+        }
+
+        public List<Message> all(String type) {
+            return after(0, type);
+        }
+
+        /**
+         * Newest {@code limit} messages (ascending), or null if the buffer can't answer for sure
+         */
+        public List<Message> newest(int limit, String type) {
+            List<Message> matching = all(type);
+            if (matching.size() < limit && !isComplete()) {
+                return null;
+            }
+            return matching.subList(Math.max(0, matching.size() - limit), matching.size());
+        }
+
+        private static boolean matches(Message message, String type) {
+            return type == null || type.equals(message.getType());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.notebook.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token ids (jti) revoked before their expiry.
+ *
+ * The per-request check is a single ConcurrentHashMap lookup. Entries are
+ * also kept in a queue ordered by expiry so purging only touches the ones
+ * that have actually expired; a token past its expiry is rejected by
+ * signature verification anyway, so it no longer needs an entry.
+ */
+public class RevocationList {
+
+    private final ConcurrentHashMap<String, Long> revoked = new ConcurrentHashMap<>();
+    // Guarded by this; only touched by revoke and purge, never by the check
+    private final PriorityQueue<Entry> byExpiry = new PriorityQueue<>();
+    private long purged;
+
+    public boolean isRevoked(String jti) {
+        return jti != null && revoked.containsKey(jti);
+    }
+
+    /**
+     * @param expiresAt token expiry in epoch milliseconds
+     */
+    public void revoke(String jti, long expiresAt) {
+        if (jti == null || expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+        if (revoked.putIfAbsent(jti, expiresAt) == null) {
+            synchronized (this) {
+                byExpiry.add(new Entry(jti, expiresAt));
+            }
+        }
+    }
+
+    /**
+     * Drop entries whose tokens have expired
+     *
+     * @return number of entries removed
+     */
+    public synchronized int purgeExpired() {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        while (!byExpiry.isEmpty() && byExpiry.peek().expiresAt <= now) {
+            revoked.remove(byExpiry.poll().jti);
+            removed++;
+        }
+        purged += removed;
+        return removed;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("revoked", revoked.size());
+        stats.put("purged", purged);
+        Entry next = byExpiry.peek();
+        stats.put("nextExpiry", next == null ? null : next.expiresAt);
+        return stats;
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        final String jti;
+        final long expiresAt;
+
+        Entry(String jti, long expiresAt) {
+            this.jti = jti;
+            this.expiresAt = expiresAt;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return Long.compare(expiresAt, other.expiresAt);
+        }
+    }
+}
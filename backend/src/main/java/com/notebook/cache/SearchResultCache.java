@@ -0,0 +1,254 @@
+package com.notebook.cache;
+
+import com.notebook.models.Notebook;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Notebook search results, bounded by size (LRU) and TTL.
+ *
+ * Public matches are shared by every user and keyed by the normalized query
+ * and page; each user's private matches (own or shared, not public) are a
+ * separate overlay keyed by user and query, merged in by the caller.
+ *
+ * Every entry records the sequence number its load started at. Writes mark
+ * what they can change as invalidated at a new sequence number, and entries
+ * loaded before that mark are misses without being touched; they are dropped
+ * when next read or pushed out by the LRU. A load that overlaps a write is
+ * returned but not cached. There are separate marks for the public pages,
+ * for all overlays, and per user (in fixed stripes, like AccessCache), so a
+ * collaborator change only costs that user's overlays and leaves the shared
+ * public pages cached.
+ */
+public class SearchResultCache {
+
+    // Rough per-object costs for the footprint estimate (64-bit JVM, compressed oops)
+    private static final int ROW_OVERHEAD = 16 + 16 + 56 + 2 * 32;
+    private static final int STRING_OVERHEAD = 40;
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Entry> entries;
+    private long estimatedBytes;
+
+    private static final int STRIPE_BITS = 12;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong publicInvalidatedAt = new AtomicLong();
+    private final AtomicLong overlaysInvalidatedAt = new AtomicLong();
+    // Users sharing a stripe just invalidate each other's overlays now and then
+    private final AtomicLongArray userInvalidatedAt = new AtomicLongArray(1 << STRIPE_BITS);
+
+    private final AtomicLong publicHits = new AtomicLong();
+    private final AtomicLong publicMisses = new AtomicLong();
+    private final AtomicLong overlayHits = new AtomicLong();
+    private final AtomicLong overlayMisses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong userInvalidations = new AtomicLong();
+
+    public SearchResultCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > SearchResultCache.this.maxEntries) {
+                    estimatedBytes -= eldest.getValue().bytes;
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Token to read before querying the database and hand back to the put methods
+     */
+    public long beginLoad() {
+        return sequence.get();
+    }
+
+    /**
+     * Something that can change any result was written (notebook deleted, visibility changed)
+     */
+    public void invalidateAll() {
+        long at = sequence.incrementAndGet();
+        publicInvalidatedAt.accumulateAndGet(at, Math::max);
+        overlaysInvalidatedAt.accumulateAndGet(at, Math::max);
+        invalidations.incrementAndGet();
+    }
+
+    /**
+     * Only public matches can have changed (a public notebook was created)
+     */
+    public void invalidatePublic() {
+        publicInvalidatedAt.accumulateAndGet(sequence.incrementAndGet(), Math::max);
+        invalidations.incrementAndGet();
+    }
+
+    /**
+     * Only this user's private matches can have changed (shared with or unshared from
+     * them, or a private notebook of theirs created)
+     */
+    public void invalidateUser(int userId) {
+        userInvalidatedAt.accumulateAndGet(stripe(userId), sequence.incrementAndGet(), Math::max);
+        userInvalidations.incrementAndGet();
+    }
+
+    /**
+     * One page of public matches, or null (counted as a miss) if it has to be loaded
+     */
+    public List<Row> getPublicPage(String query, int limit, Float afterRank, int afterId) {
+        List<Row> rows = get(publicKey(query, limit, afterRank, afterId), -1);
+        (rows != null ? publicHits : publicMisses).incrementAndGet();
+        return rows;
+    }
+
+    public void putPublicPage(String query, int limit, Float afterRank, int afterId, List<Row> rows, long loadToken) {
+        put(publicKey(query, limit, afterRank, afterId), -1, rows, loadToken);
+    }
+
+    /**
+     * All of the user's private matches, or null (counted as a miss) if they have to be loaded
+     */
+    public List<Row> getOverlay(int userId, String query) {
+        List<Row> rows = get(overlayKey(userId, query), userId);
+        (rows != null ? overlayHits : overlayMisses).incrementAndGet();
+        return rows;
+    }
+
+    public void putOverlay(int userId, String query, List<Row> rows, long loadToken) {
+        put(overlayKey(userId, query), userId, rows, loadToken);
+    }
+
+    public synchronized Map<String, Object> stats() {
+        long h = publicHits.get() + overlayHits.get();
+        long m = publicMisses.get() + overlayMisses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("publicHits", publicHits.get());
+        stats.put("publicMisses", publicMisses.get());
+        stats.put("overlayHits", overlayHits.get());
+        stats.put("overlayMisses", overlayMisses.get());
+        stats.put("hitRatio", h + m == 0 ? 0.0 : (double) h / (h + m));
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        stats.put("userInvalidations", userInvalidations.get());
+        stats.put("sequence", sequence.get());
+        stats.put("entries", entries.size());
+        stats.put("estimatedBytes", estimatedBytes);
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlSeconds", ttlMillis / 1000);
+        return stats;
+    }
+
+    /**
+     * @param userId owner of an overlay entry, or -1 for a public page
+     */
+    private synchronized List<Row> get(String key, int userId) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!isCurrent(entry.loadedAt, userId) || entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key);
+            estimatedBytes -= entry.bytes;
+            return null;
+        }
+        return entry.rows;
+    }
+
+    private synchronized void put(String key, int userId, List<Row> rows, long loadedAt) {
+        if (!isCurrent(loadedAt, userId)) {
+            return;
+        }
+        Entry entry = new Entry(List.copyOf(rows), loadedAt,
+                System.currentTimeMillis() + ttlMillis, estimateBytes(key, rows));
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            estimatedBytes -= previous.bytes;
+        }
+        estimatedBytes += entry.bytes;
+    }
+
+    /**
+     * Whether nothing the entry depends on was invalidated after its load started
+     */
+    private boolean isCurrent(long loadedAt, int userId) {
+        if (userId < 0) {
+            return loadedAt >= publicInvalidatedAt.get();
+        }
+        return loadedAt >= overlaysInvalidatedAt.get() && loadedAt >= userInvalidatedAt.get(stripe(userId));
+    }
+
+    private static int stripe(int userId) {
+        // Fibonacci hashing spreads sequential ids over the stripes
+        return (userId * 0x9E3779B9) >>> (32 - STRIPE_BITS);
+    }
+
+    private static String publicKey(String query, int limit, Float afterRank, int afterId) {
+        return "p|" + query + "|" + limit + (afterRank == null ? "" : "|" + afterRank + "|" + afterId);
+    }
+
+    private static String overlayKey(int userId, String query) {
+        return "u|" + userId + "|" + query;
+    }
+
+    private static long estimateBytes(String key, List<Row> rows) {
+        long bytes = ENTRY_OVERHEAD + STRING_OVERHEAD + 2L * key.length() + 16L + 4L * rows.size();
+        for (Row row : rows) {
+            Notebook notebook = row.getNotebook();
+            bytes += ROW_OVERHEAD
+                    + stringBytes(notebook.getTitle())
+                    + stringBytes(notebook.getCourseName())
+                    + stringBytes(notebook.getOwnerName())
+                    + stringBytes(notebook.getVisibility());
+        }
+        return bytes;
+    }
+
+    private static long stringBytes(String s) {
+        return s == null ? 0 : STRING_OVERHEAD + 2L * s.length();
+    }
+
+    /**
+     * A matching notebook and its rank. The notebook is shared by every reader
+     * of the entry and must not be modified.
+     */
+    public static final class Row {
+        private final Notebook notebook;
+        private final float rank;
+
+        public Row(Notebook notebook, float rank) {
+            this.notebook = notebook;
+            this.rank = rank;
+        }
+
+        public Notebook getNotebook() {
+            return notebook;
+        }
+
+        public float getRank() {
+            return rank;
+        }
+    }
+
+    private static final class Entry {
+        final List<Row> rows;
+        final long loadedAt;
+        final long expiresAt;
+        final long bytes;
+
+        Entry(List<Row> rows, long loadedAt, long expiresAt, long bytes) {
+            this.rows = rows;
+            this.loadedAt = loadedAt;
+            this.expiresAt = expiresAt;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.notebook.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * userId → public profile (name, email; never the password hash), bounded by
+ * size (LRU) and TTL. Used for /api/auth/me and to fill in display names
+ * without joining Users.
+ *
+ * Loads are guarded by one change counter: a profile read while any profile
+ * was invalidated is returned but not cached, so a rename can't be
+ * overwritten by a slower load of the old row.
+ */
+public class UserProfileCache {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<Integer, Profile> entries;
+    private final AtomicLong changes = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public UserProfileCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Profile> eldest) {
+                if (size() > UserProfileCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Cached profile, or null (counted as a miss) if it has to be loaded
+     */
+    public Profile get(int userId) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Profile profile = entries.get(userId);
+            if (profile != null && profile.expiresAt > now) {
+                hits.incrementAndGet();
+                return profile;
+            }
+            if (profile != null) {
+                entries.remove(userId);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Cached profiles for the ids; ids missing from the result have to be loaded
+     */
+    public Map<Integer, Profile> getAll(Collection<Integer> userIds) {
+        Map<Integer, Profile> found = new HashMap<>();
+        long now = System.currentTimeMillis();
+        int missed = 0;
+        synchronized (this) {
+            for (Integer userId : userIds) {
+                Profile profile = entries.get(userId);
+                if (profile != null && profile.expiresAt > now) {
+                    found.put(userId, profile);
+                } else {
+                    if (profile != null) {
+                        entries.remove(userId);
+                    }
+                    missed++;
+                }
+            }
+        }
+        hits.addAndGet(found.size());
+        misses.addAndGet(missed);
+        return found;
+    }
+
+    /**
+     * Token to read before querying the database and hand back to {@link #put}
+     */
+    public long beginLoad() {
+        return changes.get();
+    }
+
+    public Profile put(int userId, String name, String email, long loadToken) {
+        Profile profile = new Profile(userId, name, email, System.currentTimeMillis() + ttlMillis);
+        synchronized (this) {
+            if (changes.get() == loadToken) {
+                entries.put(userId, profile);
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * The user's name or email changed (or the user is gone)
+     */
+    public void invalidate(int userId) {
+        synchronized (this) {
+            changes.incrementAndGet();
+            entries.remove(userId);
+        }
+        invalidations.incrementAndGet();
+    }
+
+    public synchronized Map<String, Object> stats() {
+        long h = hits.get();
+        long m = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("hitRatio", h + m == 0 ? 0.0 : (double) h / (h + m));
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        stats.put("entries", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlSeconds", ttlMillis / 1000);
+        return stats;
+    }
+
+    /**
+     * Immutable cached profile
+     */
+    public static final class Profile {
+        private final int userId;
+        private final String name;
+        private final String email;
+        private final long expiresAt;
+
+        Profile(int userId, String name, String email, long expiresAt) {
+            this.userId = userId;
+            this.name = name;
+            this.email = email;
+            this.expiresAt = expiresAt;
+        }
+
+        public int getUserId() {
+            return userId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.notebook.chat;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.notebook.models.Message;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * A change to a notebook's chat, as fanned out by {@link ChatHub}
+ */
+public class ChatEvent {
+
+    public enum Kind { MESSAGE, DELETE }
+
+    private static final Gson gson = new GsonBuilder()
+            .setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ")
+            .create();
+
+    private final Kind kind;
+    private final int notebookId;
+    private final int messageId;
+    private final long version;
+    private final Message message;
+    private volatile byte[] sseFrame;
+    private volatile String jsonFrame;
+
+    private ChatEvent(Kind kind, int notebookId, int messageId, long version, Message message) {
+        this.kind = kind;
+        this.notebookId = notebookId;
+        this.messageId = messageId;
+        this.version = version;
+        this.message = message;
+    }
+
+    public static ChatEvent message(Message message, long version) {
+        return new ChatEvent(Kind.MESSAGE, message.getNotebookId(), message.getMessageId(), version, message);
+    }
+
+    public static ChatEvent delete(int notebookId, int messageId, long version) {
+        return new ChatEvent(Kind.DELETE, notebookId, messageId, version, null);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getNotebookId() {
+        return notebookId;
+    }
+
+    public int getMessageId() {
+        return messageId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+
+    /**
+     * Encoded once and shared by every subscriber of the notebook.
+     * Message events carry the message id as the SSE id so reconnecting
+     * clients can resume with Last-Event-ID.
+     */
+    public byte[] toSseFrame() {
+        byte[] frame = sseFrame;
+        if (frame == null) {
+            String text;
+            if (kind == Kind.MESSAGE) {
+                text = "id: " + messageId + "\nevent: message\ndata: " + gson.toJson(message) + "\n\n";
+            } else {
+                text = "event: delete\ndata: " + gson.toJson(Map.of("messageId", messageId)) + "\n\n";
+            }
+            frame = text.getBytes(StandardCharsets.UTF_8);
+            sseFrame = frame;
+        }
+        return frame;
+    }
+
+    /**
+     * WebSocket text frame, encoded once per event like the SSE frame
+     */
+    public String toJsonFrame() {
+        String frame = jsonFrame;
+        if (frame == null) {
+            if (kind == Kind.MESSAGE) {
+                frame = gson.toJson(Map.of("event", "message", "message", message));
+            } else {
+                frame = gson.toJson(Map.of("event", "delete", "messageId", messageId));
+            }
+            jsonFrame = frame;
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,89 @@
+package com.notebook.chat;
+
+import com.notebook.models.Message;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory change tracking for notebook chat.
+ * Every send/delete bumps a per-notebook version so pollers can tell
+ * "nothing changed" without touching the database, and is fanned out
+ * to the listeners subscribed to that notebook.
+ */
+public class ChatHub {
+
+    // Versions restart at zero on boot, so the epoch keeps old ETags from matching new state
+    private static final long EPOCH = System.currentTimeMillis();
+    private static final ConcurrentHashMap<Integer, AtomicLong> versions = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Integer, Set<ChatListener>> listeners = new ConcurrentHashMap<>();
+
+    public static long currentVersion(int notebookId) {
+        AtomicLong version = versions.get(notebookId);
+        return version == null ? 0 : version.get();
+    }
+
+    /**
+     * Advance the notebook's version. Call before updating any derived state
+     * (caches) and publish afterwards, so anyone woken by the event reads fresh data.
+     */
+    public static long recordChange(int notebookId) {
+        return versions.computeIfAbsent(notebookId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    public static void messageSent(Message message, long version) {
+        publish(ChatEvent.message(message, version));
+    }
+
+    public static void messageDeleted(int notebookId, int messageId, long version) {
+        publish(ChatEvent.delete(notebookId, messageId, version));
+    }
+
+    /**
+     * Strong ETag for the current chat state of a notebook
+     */
+    public static String etag(int notebookId) {
+        return etag(notebookId, currentVersion(notebookId));
+    }
+
+    public static String etag(int notebookId, long version) {
+        return "\"" + EPOCH + "-" + notebookId + "-" + version + "\"";
+    }
+
+    public static void subscribe(int notebookId, ChatListener listener) {
+        listeners.compute(notebookId, (id, set) -> {
+            if (set == null) {
+                set = ConcurrentHashMap.newKeySet();
+            }
+            set.add(listener);
+            return set;
+        });
+    }
+
+    public static void unsubscribe(int notebookId, ChatListener listener) {
+        listeners.computeIfPresent(notebookId, (id, set) -> {
+            set.remove(listener);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    public static int subscriberCount(int notebookId) {
+        Set<ChatListener> set = listeners.get(notebookId);
+        return set == null ? 0 : set.size();
+    }
+
+    private static void publish(ChatEvent event) {
+        Set<ChatListener> set = listeners.get(event.getNotebookId());
+        if (set == null) {
+            return;
+        }
+        for (ChatListener listener : set) {
+            try {
+                listener.onChatEvent(event);
+            } catch (RuntimeException e) {
+                System.err.println("Chat listener failed: " + e.getMessage());
+            }
+        }
+    }
+}
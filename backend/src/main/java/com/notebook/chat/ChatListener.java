@@ -0,0 +1,9 @@
+package com.notebook.chat;
+
+/**
+ * Receives chat events for the notebooks it is subscribed to.
+ * Called on the publishing thread, so implementations must not block.
+ */
+public interface ChatListener {
+    void onChatEvent(ChatEvent event);
+}
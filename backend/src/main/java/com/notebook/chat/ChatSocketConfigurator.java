@@ -0,0 +1,78 @@
+package com.notebook.chat;
+
+import com.notebook.config.AppConfig;
+import com.notebook.config.JwtConfig;
+import com.notebook.util.JwtUtil;
+import io.jsonwebtoken.JwtException;
+import jakarta.websocket.HandshakeResponse;
+import jakarta.websocket.server.HandshakeRequest;
+import jakarta.websocket.server.ServerEndpointConfig;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Authenticates the WebSocket handshake.
+ * Browsers cannot set an Authorization header on a WebSocket, so the JWT may
+ * also come from the auth cookie. Since the cookie is sent cross-site too,
+ * handshakes from origins outside CHAT_WS_ALLOWED_ORIGINS are refused.
+ */
+public class ChatSocketConfigurator extends ServerEndpointConfig.Configurator {
+
+    public static final String USER_ID = "userId";
+
+    // Comma-separated, e.g. "https://notebook.example.com"; "*" allows any origin
+    private static final Set<String> ALLOWED_ORIGINS = Arrays.stream(
+                    AppConfig.getString("CHAT_WS_ALLOWED_ORIGINS", "http://localhost:3000").split(","))
+            .map(String::trim)
+            .filter(s -> !s.isEmpty())
+            .collect(Collectors.toUnmodifiableSet());
+
+    @Override
+    public boolean checkOrigin(String originHeaderValue) {
+        // Non-browser clients send no Origin and must present the token themselves
+        if (originHeaderValue == null) {
+            return true;
+        }
+        return ALLOWED_ORIGINS.contains("*") || ALLOWED_ORIGINS.contains(originHeaderValue);
+    }
+
+    @Override
+    public void modifyHandshake(ServerEndpointConfig config, HandshakeRequest request, HandshakeResponse response) {
+        // Containers may reuse the config between handshakes; never inherit an earlier user
+        config.getUserProperties().remove(USER_ID);
+        String token = extractToken(request);
+        if (token == null) {
+            return;
+        }
+        try {
+            config.getUserProperties().put(USER_ID, JwtUtil.verify(token).getUserId());
+        } catch (JwtException ignored) {
+            // Endpoint closes sessions without a user id
+        }
+    }
+
+    private String extractToken(HandshakeRequest request) {
+        String authHeader = first(request.getHeaders().get("Authorization"));
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            return authHeader.substring(7);
+        }
+
+        String cookieHeader = first(request.getHeaders().get("Cookie"));
+        if (cookieHeader != null) {
+            for (String cookie : cookieHeader.split(";")) {
+                String[] pair = cookie.trim().split("=", 2);
+                if (pair.length == 2 && JwtConfig.getCookieName().equals(pair[0])) {
+                    return pair[1];
+                }
+            }
+        }
+        return null;
+    }
+
+    private String first(List<String> values) {
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+}
@@ -0,0 +1,132 @@
+package com.notebook.chat;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.notebook.dao.MessageDAO;
+import com.notebook.dao.NotebookDAO;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.OnClose;
+import jakarta.websocket.OnError;
+import jakarta.websocket.OnMessage;
+import jakarta.websocket.OnOpen;
+import jakarta.websocket.Session;
+import jakarta.websocket.server.PathParam;
+import jakarta.websocket.server.ServerEndpoint;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Bidirectional chat and sticky notes for one notebook.
+ * Receives the same message/delete events as the SSE stream and accepts
+ * {"text": "...", "type": "sticky"|"chat"} frames for sending.
+ */
+@ServerEndpoint(value = "/api/notebooks/messages/ws/{notebookId}", configurator = ChatSocketConfigurator.class)
+public class ChatSocketEndpoint {
+
+    private static final String SESSION_KEY = "chatSession";
+    private static final long MAX_IDLE_MS = 10 * 60 * 1000;
+    private static final int MAX_INBOUND_CHARS = 16 * 1024;
+
+    private static final Gson gson = new Gson();
+    private static final MessageDAO messageDAO = new MessageDAO();
+    private static final NotebookDAO notebookDAO = new NotebookDAO();
+
+    @OnOpen
+    public void onOpen(Session session, @PathParam("notebookId") String notebookIdParam) {
+        Integer userId = (Integer) session.getUserProperties().get(ChatSocketConfigurator.USER_ID);
+        if (userId == null) {
+            reject(session, "Authentication required");
+            return;
+        }
+
+        int notebookId;
+        try {
+            notebookId = Integer.parseInt(notebookIdParam);
+        } catch (NumberFormatException e) {
+            reject(session, "Invalid notebook id");
+            return;
+        }
+
+        if (!notebookDAO.canUserAccessNotebook(userId, notebookId)) {
+            reject(session, "Access denied");
+            return;
+        }
+
+        session.setMaxIdleTimeout(MAX_IDLE_MS);
+        session.setMaxTextMessageBufferSize(MAX_INBOUND_CHARS);
+
+        ChatSocketSession chatSession = new ChatSocketSession(session, notebookId, userId);
+        session.getUserProperties().put(SESSION_KEY, chatSession);
+        chatSession.subscribe();
+    }
+
+    @OnMessage
+    public void onMessage(Session session, String frame) {
+        ChatSocketSession chatSession = (ChatSocketSession) session.getUserProperties().get(SESSION_KEY);
+        if (chatSession == null) {
+            return;
+        }
+
+        ChatRequest body;
+        try {
+            body = gson.fromJson(frame, ChatRequest.class);
+        } catch (JsonParseException e) {
+            body = null;
+        }
+        if (body == null || body.text == null || body.text.isBlank()) {
+            chatSession.send(errorFrame("Message text required"));
+            return;
+        }
+
+        int notebookId = chatSession.getNotebookId();
+        int userId = chatSession.getUserId();
+        // Access can be revoked while the socket is open
+        if (!notebookDAO.canUserAccessNotebook(userId, notebookId)) {
+            chatSession.send(errorFrame("Access denied"));
+            chatSession.close(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "Access denied"));
+            return;
+        }
+
+        String messageType = (body.type != null && !body.type.isBlank()) ? body.type : MessageDAO.TYPE_STICKY;
+        if (!MessageDAO.isValidType(messageType)) {
+            chatSession.send(errorFrame("Message type must be sticky or chat"));
+            return;
+        }
+
+        // The stored message comes back to every subscriber (this one included) through ChatHub
+        if (!messageDAO.sendMessage(notebookId, userId, body.text, messageType)) {
+            chatSession.send(errorFrame("Failed to send message"));
+        }
+    }
+
+    @OnClose
+    public void onClose(Session session) {
+        ChatSocketSession chatSession = (ChatSocketSession) session.getUserProperties().get(SESSION_KEY);
+        if (chatSession != null) {
+            chatSession.close(null);
+        }
+    }
+
+    @OnError
+    public void onError(Session session, Throwable error) {
+        onClose(session);
+    }
+
+    private void reject(Session session, String reason) {
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, reason));
+        } catch (IOException ignored) {
+            // Nothing left to close
+        }
+    }
+
+    private String errorFrame(String message) {
+        return gson.toJson(Map.of("event", "error", "error", message));
+    }
+
+    private static class ChatRequest {
+        String text;
+        String type;
+    }
+}
@@ -0,0 +1,187 @@
+package com.notebook.chat;
+
+import com.notebook.config.AppConfig;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outbound side of one chat WebSocket.
+ * Frames go through a bounded per-session queue with a single async send in
+ * flight, so a stalled browser only ever backs up its own queue; the
+ * notebook-wide broadcast just enqueues and returns.
+ */
+public class ChatSocketSession implements ChatListener {
+
+    /**
+     * What to do when a session's queue is full:
+     * DROP discards the oldest queued frame, COALESCE replaces the backlog with
+     * a single "resync" frame (client refetches over HTTP), DISCONNECT closes
+     * the session so the client reconnects.
+     */
+    public enum SlowConsumerPolicy { DROP, COALESCE, DISCONNECT }
+
+    private static final int QUEUE_SIZE = AppConfig.getInt("CHAT_WS_QUEUE_SIZE", 64);
+    private static final long SEND_TIMEOUT_MS = AppConfig.getLong("CHAT_WS_SEND_TIMEOUT_MS", 10000);
+    private static final SlowConsumerPolicy POLICY = policy();
+
+    private static final AtomicInteger openSessions = new AtomicInteger();
+    private static final AtomicLong droppedFrames = new AtomicLong();
+    private static final AtomicLong slowDisconnects = new AtomicLong();
+
+    private final Session session;
+    private final int notebookId;
+    private final int userId;
+    private final SlowConsumerPolicy policy;
+    private final int queueSize;
+    private final ArrayDeque<String> queue = new ArrayDeque<>();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private boolean sending;
+    private boolean resyncQueued;
+
+    public ChatSocketSession(Session session, int notebookId, int userId) {
+        this(session, notebookId, userId, POLICY, QUEUE_SIZE);
+    }
+
+    ChatSocketSession(Session session, int notebookId, int userId, SlowConsumerPolicy policy, int queueSize) {
+        this.session = session;
+        this.notebookId = notebookId;
+        this.userId = userId;
+        this.policy = policy;
+        this.queueSize = queueSize;
+        session.getAsyncRemote().setSendTimeout(SEND_TIMEOUT_MS);
+    }
+
+    private static SlowConsumerPolicy policy() {
+        String value = AppConfig.getString("CHAT_WS_SLOW_CONSUMER_POLICY", "COALESCE");
+        try {
+            return SlowConsumerPolicy.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid CHAT_WS_SLOW_CONSUMER_POLICY " + value + " (expected DROP, COALESCE or DISCONNECT), using COALESCE");
+            return SlowConsumerPolicy.COALESCE;
+        }
+    }
+
+    public void subscribe() {
+        openSessions.incrementAndGet();
+        ChatHub.subscribe(notebookId, this);
+    }
+
+    public int getNotebookId() {
+        return notebookId;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    @Override
+    public void onChatEvent(ChatEvent event) {
+        send(event.toJsonFrame());
+    }
+
+    public void send(String frame) {
+        if (closed.get()) {
+            return;
+        }
+        boolean disconnect = false;
+        synchronized (this) {
+            if (queue.size() >= queueSize) {
+                switch (policy) {
+                    case DROP -> {
+                        queue.pollFirst();
+                        droppedFrames.incrementAndGet();
+                    }
+                    case COALESCE -> {
+                        droppedFrames.addAndGet(queue.size());
+                        queue.clear();
+                        queue.add(resyncFrame());
+                        resyncQueued = true;
+                    }
+                    case DISCONNECT -> disconnect = true;
+                }
+            }
+            if (!disconnect) {
+                // While a resync is pending the client refetches everything anyway
+                if (!resyncQueued) {
+                    queue.add(frame);
+                }
+                if (!sending) {
+                    sending = true;
+                    sendNext();
+                }
+            }
+        }
+        if (disconnect) {
+            slowDisconnects.incrementAndGet();
+            close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Client too slow"));
+        }
+    }
+
+    // Caller holds the lock
+    private void sendNext() {
+        String next = queue.poll();
+        if (next == null) {
+            sending = false;
+            resyncQueued = false;
+            return;
+        }
+        try {
+            session.getAsyncRemote().sendText(next, this::onSent);
+        } catch (IllegalStateException e) {
+            sending = false;
+            close(null);
+        }
+    }
+
+    private void onSent(SendResult result) {
+        if (!result.isOK()) {
+            close(null);
+            return;
+        }
+        synchronized (this) {
+            sendNext();
+        }
+    }
+
+    private String resyncFrame() {
+        return "{\"event\":\"resync\",\"version\":" + ChatHub.currentVersion(notebookId) + "}";
+    }
+
+    public void close(CloseReason reason) {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        openSessions.decrementAndGet();
+        ChatHub.unsubscribe(notebookId, this);
+        synchronized (this) {
+            queue.clear();
+        }
+        if (reason != null && session.isOpen()) {
+            try {
+                session.close(reason);
+            } catch (IOException ignored) {
+                // Socket already gone
+            }
+        }
+    }
+
+    public static int openSessions() {
+        return openSessions.get();
+    }
+
+    public static long droppedFrames() {
+        return droppedFrames.get();
+    }
+
+    public static long slowDisconnects() {
+        return slowDisconnects.get();
+    }
+}
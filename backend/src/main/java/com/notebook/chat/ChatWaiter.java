@@ -0,0 +1,92 @@
+package com.notebook.chat;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A suspended long-poll request waiting for a notebook's chat version to move.
+ * Parked requests hold no container thread and no database connection; only
+ * events for the same notebook wake them.
+ */
+public class ChatWaiter implements ChatListener, AsyncListener {
+
+    private final AsyncContext asyncContext;
+    private final int notebookId;
+    private final Runnable onChange;
+    private final Runnable onTimeout;
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    public ChatWaiter(AsyncContext asyncContext, int notebookId, Runnable onChange, Runnable onTimeout) {
+        this.asyncContext = asyncContext;
+        this.notebookId = notebookId;
+        this.onChange = onChange;
+        this.onTimeout = onTimeout;
+    }
+
+    /**
+     * Wait until the notebook's version differs from the one the client has seen
+     */
+    public void park(long seenVersion) {
+        asyncContext.addListener(this);
+        ChatHub.subscribe(notebookId, this);
+        // Covers a change that landed between the caller's version check and subscribing
+        if (ChatHub.currentVersion(notebookId) != seenVersion) {
+            wake();
+        }
+    }
+
+    @Override
+    public void onChatEvent(ChatEvent event) {
+        wake();
+    }
+
+    private void wake() {
+        if (!done.compareAndSet(false, true)) {
+            return;
+        }
+        ChatHub.unsubscribe(notebookId, this);
+        // Respond on a container thread, not the thread that published the event
+        try {
+            asyncContext.start(() -> {
+                try {
+                    onChange.run();
+                } finally {
+                    asyncContext.complete();
+                }
+            });
+        } catch (IllegalStateException ignored) {
+            // Request already timed out or was closed by the client
+        }
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        if (!done.compareAndSet(false, true)) {
+            return;
+        }
+        ChatHub.unsubscribe(notebookId, this);
+        try {
+            onTimeout.run();
+        } finally {
+            asyncContext.complete();
+        }
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        done.set(true);
+        ChatHub.unsubscribe(notebookId, this);
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        done.set(true);
+        ChatHub.unsubscribe(notebookId, this);
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {}
+}
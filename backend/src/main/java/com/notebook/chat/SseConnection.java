@@ -0,0 +1,197 @@
+package com.notebook.chat;
+
+import com.notebook.models.Message;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One Server-Sent Events client of a notebook's chat.
+ * Uses non-blocking servlet I/O, so an idle or slow client holds no container
+ * thread; frames wait in a bounded queue until the socket is writable.
+ */
+public class SseConnection implements ChatListener, WriteListener, AsyncListener {
+
+    // A client this far behind is disconnected; it reconnects with Last-Event-ID and replays from the DB
+    private static final int MAX_PENDING_FRAMES = 256;
+    // Longest backlog replayed on reconnect, leaving room in the queue for live events
+    public static final int MAX_REPLAY = MAX_PENDING_FRAMES / 2;
+    private static final long HEARTBEAT_SECONDS = 20;
+    private static final byte[] HEARTBEAT = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PREAMBLE = "retry: 3000\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private static final Set<SseConnection> open = ConcurrentHashMap.newKeySet();
+    private static final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "chat-sse-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        // Keeps proxies from timing out idle streams and surfaces dead sockets
+        heartbeat.scheduleAtFixedRate(() -> open.forEach(c -> c.enqueue(HEARTBEAT)),
+                HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private final AsyncContext asyncContext;
+    private final ServletOutputStream out;
+    private final int notebookId;
+    private final ArrayBlockingQueue<byte[]> pending = new ArrayBlockingQueue<>(MAX_PENDING_FRAMES);
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    // Live events that arrive while the backlog is being loaded
+    private List<ChatEvent> held = new ArrayList<>();
+    private boolean writable;
+
+    public SseConnection(AsyncContext asyncContext, int notebookId) throws IOException {
+        this.asyncContext = asyncContext;
+        this.out = asyncContext.getResponse().getOutputStream();
+        this.notebookId = notebookId;
+        asyncContext.addListener(this);
+    }
+
+    /**
+     * Subscribe before loading the backlog so nothing published in between is lost
+     */
+    public void subscribe() {
+        open.add(this);
+        ChatHub.subscribe(notebookId, this);
+    }
+
+    /**
+     * Queue the replayed backlog, release live events held during the replay,
+     * and switch the response to non-blocking writes.
+     *
+     * @param truncated the backlog was cut short; a single "resync" event is sent in
+     *                  its place and the client reloads through the paged history API
+     */
+    public void start(List<Message> backlog, boolean truncated) {
+        int replayedThrough = 0;
+        synchronized (this) {
+            enqueue(PREAMBLE);
+            if (truncated) {
+                enqueue(resyncFrame());
+            } else {
+                for (Message message : backlog) {
+                    enqueue(ChatEvent.message(message, 0).toSseFrame());
+                    replayedThrough = Math.max(replayedThrough, message.getMessageId());
+                }
+            }
+            for (ChatEvent event : held) {
+                if (event.getKind() == ChatEvent.Kind.MESSAGE && event.getMessageId() <= replayedThrough) {
+                    continue;
+                }
+                enqueue(event.toSseFrame());
+            }
+            held = null;
+            writable = true;
+        }
+        out.setWriteListener(this);
+    }
+
+    private byte[] resyncFrame() {
+        return ("event: resync\ndata: {\"version\":" + ChatHub.currentVersion(notebookId) + "}\n\n")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void onChatEvent(ChatEvent event) {
+        synchronized (this) {
+            if (held != null) {
+                held.add(event);
+                return;
+            }
+        }
+        enqueue(event.toSseFrame());
+    }
+
+    private void enqueue(byte[] frame) {
+        if (closed.get()) {
+            return;
+        }
+        if (!pending.offer(frame)) {
+            close();
+            return;
+        }
+        drain();
+    }
+
+    private synchronized void drain() {
+        if (!writable || closed.get()) {
+            return;
+        }
+        try {
+            while (out.isReady()) {
+                byte[] frame = pending.poll();
+                if (frame == null) {
+                    return;
+                }
+                out.write(frame);
+                if (out.isReady()) {
+                    out.flush();
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            close();
+        }
+    }
+
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        open.remove(this);
+        ChatHub.unsubscribe(notebookId, this);
+        try {
+            asyncContext.complete();
+        } catch (IllegalStateException ignored) {
+            // Already completed by the container
+        }
+    }
+
+    @Override
+    public void onWritePossible() {
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        close();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {}
+
+    public static int openConnections() {
+        return open.size();
+    }
+}
@@ -0,0 +1,62 @@
+package com.notebook.config;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+/**
+ * Typed access to optional tuning knobs (caches, chat, auth limits).
+ * Environment variables win over the .env file; every key has a default.
+ */
+public class AppConfig {
+    private static final Dotenv dotenv = loadDotenv();
+
+    private static Dotenv loadDotenv() {
+        String[] paths = {
+            "src/main/resources",
+            "backend/src/main/resources",
+            "../backend/src/main/resources",
+            System.getProperty("catalina.base", "."),
+            "."
+        };
+
+        for (String path : paths) {
+            try {
+                return Dotenv.configure()
+                        .directory(path)
+                        .load();
+            } catch (Exception ignored) {}
+        }
+
+        return Dotenv.configure().ignoreIfMissing().load();
+    }
+
+    public static String getString(String key, String defaultValue) {
+        String value = System.getenv(key);
+        if (value != null && !value.isEmpty()) {
+            return value;
+        }
+        String envValue = dotenv.get(key);
+        return envValue != null && !envValue.isEmpty() ? envValue : defaultValue;
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(getString(key, String.valueOf(defaultValue)).trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid integer for " + key + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        try {
+            return Long.parseLong(getString(key, String.valueOf(defaultValue)).trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number for " + key + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        return Boolean.parseBoolean(getString(key, String.valueOf(defaultValue)).trim());
+    }
+}
@@ -0,0 +1,130 @@
+package com.notebook.dao;
+
+import com.notebook.config.AppConfig;
+import com.notebook.config.DatabaseConfig;
+import java.sql.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resolves question → note → notebook parent links.
+ * A question never moves to another note and a note never moves to another
+ * notebook, so resolved links are cached (LRU-bounded) and only dropped when
+ * the parent is deleted. A load that overlaps a delete is returned but not
+ * cached, so it can't put back a link the delete just dropped.
+ */
+public class HierarchyResolver {
+
+    private static final int MAX_ENTRIES = AppConfig.getInt("HIERARCHY_CACHE_MAX_ENTRIES", 10000);
+
+    private static final Map<Integer, Integer> questionToNote = boundedMap();
+    private static final Map<Integer, Integer> noteToNotebook = boundedMap();
+    // Bumped by every delete under the noteToNotebook lock; loads compare it before installing
+    private static final AtomicLong deletions = new AtomicLong();
+
+    /**
+     * Notebook that owns a note, or null if the note doesn't exist
+     */
+    public Integer getNotebookIdForNote(int noteId) {
+        Integer notebookId = cached(noteToNotebook, noteId);
+        if (notebookId != null) {
+            return notebookId;
+        }
+
+        long loadToken = deletions.get();
+        String sql = "SELECT notebook_id FROM Notes WHERE note_id = ?";
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, noteId);
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                notebookId = rs.getInt("notebook_id");
+                remember(noteToNotebook, noteId, notebookId, loadToken);
+                return notebookId;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Notebook that a question belongs to (through its note), or null if either is gone
+     */
+    public Integer getNotebookIdForQuestion(int questionId) {
+        Integer noteId = cached(questionToNote, questionId);
+        if (noteId != null) {
+            // A deleted note drops its link, which sends us back to the database
+            Integer notebookId = cached(noteToNotebook, noteId);
+            if (notebookId != null) {
+                return notebookId;
+            }
+        }
+
+        long loadToken = deletions.get();
+        String sql = "SELECT q.note_id, n.notebook_id FROM Questions q " +
+                "JOIN Notes n ON q.note_id = n.note_id WHERE q.question_id = ?";
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, questionId);
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                noteId = rs.getInt("note_id");
+                int notebookId = rs.getInt("notebook_id");
+                remember(questionToNote, questionId, noteId, loadToken);
+                remember(noteToNotebook, noteId, notebookId, loadToken);
+                return notebookId;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Questions of the note were deleted with it (ON DELETE CASCADE)
+     */
+    static void noteDeleted(int noteId) {
+        synchronized (noteToNotebook) {
+            deletions.incrementAndGet();
+            noteToNotebook.remove(noteId);
+        }
+    }
+
+    /**
+     * Notes (and their questions) were deleted with the notebook
+     */
+    static void notebookDeleted(int notebookId) {
+        synchronized (noteToNotebook) {
+            deletions.incrementAndGet();
+            noteToNotebook.values().removeIf(id -> id == notebookId);
+        }
+    }
+
+    private static Integer cached(Map<Integer, Integer> map, int id) {
+        synchronized (map) {
+            return map.get(id);
+        }
+    }
+
+    private static void remember(Map<Integer, Integer> map, int id, int parentId, long loadToken) {
+        synchronized (noteToNotebook) {
+            if (deletions.get() != loadToken) {
+                return;
+            }
+            synchronized (map) {
+                map.put(id, parentId);
+            }
+        }
+    }
+
+    private static Map<Integer, Integer> boundedMap() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+    }
+}
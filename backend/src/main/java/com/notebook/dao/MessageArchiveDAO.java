@@ -0,0 +1,134 @@
+package com.notebook.dao;
+
+import com.notebook.config.DatabaseConfig;
+import java.sql.*;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Partition maintenance for the month-partitioned Messages table.
+ * Old partitions are detached and moved into the archive schema as a whole;
+ * notebooks with their own (shorter) retention have rows moved into
+ * archive.messages_archive.
+ */
+public class MessageArchiveDAO {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("messages_y(\\d{4})m(\\d{2})");
+
+    /**
+     * Make sure partitions exist for the current month and the next {@code monthsAhead}
+     */
+    public void ensurePartitions(int monthsAhead) throws SQLException {
+        String sql = "SELECT create_messages_partition((CURRENT_DATE + make_interval(months => n))::date) " +
+                "FROM generate_series(0, ?) AS n";
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, monthsAhead);
+            stmt.executeQuery();
+        }
+    }
+
+    /**
+     * Monthly partitions currently attached to Messages, oldest first
+     */
+    public Map<String, YearMonth> getPartitions() throws SQLException {
+        Map<String, YearMonth> partitions = new LinkedHashMap<>();
+        String sql = "SELECT c.relname FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'messages'::regclass ORDER BY c.relname";
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                String name = rs.getString("relname");
+                Matcher m = PARTITION_NAME.matcher(name);
+                // Skips the default partition
+                if (m.matches()) {
+                    partitions.put(name, YearMonth.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2))));
+                }
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * Detach a monthly partition and move it to the archive schema.
+     * The name must come from {@link #getPartitions()}.
+     *
+     * Detaching CONCURRENTLY only takes a SHARE UPDATE EXCLUSIVE lock, so chat
+     * reads and inserts carry on meanwhile; it can't run inside a transaction,
+     * so each statement commits on its own. A detach interrupted half way is
+     * left pending and is finished with FINALIZE on the next run.
+     */
+    public void archivePartition(String partitionName) throws SQLException {
+        if (!PARTITION_NAME.matcher(partitionName).matches()) {
+            throw new IllegalArgumentException("Not a message partition: " + partitionName);
+        }
+        try (Connection conn = DatabaseConfig.getConnection();
+                Statement stmt = conn.createStatement()) {
+            String mode = isDetachPending(conn, partitionName) ? " FINALIZE" : " CONCURRENTLY";
+            stmt.execute("ALTER TABLE Messages DETACH PARTITION " + partitionName + mode);
+            stmt.execute("ALTER TABLE " + partitionName + " SET SCHEMA archive");
+        }
+    }
+
+    private boolean isDetachPending(Connection conn, String partitionName) throws SQLException {
+        String sql = "SELECT i.inhdetachpending FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'messages'::regclass AND c.relname = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, partitionName);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    /**
+     * Move messages past their notebook's own retention into archive.messages_archive.
+     *
+     * @return number of archived rows per affected notebook
+     */
+    public Map<Integer, Integer> archiveNotebookMessages() throws SQLException {
+        Map<Integer, Integer> archived = new LinkedHashMap<>();
+        String sql = "WITH moved AS (" +
+                "DELETE FROM Messages m USING Notebooks n " +
+                "WHERE m.notebook_id = n.notebook_id AND n.message_retention_days IS NOT NULL " +
+                "AND m.timestamp < CURRENT_TIMESTAMP - make_interval(days => n.message_retention_days) " +
+                "RETURNING m.*" +
+                "), stored AS (" +
+                "INSERT INTO archive.messages_archive (message_id, notebook_id, user_id, message_text, type, timestamp) " +
+                "SELECT message_id, notebook_id, user_id, message_text, type, timestamp FROM moved" +
+                ") SELECT notebook_id, COUNT(*) AS archived FROM moved GROUP BY notebook_id";
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                archived.put(rs.getInt("notebook_id"), rs.getInt("archived"));
+            }
+        }
+        return archived;
+    }
+
+    /**
+     * Notebooks that still have rows in a partition, so their caches can be dropped once it is archived
+     */
+    public List<Integer> getNotebookIds(String partitionName) throws SQLException {
+        if (!PARTITION_NAME.matcher(partitionName).matches()) {
+            throw new IllegalArgumentException("Not a message partition: " + partitionName);
+        }
+        List<Integer> ids = new ArrayList<>();
+        try (Connection conn = DatabaseConfig.getConnection();
+                Statement stmt = conn.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT DISTINCT notebook_id FROM " + partitionName);
+            while (rs.next()) {
+                ids.add(rs.getInt("notebook_id"));
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,241 @@
+package com.notebook.dao;
+
+import com.notebook.config.DatabaseConfig;
+import com.notebook.models.Message;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind batching for chat inserts.
+ * Collects messages for a few milliseconds and stores them with one JDBC batch
+ * on one pooled connection, instead of a connection checkout and a round trip
+ * per message. Every caller gets its own stored row back through a future.
+ *
+ * The queue is bounded: when it is full, sends fail right away instead of
+ * piling up. A future cancelled before its flush starts (a caller that gave
+ * up waiting) is dropped, so a retried send is never stored twice.
+ */
+class MessageBatchWriter {
+
+    private final LinkedBlockingQueue<Pending> queue;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final Consumer<Message> onStored;
+    private final UserDAO userDAO = new UserDAO();
+
+    /**
+     * @param onStored runs on the flusher thread for each stored message, in insert order,
+     *                 after the message's future has completed
+     */
+    MessageBatchWriter(long windowMs, int maxBatch, int queueSize, Consumer<Message> onStored) {
+        this.queue = new LinkedBlockingQueue<>(queueSize);
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.maxBatch = maxBatch;
+        this.onStored = onStored;
+
+        Thread flusher = new Thread(this::run, "chat-batch-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Queue a message. Cancelling the future takes it back unless its flush has started.
+     */
+    CompletableFuture<Message> submit(int notebookId, int userId, String text, String type) {
+        Pending pending = new Pending(notebookId, userId, text, type);
+        if (!queue.offer(pending)) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Chat write queue is full"));
+        }
+        return pending.future;
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (true) {
+            try {
+                Pending first = queue.take();
+                if (!first.claim()) {
+                    continue;
+                }
+                batch.add(first);
+                // The first message opens a short window for others to join the same flush
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining <= 0 ? queue.poll() : queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    if (next.claim()) {
+                        batch.add(next);
+                    }
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Never let one bad flush kill the writer
+                for (Pending pending : batch) {
+                    pending.future.completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        String sql = "INSERT INTO Messages (notebook_id, user_id, message_text, type) " +
+                "VALUES (?, ?, ?, ?::message_type)";
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql,
+                    new String[] {"message_id", "timestamp", "type"})) {
+
+                for (Pending pending : batch) {
+                    stmt.setInt(1, pending.notebookId);
+                    stmt.setInt(2, pending.userId);
+                    stmt.setString(3, pending.text);
+                    stmt.setString(4, pending.type);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+
+                // Generated keys come back in batch order
+                ResultSet keys = stmt.getGeneratedKeys();
+                for (Pending pending : batch) {
+                    if (!keys.next()) {
+                        throw new SQLException("Missing generated key for batched message");
+                    }
+                    pending.stored = pending.toMessage(keys);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            // One bad row (e.g. a notebook deleted mid-window) fails the whole batch; retry rows one by one.
+            // Anything else (pool timeout, lost connection) would fail every row too, so fail fast.
+            if (batch.size() > 1 && isDataError(e)) {
+                for (Pending pending : batch) {
+                    flush(new ArrayList<>(List.of(pending)));
+                }
+                return;
+            }
+            e.printStackTrace();
+            for (Pending pending : batch) {
+                pending.future.completeExceptionally(e);
+            }
+            return;
+        }
+
+        // Rows are committed and the connection is back in the pool; names come from the profile cache
+        try {
+            fillUserNames(batch);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+        // Callers learn their rows are stored before any listener runs, so a failing
+        // listener can't make them retry (and store the message twice)
+        for (Pending pending : batch) {
+            pending.future.complete(pending.stored);
+        }
+        for (Pending pending : batch) {
+            try {
+                onStored.accept(pending.stored);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Whether the failure is about the rows themselves (SQLState class 22 data exception
+     * or 23 integrity violation) rather than the connection or the server
+     */
+    static boolean isDataError(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                for (SQLException s = (SQLException) t; s != null; s = s.getNextException()) {
+                    String state = s.getSQLState();
+                    if (state != null && (state.startsWith("22") || state.startsWith("23"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private void fillUserNames(List<Pending> batch) {
+        Set<Integer> userIds = new HashSet<>();
+        for (Pending pending : batch) {
+            userIds.add(pending.userId);
+        }
+        Map<Integer, String> names = userDAO.getUserNames(userIds);
+        for (Pending pending : batch) {
+            pending.stored.setUserName(names.get(pending.userId));
+        }
+    }
+
+    private static class Pending {
+        private static final int QUEUED = 0;
+        private static final int FLUSHING = 1;
+        private static final int CANCELLED = 2;
+
+        final int notebookId;
+        final int userId;
+        final String text;
+        final String type;
+        final AtomicInteger state = new AtomicInteger(QUEUED);
+        final CompletableFuture<Message> future = new CompletableFuture<>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                // Once the flush has the row it will be stored; the caller must wait for it
+                return state.compareAndSet(QUEUED, CANCELLED) && super.cancel(mayInterruptIfRunning);
+            }
+        };
+        Message stored;
+
+        Pending(int notebookId, int userId, String text, String type) {
+            this.notebookId = notebookId;
+            this.userId = userId;
+            this.text = text;
+            this.type = type;
+        }
+
+        /**
+         * Take the message for a flush, unless the caller already gave up on it
+         */
+        boolean claim() {
+            return state.compareAndSet(QUEUED, FLUSHING);
+        }
+
+        Message toMessage(ResultSet keys) throws SQLException {
+            Message msg = new Message();
+            msg.setMessageId(keys.getInt("message_id"));
+            msg.setNotebookId(notebookId);
+            msg.setUserId(userId);
+            msg.setMessageText(text);
+            msg.setType(keys.getString("type"));
+            msg.setTimestamp(keys.getTimestamp("timestamp"));
+            return msg;
+        }
+    }
+}
@@ -1,51 +1,349 @@
 package com.notebook.dao;
 
+import com.notebook.cache.MessageCache;
+import com.notebook.chat.ChatHub;
+import com.notebook.config.AppConfig;
 import com.notebook.config.DatabaseConfig;
 import com.notebook.models.Message;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class MessageDAO {
 
+    // Shared by every DAO instance; see MessageCache for the consistency rules
+    private static final MessageCache recentMessages = new MessageCache(
+            AppConfig.getInt("MESSAGE_CACHE_PER_NOTEBOOK", 200),
+            AppConfig.getLong("MESSAGE_CACHE_MAX_BYTES", 32L * 1024 * 1024));
+
+    // Optional write-behind batching for bursts of sends (e.g. a whole lecture posting at once)
+    private static final MessageBatchWriter batchWriter = AppConfig.getBoolean("CHAT_BATCH_WRITES", false)
+            ? new MessageBatchWriter(
+                    AppConfig.getLong("CHAT_BATCH_WINDOW_MS", 5),
+                    AppConfig.getInt("CHAT_BATCH_MAX_SIZE", 200),
+                    AppConfig.getInt("CHAT_BATCH_QUEUE_SIZE", 10000),
+                    MessageDAO::messageStored)
+            : null;
+    private static final long BATCH_WAIT_MS = 10000;
+
+    // Sender names come from UserDAO's profile cache unless USER_NAMES_FROM_CACHE=false
+    private static final String MESSAGE_SELECT = UserDAO.NAMES_FROM_CACHE
+            ? "SELECT m.*, NULL::text as user_name FROM Messages m "
+            : "SELECT m.*, u.name as user_name FROM Messages m JOIN Users u ON m.user_id = u.user_id ";
+
+    private final UserDAO userDAO = new UserDAO();
+
+    public static final String TYPE_STICKY = "sticky";
+    public static final String TYPE_CHAT = "chat";
+
+    public static boolean isValidType(String type) {
+        return TYPE_STICKY.equals(type) || TYPE_CHAT.equals(type);
+    }
+
     /**
      * Get chat messages for a notebook
      */
     public List<Message> getNotebookMessages(int notebookId) {
+        return getNotebookMessages(notebookId, null);
+    }
+
+    /**
+     * Get chat messages for a notebook, optionally only one type ("sticky" or "chat")
+     */
+    public List<Message> getNotebookMessages(int notebookId, String type) {
+        MessageCache.Snapshot recent = recentMessages(notebookId);
+        boolean answered = recent != null && recent.isComplete();
+        recentMessages.recordLookup(recent, answered);
+        if (answered) {
+            return recent.all(type);
+        }
+
         List<Message> messages = new ArrayList<>();
-        String sql = "SELECT m.*, u.name as user_name FROM Messages m " +
-                "JOIN Users u ON m.user_id = u.user_id " +
+        String sql = MESSAGE_SELECT +
                 "WHERE m.notebook_id = ? " +
-                "ORDER BY m.timestamp ASC";
+                (type != null ? "AND m.type = ?::message_type " : "") +
+                "ORDER BY m.message_id ASC";
 
         try (Connection conn = DatabaseConfig.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, notebookId);
+            if (type != null) {
+                stmt.setString(2, type);
+            }
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                messages.add(mapMessage(rs));
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        fillUserNames(messages);
+        return messages;
+    }
+
+    public List<Message> getNotebookMessagesAfter(int notebookId, int afterMessageId) {
+        return getNotebookMessagesAfter(notebookId, afterMessageId, null);
+    }
+
+    /**
+     * Get chat messages posted after a known message id (keyset cursor).
+     * Lets pollers fetch only the rows they have not seen yet.
+     */
+    public List<Message> getNotebookMessagesAfter(int notebookId, int afterMessageId, String type) {
+        return getNotebookMessagesAfter(notebookId, afterMessageId, type, Integer.MAX_VALUE);
+    }
+
+    /**
+     * The oldest {@code limit} messages after the cursor, ascending
+     */
+    public List<Message> getNotebookMessagesAfter(int notebookId, int afterMessageId, String type, int limit) {
+        MessageCache.Snapshot recent = recentMessages(notebookId);
+        boolean answered = recent != null && recent.coversAfter(afterMessageId);
+        recentMessages.recordLookup(recent, answered);
+        if (answered) {
+            List<Message> cached = recent.after(afterMessageId, type);
+            return cached.size() > limit ? cached.subList(0, limit) : cached;
+        }
+
+        List<Message> messages = new ArrayList<>();
+        String sql = MESSAGE_SELECT +
+                "WHERE m.notebook_id = ? AND m.message_id > ? " +
+                (type != null ? "AND m.type = ?::message_type " : "") +
+                "ORDER BY m.message_id ASC LIMIT ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int i = 1;
+            stmt.setInt(i++, notebookId);
+            stmt.setInt(i++, afterMessageId);
+            if (type != null) {
+                stmt.setString(i++, type);
+            }
+            stmt.setInt(i, limit);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                messages.add(mapMessage(rs));
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        fillUserNames(messages);
+        return messages;
+    }
+
+    /**
+     * Get the newest {@code limit} messages (ascending). Served from memory when
+     * the notebook's ring buffer can answer.
+     */
+    public List<Message> getRecentMessages(int notebookId, int limit, String type) {
+        if (limit <= recentMessages.getCapacity()) {
+            MessageCache.Snapshot recent = recentMessages(notebookId);
+            List<Message> cached = recent == null ? null : recent.newest(limit, type);
+            recentMessages.recordLookup(recent, cached != null);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        List<Message> newest = queryNewest(notebookId, limit, type);
+        return newest == null ? new ArrayList<>() : newest;
+    }
+
+    /**
+     * Backward keyset page over (timestamp, message_id): the newest {@code limit + 1}
+     * messages older than the cursor, newest first. A null cursor starts at the newest
+     * message. The extra row only tells the caller whether another page exists.
+     */
+    public List<Message> getMessagesBefore(int notebookId, Timestamp beforeTime, int beforeMessageId,
+            int limit, String type) {
+        List<Message> messages = new ArrayList<>();
+        String sql = MESSAGE_SELECT +
+                "WHERE m.notebook_id = ? " +
+                // The redundant bound lets the planner prune newer partitions
+                (beforeTime != null ? "AND m.timestamp <= ? AND (m.timestamp, m.message_id) < (?, ?) " : "") +
+                (type != null ? "AND m.type = ?::message_type " : "") +
+                "ORDER BY m.timestamp DESC, m.message_id DESC LIMIT ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int i = 1;
+            stmt.setInt(i++, notebookId);
+            if (beforeTime != null) {
+                stmt.setTimestamp(i++, beforeTime);
+                stmt.setTimestamp(i++, beforeTime);
+                stmt.setInt(i++, beforeMessageId);
+            }
+            if (type != null) {
+                stmt.setString(i++, type);
+            }
+            stmt.setInt(i, limit + 1);
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
-                Message msg = new Message();
-                msg.setMessageId(rs.getInt("message_id"));
-                msg.setNotebookId(rs.getInt("notebook_id"));
-                msg.setUserId(rs.getInt("user_id"));
-                msg.setUserName(rs.getString("user_name"));
-                msg.setMessageText(rs.getString("message_text"));
-                msg.setTimestamp(rs.getTimestamp("timestamp"));
-                messages.add(msg);
+                messages.add(mapMessage(rs));
             }
 
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        fillUserNames(messages);
         return messages;
     }
 
     /**
-     * Send a message
+     * Messages per notebook kept in memory
+     */
+    public static int recentCapacity() {
+        return recentMessages.getCapacity();
+    }
+
+    public static Map<String, Object> cacheStats() {
+        return recentMessages.stats();
+    }
+
+    /**
+     * Cached view of the notebook's newest messages, loading it on a miss.
+     * Returns null only if the load failed.
+     */
+    private MessageCache.Snapshot recentMessages(int notebookId) {
+        MessageCache.Snapshot cached = recentMessages.get(notebookId);
+        if (cached != null) {
+            return cached;
+        }
+        long version = ChatHub.currentVersion(notebookId);
+        // One extra row tells the cache whether it holds the whole history
+        List<Message> newest = queryNewest(notebookId, recentMessages.getCapacity() + 1, null);
+        if (newest == null) {
+            return null;
+        }
+        return recentMessages.fill(notebookId, newest, version);
+    }
+
+    /**
+     * Newest messages in ascending id order, or null on a database error.
+     * Selected by message_id, not timestamp: the cache's floor means "every id
+     * above this is present", which a timestamp order can't promise when
+     * concurrent inserts commit out of order. Each partition's
+     * (notebook_id, message_id) index still feeds a merge that stops at the LIMIT.
+     */
+    private List<Message> queryNewest(int notebookId, int limit, String type) {
+        List<Message> messages = new ArrayList<>();
+        String sql = MESSAGE_SELECT +
+                "WHERE m.notebook_id = ? " +
+                (type != null ? "AND m.type = ?::message_type " : "") +
+                "ORDER BY m.message_id DESC LIMIT ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int i = 1;
+            stmt.setInt(i++, notebookId);
+            if (type != null) {
+                stmt.setString(i++, type);
+            }
+            stmt.setInt(i, limit);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                messages.add(mapMessage(rs));
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+        messages.sort(Comparator.comparingInt(Message::getMessageId));
+        fillUserNames(messages);
+        return messages;
+    }
+
+    /**
+     * Send a sticky note
      */
     public boolean sendMessage(int notebookId, int userId, String text) {
-        String sql = "INSERT INTO Messages (notebook_id, user_id, message_text) VALUES (?, ?, ?)";
+        return sendMessage(notebookId, userId, text, TYPE_STICKY);
+    }
+
+    /**
+     * Send a message of the given type ("sticky" or "chat")
+     */
+    public boolean sendMessage(int notebookId, int userId, String text, String type) {
+        if (batchWriter != null) {
+            CompletableFuture<Message> stored = submitMessage(notebookId, userId, text, type);
+            try {
+                stored.get(BATCH_WAIT_MS, TimeUnit.MILLISECONDS);
+                return true;
+            } catch (TimeoutException e) {
+                // Withdraw it so a retry can't store the message twice; if its flush
+                // already started, the outcome is about to be known
+                if (stored.cancel(false)) {
+                    return false;
+                }
+                return awaitFlush(stored);
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stored.cancel(false);
+                return false;
+            }
+        }
+        return insertMessage(notebookId, userId, text, type) != null;
+    }
+
+    private boolean awaitFlush(CompletableFuture<Message> stored) {
+        try {
+            stored.get();
+            return true;
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Send a message and get the stored row (id, timestamp) back through a future.
+     * With CHAT_BATCH_WRITES enabled, concurrent sends share one flush.
+     */
+    public CompletableFuture<Message> submitMessage(int notebookId, int userId, String text, String type) {
+        if (batchWriter != null) {
+            return batchWriter.submit(notebookId, userId, text, type);
+        }
+        Message stored = insertMessage(notebookId, userId, text, type);
+        return stored != null
+                ? CompletableFuture.completedFuture(stored)
+                : CompletableFuture.failedFuture(new SQLException("Failed to send message"));
+    }
+
+    /**
+     * One insert on its own pooled connection; the path used without batching
+     */
+    Message insertMessage(int notebookId, int userId, String text, String type) {
+        // Return the stored row (with sender name) in the same round trip so it can be pushed to subscribers
+        String sql = "WITH m AS (" +
+                "INSERT INTO Messages (notebook_id, user_id, message_text, type) " +
+                "VALUES (?, ?, ?, ?::message_type) RETURNING *" +
+                (UserDAO.NAMES_FROM_CACHE
+                        ? ") SELECT m.*, NULL::text as user_name FROM m"
+                        : ") SELECT m.*, u.name as user_name FROM m JOIN Users u ON m.user_id = u.user_id");
 
         try (Connection conn = DatabaseConfig.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -53,31 +351,90 @@ public class MessageDAO {
             stmt.setInt(1, notebookId);
             stmt.setInt(2, userId);
             stmt.setString(3, text);
+            stmt.setString(4, type);
 
-            return stmt.executeUpdate() > 0;
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                Message message = mapMessage(rs);
+                fillUserNames(List.of(message));
+                messageStored(message);
+                return message;
+            }
+            return null;
 
         } catch (SQLException e) {
             e.printStackTrace();
-            return false;
+            return null;
         }
     }
-    
+
+    private static void messageStored(Message message) {
+        // Update the cache before publishing so clients woken by the event read the new row
+        long version = ChatHub.recordChange(message.getNotebookId());
+        recentMessages.append(message);
+        ChatHub.messageSent(message, version);
+    }
+
     /**
      * Delete a message
      */
     public boolean deleteMessage(int messageId) {
-        String sql = "DELETE FROM Messages WHERE message_id = ?";
+        String sql = "DELETE FROM Messages WHERE message_id = ? RETURNING notebook_id";
 
         try (Connection conn = DatabaseConfig.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, messageId);
-            int rows = stmt.executeUpdate();
-            return rows > 0;
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                int notebookId = rs.getInt("notebook_id");
+                long version = ChatHub.recordChange(notebookId);
+                recentMessages.invalidate(notebookId);
+                ChatHub.messageDeleted(notebookId, messageId, version);
+                return true;
+            }
+            return false;
 
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         }
     }
+
+    /**
+     * Drop derived state after the retention job archived some of a notebook's messages
+     */
+    public static void messagesArchived(int notebookId) {
+        ChatHub.recordChange(notebookId);
+        recentMessages.invalidate(notebookId);
+    }
+
+    /**
+     * Set sender names from the profile cache when the query skipped the Users join
+     */
+    private void fillUserNames(List<Message> messages) {
+        if (!UserDAO.NAMES_FROM_CACHE || messages.isEmpty()) {
+            return;
+        }
+        Set<Integer> userIds = new HashSet<>();
+        for (Message message : messages) {
+            userIds.add(message.getUserId());
+        }
+        Map<Integer, String> names = userDAO.getUserNames(userIds);
+        for (Message message : messages) {
+            message.setUserName(names.get(message.getUserId()));
+        }
+    }
+
+    private Message mapMessage(ResultSet rs) throws SQLException {
+        Message msg = new Message();
+        msg.setMessageId(rs.getInt("message_id"));
+        msg.setNotebookId(rs.getInt("notebook_id"));
+        msg.setUserId(rs.getInt("user_id"));
+        msg.setUserName(rs.getString("user_name"));
+        msg.setMessageText(rs.getString("message_text"));
+        msg.setType(rs.getString("type"));
+        msg.setTimestamp(rs.getTimestamp("timestamp"));
+        return msg;
+    }
 }
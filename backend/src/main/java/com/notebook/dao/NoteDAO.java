@@ -1,113 +1,201 @@
 package com.notebook.dao;
 
 import com.notebook.config.DatabaseConfig;
+import com.notebook.dto.Authorized;
 import com.notebook.models.Note;
+import com.notebook.search.SearchIndex;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 
 public class NoteDAO {
 
+    // Joins the caller's collaborator row (if any); the first parameter is the user id
+    private static final String ACCESS_JOIN = "JOIN Notebooks nb ON nb.notebook_id = n.notebook_id " +
+            "LEFT JOIN NotebookCollaborators nc ON nc.notebook_id = nb.notebook_id AND nc.user_id = ? ";
+    // Same rules as NotebookDAO.canUserAccessNotebook / isUserEditor; one user id parameter each
+    private static final String CAN_READ = "(nb.visibility = 'Public' OR nb.owner_id = ? OR nc.user_id IS NOT NULL)";
+    private static final String CAN_EDIT = "(nb.owner_id = ? OR nc.role = 'Editor')";
+    // Listed explicitly so the search_vector column isn't sent back with every row
+    private static final String NOTE_COLUMNS = "note_id, notebook_id, content, created_at, updated_at";
+
+    /*
+     * Every read and write is fetch-if-authorized: the permission check runs inside
+     * the same statement, so each is a single round trip. They return null on a
+     * database error.
+     */
+
     /**
-     * Get all notes for a specific notebook
+     * All notes of a notebook, if the user may read it
      */
-    public List<Note> getNotesByNotebookId(int notebookId) {
-        List<Note> notes = new ArrayList<>();
-        String sql = "SELECT * FROM Notes WHERE notebook_id = ? ORDER BY created_at ASC";
+    public Authorized<List<Note>> getNotesForUser(int notebookId, int userId) {
+        String sql = "SELECT a.allowed, n.note_id, n.notebook_id, n.content, n.created_at, n.updated_at FROM Notebooks nb " +
+                "LEFT JOIN NotebookCollaborators nc ON nc.notebook_id = nb.notebook_id AND nc.user_id = ? " +
+                "CROSS JOIN LATERAL (SELECT " + CAN_READ + " AS allowed) a " +
+                "LEFT JOIN Notes n ON n.notebook_id = nb.notebook_id AND a.allowed " +
+                "WHERE nb.notebook_id = ? ORDER BY n.created_at ASC";
 
         try (Connection conn = DatabaseConfig.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setInt(1, notebookId);
+            stmt.setInt(1, userId);
+            stmt.setInt(2, userId);
+            stmt.setInt(3, notebookId);
             ResultSet rs = stmt.executeQuery();
 
-            while (rs.next()) {
-                notes.add(mapNote(rs));
+            if (!rs.next()) {
+                return Authorized.notFound();
             }
+            if (!rs.getBoolean("allowed")) {
+                return Authorized.denied();
+            }
+            List<Note> notes = new ArrayList<>();
+            // An empty notebook comes back as one row with null note columns
+            do {
+                if (rs.getObject("note_id") != null) {
+                    notes.add(mapNote(rs));
+                }
+            } while (rs.next());
+            return Authorized.of(notes);
+
         } catch (SQLException e) {
             e.printStackTrace();
+            return null;
         }
-        return notes;
     }
 
-    public Note getNoteById(int noteId) {
-        String sql = "SELECT * FROM Notes WHERE note_id = ?";
+    /**
+     * A note, if the user may read its notebook. Content of a note the user
+     * can't read never leaves the database.
+     */
+    public Authorized<Note> getNoteForUser(int noteId, int userId) {
+        String sql = "SELECT a.allowed, n.note_id, n.notebook_id, n.created_at, n.updated_at, " +
+                "CASE WHEN a.allowed THEN n.content END AS content " +
+                "FROM Notes n " + ACCESS_JOIN +
+                "CROSS JOIN LATERAL (SELECT " + CAN_READ + " AS allowed) a " +
+                "WHERE n.note_id = ?";
+
         try (Connection conn = DatabaseConfig.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, noteId);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return mapNote(rs);
-            }
+
+            stmt.setInt(1, userId);
+            stmt.setInt(2, userId);
+            stmt.setInt(3, noteId);
+            return mapAuthorizedNote(stmt.executeQuery());
+
         } catch (SQLException e) {
             e.printStackTrace();
+            return null;
         }
-        return null;
     }
 
     /**
-     * Create a new note and return the created Note
+     * Create a note if the user is an owner or editor of the notebook
      */
-    public Note createNote(int notebookId, String content) {
-        String sql = "INSERT INTO Notes (notebook_id, content) VALUES (?, ?) RETURNING *";
+    public Authorized<Note> createNoteForUser(int notebookId, int userId, String content) {
+        String sql = "WITH target AS (" +
+                "SELECT nb.notebook_id, " + CAN_EDIT + " AS allowed FROM Notebooks nb " +
+                "LEFT JOIN NotebookCollaborators nc ON nc.notebook_id = nb.notebook_id AND nc.user_id = ? " +
+                "WHERE nb.notebook_id = ?" +
+                "), created AS (" +
+                "INSERT INTO Notes (notebook_id, content) SELECT notebook_id, ? FROM target WHERE allowed RETURNING " + NOTE_COLUMNS +
+                ") SELECT t.allowed, c.* FROM target t LEFT JOIN created c ON true";
 
         try (Connection conn = DatabaseConfig.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setInt(1, notebookId);
-            stmt.setString(2, content);
-
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return mapNote(rs);
-            }
+            stmt.setInt(1, userId);
+            stmt.setInt(2, userId);
+            stmt.setInt(3, notebookId);
+            stmt.setString(4, content);
+            return indexed(mapAuthorizedNote(stmt.executeQuery()));
 
         } catch (SQLException e) {
             e.printStackTrace();
             return null;
         }
-        return null;
     }
 
     /**
-     * Update an existing note
+     * Update a note if the user is an owner or editor, returning the stored row
      */
-    public boolean updateNote(int noteId, String content) {
-        String sql = "UPDATE Notes SET content = ?, updated_at = NOW() WHERE note_id = ?";
+    public Authorized<Note> updateNoteForUser(int noteId, int userId, String content) {
+        String sql = "WITH target AS (" +
+                "SELECT n.note_id, " + CAN_EDIT + " AS allowed FROM Notes n " + ACCESS_JOIN +
+                "WHERE n.note_id = ?" +
+                "), updated AS (" +
+                "UPDATE Notes SET content = ?, updated_at = NOW() " +
+                "WHERE note_id = (SELECT note_id FROM target WHERE allowed) RETURNING " + NOTE_COLUMNS +
+                ") SELECT t.allowed, u.* FROM target t LEFT JOIN updated u ON true";
 
         try (Connection conn = DatabaseConfig.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, content);
-            stmt.setInt(2, noteId);
-
-            int rows = stmt.executeUpdate();
-            return rows > 0;
+            stmt.setInt(1, userId);
+            stmt.setInt(2, userId);
+            stmt.setInt(3, noteId);
+            stmt.setString(4, content);
+            return indexed(mapAuthorizedNote(stmt.executeQuery()));
 
         } catch (SQLException e) {
             e.printStackTrace();
-            return false;
+            return null;
         }
     }
 
     /**
-     * Delete a note
+     * Delete a note if the user is an owner or editor, returning the deleted row
      */
-    public boolean deleteNote(int noteId) {
-        String sql = "DELETE FROM Notes WHERE note_id = ?";
+    public Authorized<Note> deleteNoteForUser(int noteId, int userId) {
+        String sql = "WITH target AS (" +
+                "SELECT n.note_id, " + CAN_EDIT + " AS allowed FROM Notes n " + ACCESS_JOIN +
+                "WHERE n.note_id = ?" +
+                "), deleted AS (" +
+                "DELETE FROM Notes WHERE note_id = (SELECT note_id FROM target WHERE allowed) RETURNING " + NOTE_COLUMNS +
+                ") SELECT t.allowed, d.* FROM target t LEFT JOIN deleted d ON true";
 
         try (Connection conn = DatabaseConfig.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setInt(1, noteId);
-
-            int rows = stmt.executeUpdate();
-            return rows > 0;
+            stmt.setInt(1, userId);
+            stmt.setInt(2, userId);
+            stmt.setInt(3, noteId);
+            Authorized<Note> deleted = mapAuthorizedNote(stmt.executeQuery());
+            if (deleted.isAllowed()) {
+                HierarchyResolver.noteDeleted(noteId);
+                SearchIndex.noteDeleted(noteId);
+            }
+            return deleted;
 
         } catch (SQLException e) {
             e.printStackTrace();
-            return false;
+            return null;
+        }
+    }
+
+    /**
+     * Pass a stored note to the search index
+     */
+    private Authorized<Note> indexed(Authorized<Note> result) {
+        if (result.isAllowed()) {
+            Note note = result.getValue();
+            SearchIndex.noteSaved(note.getNoteId(), note.getNotebookId(), note.getContent());
+        }
+        return result;
+    }
+
+    private Authorized<Note> mapAuthorizedNote(ResultSet rs) throws SQLException {
+        if (!rs.next()) {
+            return Authorized.notFound();
+        }
+        if (!rs.getBoolean("allowed")) {
+            return Authorized.denied();
+        }
+        // Allowed, but the row vanished between the check and the write
+        if (rs.getObject("note_id") == null) {
+            return Authorized.notFound();
         }
+        return Authorized.of(mapNote(rs));
     }
 
     private Note mapNote(ResultSet rs) throws SQLException {
@@ -1,14 +1,54 @@
 package com.notebook.dao;
 
+import com.notebook.cache.AccessCache;
+import com.notebook.cache.AccessIndex;
+import com.notebook.cache.IntSet;
+import com.notebook.cache.SearchResultCache;
+import com.notebook.config.AppConfig;
 import com.notebook.config.DatabaseConfig;
 import com.notebook.models.Collaborator;
 import com.notebook.models.Notebook;
+import com.notebook.search.NotebookSuggestions;
+import com.notebook.search.SearchIndex;
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
 
 public class NotebookDAO {
 
+    // Shared by every DAO instance; invalidated by the writers below
+    private static final AccessCache accessCache = new AccessCache(
+            AppConfig.getInt("ACCESS_CACHE_MAX_ENTRIES", 50000),
+            AppConfig.getLong("ACCESS_CACHE_TTL_SECONDS", 60) * 1000);
+
+    // Owned/shared ids per user and the public set; kept current by the writers below
+    private static final AccessIndex accessIndex = new AccessIndex();
+
+    // Notebook search pages; any write that can change a result bumps its generation
+    private static final boolean SEARCH_CACHE_ENABLED = AppConfig.getBoolean("SEARCH_CACHE_ENABLED", true);
+    private static final SearchResultCache searchCache = new SearchResultCache(
+            AppConfig.getInt("SEARCH_CACHE_MAX_ENTRIES", 5000),
+            AppConfig.getLong("SEARCH_CACHE_TTL_SECONDS", 60) * 1000);
+
+    // Listed explicitly so the search_vector column isn't sent back with every row
+    private static final String NOTEBOOK_COLUMNS =
+            "n.notebook_id, n.title, n.owner_id, n.course_name, n.visibility, n.created_at, n.updated_at";
+
+    // Owner names come from UserDAO's profile cache unless USER_NAMES_FROM_CACHE=false
+    private static final String NOTEBOOK_SELECT = UserDAO.NAMES_FROM_CACHE
+            ? "SELECT " + NOTEBOOK_COLUMNS + ", NULL::text as owner_name"
+            : "SELECT " + NOTEBOOK_COLUMNS + ", u.name as owner_name";
+    private static final String OWNER_JOIN = UserDAO.NAMES_FROM_CACHE
+            ? ""
+            : "JOIN Users u ON n.owner_id = u.user_id ";
+
+    private final UserDAO userDAO = new UserDAO();
+
     /**
      * Check if a user has access to a notebook
      * Access granted if:
@@ -17,66 +57,149 @@ public class NotebookDAO {
      * 3. Notebook is Public
      */
     public boolean canUserAccessNotebook(int userId, int notebookId) {
-        String sql = "SELECT 1 FROM Notebooks n " +
-                "LEFT JOIN NotebookCollaborators nc ON n.notebook_id = nc.notebook_id " +
-                "WHERE n.notebook_id = ? AND " +
-                "(n.visibility = 'Public' OR n.owner_id = ? OR nc.user_id = ?)";
+        return getRole(userId, notebookId).canRead();
+    }
+
+    /**
+     * Check if a user has edit permissions (Owner or Editor)
+     */
+    public boolean isUserEditor(int userId, int notebookId) {
+        return getRole(userId, notebookId).canEdit();
+    }
+
+    /**
+     * Check if user is owner
+     */
+    public boolean isOwner(int userId, int notebookId) {
+        return getRole(userId, notebookId) == AccessCache.Role.OWNER;
+    }
+
+    /**
+     * Resolve the user's strongest role on a notebook (NONE if it doesn't exist).
+     * Served from the access cache when possible.
+     */
+    public AccessCache.Role getRole(int userId, int notebookId) {
+        AccessCache.Role cached = accessCache.get(userId, notebookId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadToken = accessCache.beginLoad(notebookId);
+        String sql = "SELECT n.owner_id, n.visibility, nc.role FROM Notebooks n " +
+                "LEFT JOIN NotebookCollaborators nc ON n.notebook_id = nc.notebook_id AND nc.user_id = ? " +
+                "WHERE n.notebook_id = ?";
 
         try (Connection conn = DatabaseConfig.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setInt(1, notebookId);
-            stmt.setInt(2, userId);
-            stmt.setInt(3, userId);
+            stmt.setInt(1, userId);
+            stmt.setInt(2, notebookId);
 
             ResultSet rs = stmt.executeQuery();
-            return rs.next();
+            AccessCache.Role role = AccessCache.Role.NONE;
+            if (rs.next()) {
+                role = AccessCache.Role.of(userId, rs.getInt("owner_id"), rs.getString("visibility"), rs.getString("role"));
+            }
+            accessCache.put(userId, notebookId, role, loadToken);
+            return role;
 
         } catch (SQLException e) {
+            // Deny without caching the failure
             e.printStackTrace();
-            return false;
+            return AccessCache.Role.NONE;
         }
     }
 
+    public static Map<String, Object> accessCacheStats() {
+        return accessCache.stats();
+    }
+
+    public static Map<String, Object> accessIndexStats() {
+        return accessIndex.stats();
+    }
+
     /**
-     * Check if a user has edit permissions (Owner or Editor)
+     * Test for the notebooks the user can read (public, owned, shared), or null on a database error
      */
-    public boolean isUserEditor(int userId, int notebookId) {
-        String sql = "SELECT 1 FROM Notebooks n " +
-                "LEFT JOIN NotebookCollaborators nc ON n.notebook_id = nc.notebook_id " +
-                "WHERE n.notebook_id = ? AND " +
-                "(n.owner_id = ? OR (nc.user_id = ? AND nc.role = 'Editor'))";
+    public IntPredicate getAccessibleNotebookIds(int userId) {
+        AccessIndex.UserNotebooks mine = getUserNotebooks(userId);
+        IntSet publicIds = getPublicNotebookIds();
+        if (mine == null || publicIds == null) {
+            return null;
+        }
+        return mine.readableWith(publicIds);
+    }
+
+    /**
+     * Ids of the notebooks the user owns or collaborates on, or null on a database error
+     */
+    public IntSet getMemberNotebookIds(int userId) {
+        AccessIndex.UserNotebooks mine = getUserNotebooks(userId);
+        return mine == null ? null : mine.all();
+    }
+
+    /**
+     * The user's owned and shared notebook ids, loaded once and then kept current in memory
+     */
+    private AccessIndex.UserNotebooks getUserNotebooks(int userId) {
+        AccessIndex.UserNotebooks cached = accessIndex.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadToken = accessIndex.beginLoad();
+        String sql = "SELECT notebook_id, 'Owner' AS role FROM Notebooks WHERE owner_id = ? " +
+                "UNION ALL " +
+                "SELECT notebook_id, role::text FROM NotebookCollaborators WHERE user_id = ?";
 
         try (Connection conn = DatabaseConfig.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setInt(1, notebookId);
+            stmt.setInt(1, userId);
             stmt.setInt(2, userId);
-            stmt.setInt(3, userId);
 
             ResultSet rs = stmt.executeQuery();
-            return rs.next();
+            IntSet owned = IntSet.EMPTY;
+            IntSet editor = IntSet.EMPTY;
+            IntSet viewer = IntSet.EMPTY;
+            while (rs.next()) {
+                int notebookId = rs.getInt("notebook_id");
+                switch (rs.getString("role")) {
+                    case "Owner" -> owned = owned.with(notebookId);
+                    case "Editor" -> editor = editor.with(notebookId);
+                    default -> viewer = viewer.with(notebookId);
+                }
+            }
+            return accessIndex.install(userId, new AccessIndex.UserNotebooks(owned, editor, viewer), loadToken);
 
         } catch (SQLException e) {
             e.printStackTrace();
-            return false;
+            return null;
         }
     }
 
-    /**
-     * Check if user is owner
-     */
-    public boolean isOwner(int userId, int notebookId) {
-        String sql = "SELECT 1 FROM Notebooks WHERE notebook_id = ? AND owner_id = ?";
+    private IntSet getPublicNotebookIds() {
+        IntSet cached = accessIndex.getPublic();
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadToken = accessIndex.beginLoad();
+        String sql = "SELECT notebook_id FROM Notebooks WHERE visibility = 'Public'";
+
         try (Connection conn = DatabaseConfig.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, notebookId);
-            stmt.setInt(2, userId);
+
             ResultSet rs = stmt.executeQuery();
-            return rs.next();
+            List<Integer> ids = new ArrayList<>();
+            while (rs.next()) {
+                ids.add(rs.getInt("notebook_id"));
+            }
+            return accessIndex.installPublic(IntSet.of(ids.stream().mapToInt(Integer::intValue).toArray()), loadToken);
+
         } catch (SQLException e) {
             e.printStackTrace();
-            return false;
+            return null;
         }
     }
 
@@ -94,7 +217,18 @@ public class NotebookDAO {
             stmt.setString(4, visibility);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
-                return rs.getInt("notebook_id");
+                int notebookId = rs.getInt("notebook_id");
+                // Someone may have probed this id before it existed
+                accessCache.invalidateNotebook(notebookId);
+                accessIndex.notebookCreated(notebookId, ownerId, "Public".equals(visibility));
+                if ("Public".equals(visibility)) {
+                    searchCache.invalidatePublic();
+                } else {
+                    searchCache.invalidateUser(ownerId);
+                }
+                SearchIndex.notebookSaved(notebookId, title, courseName);
+                NotebookSuggestions.notebookSaved(notebookId, title, courseName, "Public".equals(visibility));
+                return notebookId;
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -103,14 +237,16 @@ public class NotebookDAO {
     }
 
     public Notebook getNotebookById(int notebookId) {
-        String sql = "SELECT n.*, u.name as owner_name, 'Owner' as user_role " +
-                "FROM Notebooks n JOIN Users u ON n.owner_id = u.user_id WHERE n.notebook_id = ?";
+        String sql = NOTEBOOK_SELECT + ", 'Owner' as user_role " +
+                "FROM Notebooks n " + OWNER_JOIN + "WHERE n.notebook_id = ?";
         try (Connection conn = DatabaseConfig.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, notebookId);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
-                return mapResultSetToNotebook(rs);
+                Notebook notebook = mapResultSetToNotebook(rs);
+                fillOwnerNames(List.of(notebook));
+                return notebook;
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -124,6 +260,55 @@ public class NotebookDAO {
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, notebookId);
             int rows = stmt.executeUpdate();
+            accessCache.invalidateNotebook(notebookId);
+            accessIndex.notebookDeleted(notebookId);
+            searchCache.invalidateAll();
+            HierarchyResolver.notebookDeleted(notebookId);
+            SearchIndex.notebookDeleted(notebookId);
+            NotebookSuggestions.notebookDeleted(notebookId);
+            return rows > 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Change a notebook's visibility ("Public" or "Private")
+     */
+    public boolean updateVisibility(int notebookId, String visibility) {
+        String sql = "UPDATE Notebooks SET visibility = ?::visibility_type WHERE notebook_id = ?";
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, visibility);
+            stmt.setInt(2, notebookId);
+            int rows = stmt.executeUpdate();
+            accessCache.invalidateNotebook(notebookId);
+            accessIndex.visibilityChanged(notebookId, "Public".equals(visibility));
+            searchCache.invalidateAll();
+            NotebookSuggestions.visibilityChanged(notebookId, "Public".equals(visibility));
+            return rows > 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Archive this notebook's chat messages older than {@code days}; null falls back
+     * to the global MESSAGE_RETENTION_MONTHS cutoff
+     */
+    public boolean setMessageRetentionDays(int notebookId, Integer days) {
+        String sql = "UPDATE Notebooks SET message_retention_days = ? WHERE notebook_id = ?";
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            if (days != null) {
+                stmt.setInt(1, days);
+            } else {
+                stmt.setNull(1, Types.INTEGER);
+            }
+            stmt.setInt(2, notebookId);
+            int rows = stmt.executeUpdate();
             return rows > 0;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -137,74 +322,215 @@ public class NotebookDAO {
     public List<Notebook> getDashboardNotebooks(int userId) {
         List<Notebook> notebooks = new ArrayList<>();
 
-        // Union query to get both owned and shared notebooks
-        String sql = "SELECT n.*, u.name as owner_name, 'Owner' as user_role " +
-                "FROM Notebooks n " +
-                "JOIN Users u ON n.owner_id = u.user_id " +
-                "WHERE n.owner_id = ? " +
-                "UNION " +
-                "SELECT n.*, u.name as owner_name, nc.role::text as user_role " +
-                "FROM Notebooks n " +
-                "JOIN Users u ON n.owner_id = u.user_id " +
-                "JOIN NotebookCollaborators nc ON n.notebook_id = nc.notebook_id " +
-                "WHERE nc.user_id = ? " +
-                "ORDER BY updated_at DESC";
+        AccessIndex.UserNotebooks mine = getUserNotebooks(userId);
+        if (mine == null) {
+            return notebooks;
+        }
+        IntSet ids = mine.all();
+        if (ids.isEmpty()) {
+            return notebooks;
+        }
+
+        // Owned and shared ids come from the index; roles are filled in from it too
+        String sql = NOTEBOOK_SELECT + ", NULL::text as user_role " +
+                "FROM Notebooks n " + OWNER_JOIN +
+                "WHERE n.notebook_id = ANY(?) " +
+                "ORDER BY n.updated_at DESC";
 
         try (Connection conn = DatabaseConfig.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setInt(1, userId);
-            stmt.setInt(2, userId);
+            stmt.setArray(1, conn.createArrayOf("integer", ids.toBoxedArray()));
 
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                notebooks.add(mapResultSetToNotebook(rs));
+                Notebook nb = mapResultSetToNotebook(rs);
+                nb.setUserRole(mine.roleOf(nb.getNotebookId()));
+                notebooks.add(nb);
             }
 
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        fillOwnerNames(notebooks);
         return notebooks;
     }
 
     /**
-     * Search notebooks by title or course name
-     * Returns public notebooks OR private notebooks the user has access to
+     * Receives search results in rank order
      */
-    public List<Notebook> searchNotebooks(String query, int userId) {
-        List<Notebook> notebooks = new ArrayList<>();
-        String searchQuery = "%" + query + "%";
-
-        String sql = "SELECT DISTINCT n.*, u.name as owner_name, " +
-                "CASE WHEN n.owner_id = ? THEN 'Owner' " +
-                "     WHEN nc.user_id = ? THEN nc.role::text " +
-                "     ELSE 'Viewer' END as user_role " +
-                "FROM Notebooks n " +
-                "JOIN Users u ON n.owner_id = u.user_id " +
-                "LEFT JOIN NotebookCollaborators nc ON n.notebook_id = nc.notebook_id " +
-                "WHERE (n.title ILIKE ? OR n.course_name ILIKE ?) " +
-                "AND (n.visibility = 'Public' OR n.owner_id = ? OR nc.user_id = ?) " +
-                "ORDER BY n.updated_at DESC";
+    @FunctionalInterface
+    public interface SearchResultSink {
+        void accept(Notebook notebook, float rank) throws IOException;
+    }
+
+    /**
+     * Search notebooks by title or course name (word prefixes, via the search_vector GIN index):
+     * public notebooks OR private notebooks the user has access to, best ts_rank first, one
+     * keyset page at a time. Up to {@code limit + 1} rows are passed to the sink; the extra
+     * one only tells the caller whether another page exists.
+     *
+     * With the search cache on, the public page and the user's private matches are cached
+     * separately and merged here. Without it, rows go to the sink as they are read.
+     *
+     * @param afterRank rank of the last row of the previous page, or null for the first page
+     * @param afterId   notebook id of that row
+     * @return false on a database error
+     */
+    public boolean searchNotebooks(String query, int userId, Float afterRank, int afterId, int limit,
+            SearchResultSink sink) throws IOException {
+        String tsQuery = SearchDAO.prefixQuery(query);
+        if (tsQuery == null) {
+            return true;
+        }
+
+        AccessIndex.UserNotebooks mine = getUserNotebooks(userId);
+        if (mine == null) {
+            return false;
+        }
+
+        if (!SEARCH_CACHE_ENABLED) {
+            return querySearch(tsQuery, SearchScope.VISIBLE, mine.all(), afterRank, afterId, limit + 1,
+                    (nb, rank) -> {
+                        String role = mine.roleOf(nb.getNotebookId());
+                        nb.setUserRole(role != null ? role : "Viewer");
+                        sink.accept(nb, rank);
+                    });
+        }
+
+        long loadToken = searchCache.beginLoad();
+        List<SearchResultCache.Row> publicRows = searchCache.getPublicPage(tsQuery, limit, afterRank, afterId);
+        if (publicRows == null) {
+            List<SearchResultCache.Row> loaded = new ArrayList<>();
+            if (!querySearch(tsQuery, SearchScope.PUBLIC, null, afterRank, afterId, limit + 1,
+                    (nb, rank) -> loaded.add(new SearchResultCache.Row(nb, rank)))) {
+                return false;
+            }
+            searchCache.putPublicPage(tsQuery, limit, afterRank, afterId, loaded, loadToken);
+            publicRows = loaded;
+        }
+
+        List<SearchResultCache.Row> privateRows = List.of();
+        if (!mine.all().isEmpty()) {
+            privateRows = searchCache.getOverlay(userId, tsQuery);
+            if (privateRows == null) {
+                List<SearchResultCache.Row> loaded = new ArrayList<>();
+                if (!querySearch(tsQuery, SearchScope.PRIVATE_MEMBER, mine.all(), null, 0, null,
+                        (nb, rank) -> loaded.add(new SearchResultCache.Row(nb, rank)))) {
+                    return false;
+                }
+                searchCache.putOverlay(userId, tsQuery, loaded, loadToken);
+                privateRows = loaded;
+            }
+        }
+
+        // Both lists are in (rank, notebook_id) descending order; the overlay still needs the cursor applied
+        int p = 0;
+        int o = 0;
+        while (o < privateRows.size() && afterRank != null && !isAfter(privateRows.get(o), afterRank, afterId)) {
+            o++;
+        }
+        for (int sent = 0; sent <= limit && (p < publicRows.size() || o < privateRows.size()); sent++) {
+            SearchResultCache.Row row = o == privateRows.size()
+                    || (p < publicRows.size() && comesFirst(publicRows.get(p), privateRows.get(o)))
+                    ? publicRows.get(p++) : privateRows.get(o++);
+            // Cached notebooks are shared; the role is per user
+            Notebook nb = copyNotebook(row.getNotebook());
+            String role = mine.roleOf(nb.getNotebookId());
+            nb.setUserRole(role != null ? role : "Viewer");
+            sink.accept(nb, row.getRank());
+        }
+        return true;
+    }
+
+    public static Map<String, Object> searchCacheStats() {
+        return searchCache.stats();
+    }
+
+    private enum SearchScope {
+        // Public, or among the given ids
+        VISIBLE,
+        PUBLIC,
+        // Not public and among the given ids
+        PRIVATE_MEMBER
+    }
+
+    /**
+     * Run the ranked notebook search, passing rows to the sink as they are read
+     *
+     * @param limit row limit, or null for all matches
+     */
+    private boolean querySearch(String tsQuery, SearchScope scope, IntSet ids, Float afterRank, int afterId,
+            Integer limit, SearchResultSink sink) throws IOException {
+        String scopeFilter = switch (scope) {
+            case VISIBLE -> "AND (n.visibility = 'Public' OR n.notebook_id = ANY(?))";
+            case PUBLIC -> "AND n.visibility = 'Public'";
+            case PRIVATE_MEMBER -> "AND n.visibility <> 'Public' AND n.notebook_id = ANY(?)";
+        };
+        // Private notebooks are matched against the user's ids instead of joining every collaborator row.
+        // Owner names are joined rather than filled afterwards, so rows can be written out as they arrive.
+        String sql = "SELECT * FROM (" +
+                "SELECT " + NOTEBOOK_COLUMNS + ", u.name as owner_name, NULL::text as user_role, " +
+                "ts_rank(n.search_vector, q.query) AS rank " +
+                "FROM Notebooks n JOIN Users u ON n.owner_id = u.user_id, " + SearchDAO.PREFIX_TSQUERY + " AS q " +
+                "WHERE n.search_vector @@ q.query " + scopeFilter +
+                ") r " +
+                (afterRank != null ? "WHERE (r.rank, r.notebook_id) < (?::real, ?) " : "") +
+                "ORDER BY r.rank DESC, r.notebook_id DESC" +
+                (limit != null ? " LIMIT ?" : "");
 
         try (Connection conn = DatabaseConfig.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setInt(1, userId);
-            stmt.setInt(2, userId);
-            stmt.setString(3, searchQuery);
-            stmt.setString(4, searchQuery);
-            stmt.setInt(5, userId);
-            stmt.setInt(6, userId);
+            int i = 1;
+            stmt.setString(i++, tsQuery);
+            if (scope != SearchScope.PUBLIC) {
+                stmt.setArray(i++, conn.createArrayOf("integer", ids.toBoxedArray()));
+            }
+            if (afterRank != null) {
+                stmt.setFloat(i++, afterRank);
+                stmt.setInt(i++, afterId);
+            }
+            if (limit != null) {
+                stmt.setInt(i, limit);
+            }
 
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                notebooks.add(mapResultSetToNotebook(rs));
+                sink.accept(mapResultSetToNotebook(rs), rs.getFloat("rank"));
             }
+            return true;
 
         } catch (SQLException e) {
             e.printStackTrace();
+            return false;
         }
-        return notebooks;
+    }
+
+    /**
+     * Whether the row sorts after the cursor in (rank, notebook_id) descending order
+     */
+    private static boolean isAfter(SearchResultCache.Row row, float afterRank, int afterId) {
+        return row.getRank() < afterRank
+                || (row.getRank() == afterRank && row.getNotebook().getNotebookId() < afterId);
+    }
+
+    private static boolean comesFirst(SearchResultCache.Row a, SearchResultCache.Row b) {
+        return isAfter(b, a.getRank(), a.getNotebook().getNotebookId());
+    }
+
+    private static Notebook copyNotebook(Notebook source) {
+        Notebook nb = new Notebook();
+        nb.setNotebookId(source.getNotebookId());
+        nb.setTitle(source.getTitle());
+        nb.setOwnerId(source.getOwnerId());
+        nb.setOwnerName(source.getOwnerName());
+        nb.setCourseName(source.getCourseName());
+        nb.setVisibility(source.getVisibility());
+        nb.setCreatedAt(source.getCreatedAt());
+        nb.setUpdatedAt(source.getUpdatedAt());
+        nb.setUserRole(source.getUserRole());
+        return nb;
     }
 
     /**
@@ -247,6 +573,12 @@ public class NotebookDAO {
             stmt.setString(3, role); // "Editor" or "Viewer"
 
             int rows = stmt.executeUpdate();
+            accessCache.invalidate(collaboratorId, notebookId);
+            if (rows > 0) {
+                accessIndex.collaboratorAdded(notebookId, collaboratorId, role);
+                // Sharing only moves the notebook into this user's overlay; public pages stay cached
+                searchCache.invalidateUser(collaboratorId);
+            }
             return rows > 0;
 
         } catch (SQLException e) {
@@ -285,6 +617,9 @@ public class NotebookDAO {
             stmt.setInt(1, notebookId);
             stmt.setInt(2, userId);
             int rows = stmt.executeUpdate();
+            accessCache.invalidate(userId, notebookId);
+            accessIndex.collaboratorRemoved(notebookId, userId);
+            searchCache.invalidateUser(userId);
             return rows > 0;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -292,6 +627,23 @@ public class NotebookDAO {
         }
     }
 
+    /**
+     * Set owner names from the profile cache when the query skipped the Users join
+     */
+    private void fillOwnerNames(List<Notebook> notebooks) {
+        if (!UserDAO.NAMES_FROM_CACHE || notebooks.isEmpty()) {
+            return;
+        }
+        Set<Integer> ownerIds = new HashSet<>();
+        for (Notebook notebook : notebooks) {
+            ownerIds.add(notebook.getOwnerId());
+        }
+        Map<Integer, String> names = userDAO.getUserNames(ownerIds);
+        for (Notebook notebook : notebooks) {
+            notebook.setOwnerName(names.get(notebook.getOwnerId()));
+        }
+    }
+
     // Helper to map ResultSet to Notebook object
     private Notebook mapResultSetToNotebook(ResultSet rs) throws SQLException {
         Notebook nb = new Notebook();
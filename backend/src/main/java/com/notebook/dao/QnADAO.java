@@ -6,11 +6,15 @@ import com.notebook.models.Question;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class QnADAO {
 
+    private final UserDAO userDAO = new UserDAO();
+
     /**
      * Get all questions and their answers for a specific note
      * Optimized to fetch everything in a single query to avoid N+1 problem
@@ -19,16 +23,25 @@ public class QnADAO {
         Map<Integer, Question> questionMap = new HashMap<>();
         List<Question> questions = new ArrayList<>();
 
-        String sql = "SELECT q.question_id, q.note_id, q.question_text, q.timestamp as q_time, " +
-                "qu.user_id as q_user_id, qu.name as q_user_name, " +
-                "a.answer_id, a.answer_text, a.timestamp as a_time, " +
-                "au.user_id as a_user_id, au.name as a_user_name " +
-                "FROM Questions q " +
-                "JOIN Users qu ON q.user_id = qu.user_id " +
-                "LEFT JOIN Answers a ON q.question_id = a.question_id " +
-                "LEFT JOIN Users au ON a.user_id = au.user_id " +
-                "WHERE q.note_id = ? " +
-                "ORDER BY q.timestamp DESC, a.timestamp ASC";
+        String sql = UserDAO.NAMES_FROM_CACHE
+                ? "SELECT q.question_id, q.note_id, q.question_text, q.timestamp as q_time, " +
+                        "q.user_id as q_user_id, NULL::text as q_user_name, " +
+                        "a.answer_id, a.answer_text, a.timestamp as a_time, " +
+                        "a.user_id as a_user_id, NULL::text as a_user_name " +
+                        "FROM Questions q " +
+                        "LEFT JOIN Answers a ON q.question_id = a.question_id " +
+                        "WHERE q.note_id = ? " +
+                        "ORDER BY q.timestamp DESC, a.timestamp ASC"
+                : "SELECT q.question_id, q.note_id, q.question_text, q.timestamp as q_time, " +
+                        "qu.user_id as q_user_id, qu.name as q_user_name, " +
+                        "a.answer_id, a.answer_text, a.timestamp as a_time, " +
+                        "au.user_id as a_user_id, au.name as a_user_name " +
+                        "FROM Questions q " +
+                        "JOIN Users qu ON q.user_id = qu.user_id " +
+                        "LEFT JOIN Answers a ON q.question_id = a.question_id " +
+                        "LEFT JOIN Users au ON a.user_id = au.user_id " +
+                        "WHERE q.note_id = ? " +
+                        "ORDER BY q.timestamp DESC, a.timestamp ASC";
 
         try (Connection conn = DatabaseConfig.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -72,9 +85,34 @@ public class QnADAO {
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        fillUserNames(questions);
         return questions;
     }
 
+    /**
+     * Set question and answer author names from the profile cache when the
+     * query skipped the Users joins
+     */
+    private void fillUserNames(List<Question> questions) {
+        if (!UserDAO.NAMES_FROM_CACHE || questions.isEmpty()) {
+            return;
+        }
+        Set<Integer> userIds = new HashSet<>();
+        for (Question question : questions) {
+            userIds.add(question.getUserId());
+            for (Answer answer : question.getAnswers()) {
+                userIds.add(answer.getUserId());
+            }
+        }
+        Map<Integer, String> names = userDAO.getUserNames(userIds);
+        for (Question question : questions) {
+            question.setUserName(names.get(question.getUserId()));
+            for (Answer answer : question.getAnswers()) {
+                answer.setUserName(names.get(answer.getUserId()));
+            }
+        }
+    }
+
     /**
      * Post a new question
      */
@@ -116,19 +154,4 @@ public class QnADAO {
             return false;
         }
     }
-
-    public Integer getNoteIdForQuestion(int questionId) {
-        String sql = "SELECT note_id FROM Questions WHERE question_id = ?";
-        try (Connection conn = DatabaseConfig.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, questionId);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt("note_id");
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return null;
-    }
 }
@@ -0,0 +1,75 @@
+package com.notebook.dao;
+
+import com.notebook.config.DatabaseConfig;
+import java.sql.*;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Persistence for logged-out tokens, so revocations survive a restart.
+ * Requests never read this table; JwtUtil checks an in-memory copy.
+ */
+public class RevokedTokenDAO {
+
+    /**
+     * Record a revoked token id until its expiry
+     */
+    public boolean revoke(String jti, int userId, long expiresAt) {
+        String sql = "INSERT INTO RevokedTokens (jti, user_id, expires_at) VALUES (?, ?, ?) " +
+                "ON CONFLICT (jti) DO NOTHING";
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, jti);
+            stmt.setInt(2, userId);
+            stmt.setTimestamp(3, new Timestamp(expiresAt));
+            stmt.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Stream every revocation that hasn't expired yet to the consumer
+     * (jti, expiry in epoch milliseconds)
+     *
+     * @return number of rows loaded, or -1 on a database error
+     */
+    public int loadActive(ObjLongConsumer<String> consumer) {
+        String sql = "SELECT jti, expires_at FROM RevokedTokens WHERE expires_at > CURRENT_TIMESTAMP";
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            // Cursor-based fetch needs a transaction in PostgreSQL
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setFetchSize(10000);
+                ResultSet rs = stmt.executeQuery();
+                int count = 0;
+                while (rs.next()) {
+                    consumer.accept(rs.getString("jti"), rs.getTimestamp("expires_at").getTime());
+                    count++;
+                }
+                conn.commit();
+                return count;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Delete rows whose tokens have expired
+     */
+    public int deleteExpired() {
+        String sql = "DELETE FROM RevokedTokens WHERE expires_at <= CURRENT_TIMESTAMP";
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            return stmt.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+}
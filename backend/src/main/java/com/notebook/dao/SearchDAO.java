@@ -0,0 +1,214 @@
+package com.notebook.dao;
+
+import com.notebook.config.DatabaseConfig;
+import com.notebook.dto.SearchResult;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Full-text search over notebook titles/course names and page content,
+ * backed by the GIN-indexed search_vector columns.
+ */
+public class SearchDAO {
+
+    // Match markers; the same characters are stripped from the text before ts_headline,
+    // so any left in the headline were put there by it
+    private static final String MATCH_START = "\u0002";
+    private static final String MATCH_END = "\u0003";
+    private static final String HEADLINE_OPTIONS = "StartSel=" + MATCH_START + ", StopSel=" + MATCH_END +
+            ", MaxWords=30, MinWords=10, MaxFragments=2, FragmentDelimiter=\" … \"";
+
+    /**
+     * FROM item / CTE body yielding the tsquery ("query") for one {@link #prefixQuery}
+     * parameter. The english config drops stop words, so input made only of them
+     * ("the", "in", "a") would parse to an empty query that matches nothing; that
+     * case is parsed with the simple config instead, as plain prefixes ("the" → "theori").
+     */
+    public static final String PREFIX_TSQUERY = "(SELECT CASE WHEN numnode(to_tsquery('english', t.input)) = 0 " +
+            "THEN to_tsquery('simple', t.input) ELSE to_tsquery('english', t.input) END AS query " +
+            "FROM (SELECT ?::text AS input) t)";
+
+    /**
+     * Turn user input into a prefix tsquery ("lin alg" → "lin:* & alg:*"), so
+     * partial words still match while typing. Returns null if nothing searchable is left.
+     * Each word has to start a word in the text: "101" finds "CS 101" but not "CS101".
+     */
+    public static String prefixQuery(String input) {
+        StringBuilder query = new StringBuilder();
+        for (String word : input.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (query.length() > 0) {
+                query.append(" & ");
+            }
+            query.append(word.toLowerCase(Locale.ROOT)).append(":*");
+        }
+        return query.length() == 0 ? null : query.toString();
+    }
+
+    /**
+     * Best matches the user may read, notebooks and pages together, by ts_rank.
+     * Access is checked in the same statement (public, owned or shared), and
+     * snippets are only built for the rows that are returned.
+     *
+     * @return results, empty if the query has no searchable words, or null on a database error
+     */
+    public List<SearchResult> search(String input, int userId, int limit) {
+        List<SearchResult> results = new ArrayList<>();
+        String tsQuery = prefixQuery(input);
+        if (tsQuery == null) {
+            return results;
+        }
+
+        String sql = "WITH q AS " + PREFIX_TSQUERY + ", " +
+                "hits AS (" +
+                "SELECT n.notebook_id, NULL::integer AS note_id, ts_rank(n.search_vector, q.query) AS rank " +
+                "FROM Notebooks n, q WHERE n.search_vector @@ q.query " +
+                "UNION ALL " +
+                // Normalized by log(length) so long pages don't win on size alone
+                "SELECT nt.notebook_id, nt.note_id, ts_rank(nt.search_vector, q.query, 1) " +
+                "FROM Notes nt, q WHERE nt.search_vector @@ q.query" +
+                "), visible AS (" +
+                "SELECT h.notebook_id, h.note_id, h.rank, nb.title, nb.course_name FROM hits h " +
+                "JOIN Notebooks nb ON nb.notebook_id = h.notebook_id " +
+                "WHERE nb.visibility = 'Public' OR nb.owner_id = ? OR EXISTS (" +
+                "SELECT 1 FROM NotebookCollaborators nc WHERE nc.notebook_id = nb.notebook_id AND nc.user_id = ?) " +
+                "ORDER BY h.rank DESC LIMIT ?" +
+                ") SELECT v.*, ts_headline('english', translate(" +
+                "CASE WHEN v.note_id IS NULL THEN concat_ws(' — ', v.title, v.course_name) ELSE nt.content END, " +
+                "chr(2) || chr(3), ''), q.query, ?) AS snippet " +
+                "FROM visible v CROSS JOIN q LEFT JOIN Notes nt ON nt.note_id = v.note_id " +
+                "ORDER BY v.rank DESC";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, tsQuery);
+            stmt.setInt(2, userId);
+            stmt.setInt(3, userId);
+            stmt.setInt(4, limit);
+            stmt.setString(5, HEADLINE_OPTIONS);
+
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                int noteId = rs.getInt("note_id");
+                boolean isNote = !rs.wasNull();
+                results.add(new SearchResult(
+                        isNote ? "note" : "notebook",
+                        rs.getInt("notebook_id"),
+                        isNote ? noteId : null,
+                        rs.getString("title"),
+                        rs.getString("course_name"),
+                        highlight(rs.getString("snippet")),
+                        rs.getDouble("rank")));
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return results;
+    }
+
+    /**
+     * Receives scanned pages
+     */
+    @FunctionalInterface
+    public interface NoteSink {
+        void accept(int noteId, int notebookId, String content);
+    }
+
+    /**
+     * Receives scanned notebooks; updatedAt is in epoch milliseconds
+     */
+    @FunctionalInterface
+    public interface NotebookSink {
+        void accept(int notebookId, String title, String courseName, boolean isPublic, long updatedAt);
+    }
+
+    /**
+     * Stream every page to the sink without holding the table in memory
+     *
+     * @return number of rows scanned, or -1 on a database error
+     */
+    public int scanNotes(NoteSink sink) {
+        String sql = "SELECT note_id, notebook_id, content FROM Notes";
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            // Cursor-based fetch needs a transaction in PostgreSQL
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setFetchSize(500);
+                ResultSet rs = stmt.executeQuery();
+                int count = 0;
+                while (rs.next()) {
+                    sink.accept(rs.getInt("note_id"), rs.getInt("notebook_id"), rs.getString("content"));
+                    count++;
+                }
+                conn.commit();
+                return count;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Stream every notebook's title, course name, visibility and last update to the sink
+     *
+     * @return number of rows scanned, or -1 on a database error
+     */
+    public int scanNotebooks(NotebookSink sink) {
+        String sql = "SELECT notebook_id, title, course_name, visibility = 'Public' AS is_public, updated_at FROM Notebooks";
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setFetchSize(5000);
+                ResultSet rs = stmt.executeQuery();
+                int count = 0;
+                while (rs.next()) {
+                    Timestamp updatedAt = rs.getTimestamp("updated_at");
+                    sink.accept(rs.getInt("notebook_id"), rs.getString("title"), rs.getString("course_name"),
+                            rs.getBoolean("is_public"), updatedAt == null ? 0 : updatedAt.getTime());
+                    count++;
+                }
+                conn.commit();
+                return count;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Escape the headline for HTML and turn the match markers into mark tags
+     */
+    private static String highlight(String headline) {
+        if (headline == null) {
+            return null;
+        }
+        StringBuilder html = new StringBuilder(headline.length() + 32);
+        for (int i = 0; i < headline.length(); i++) {
+            char c = headline.charAt(i);
+            switch (c) {
+                case '&' -> html.append("&amp;");
+                case '<' -> html.append("&lt;");
+                case '>' -> html.append("&gt;");
+                case '"' -> html.append("&quot;");
+                case '\'' -> html.append("&#39;");
+                case '\u0002' -> html.append("<mark>");
+                case '\u0003' -> html.append("</mark>");
+                default -> html.append(c);
+            }
+        }
+        return html.toString();
+    }
+}
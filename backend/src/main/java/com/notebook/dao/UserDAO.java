@@ -1,16 +1,80 @@
 package com.notebook.dao;
 
+import com.notebook.cache.BloomFilter;
+import com.notebook.cache.UserProfileCache;
+import com.notebook.config.AppConfig;
 import com.notebook.config.DatabaseConfig;
+import com.notebook.dto.Registration;
 import com.notebook.models.User;
+import com.notebook.util.PasswordHasher;
 import com.notebook.util.PasswordUtil;
 import java.sql.*;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class UserDAO {
 
     /**
-     * Authenticate a user by email and password using BCrypt
+     * When true, notebook, message and QnA queries skip the Users join and
+     * fill display names from the profile cache with {@link #getUserNames}
      */
-    public User loginUser(String email, String password) {
+    public static final boolean NAMES_FROM_CACHE = AppConfig.getBoolean("USER_NAMES_FROM_CACHE", true);
+
+    private static final UserProfileCache profiles = new UserProfileCache(
+            AppConfig.getInt("USER_CACHE_MAX_ENTRIES", 10000),
+            AppConfig.getLong("USER_CACHE_TTL_SECONDS", 300) * 1000);
+
+    private static final long EMAIL_FILTER_CAPACITY = AppConfig.getLong("EMAIL_FILTER_CAPACITY", 100000);
+    private static final double EMAIL_FILTER_FALSE_POSITIVE_RATE = 0.01;
+
+    // Registered emails (lower case); null until loaded, in which case every check queries
+    private static volatile BloomFilter emailFilter;
+    // Filter being rebuilt; inserts go to both so none committed during the rebuild are missed
+    private static volatile BloomFilter pendingEmailFilter;
+    private static final AtomicBoolean rebuildingEmailFilter = new AtomicBoolean();
+    private static final AtomicLong emailChecksSkipped = new AtomicLong();
+    private static final AtomicLong emailChecksQueried = new AtomicLong();
+
+    /**
+     * After a successful login, upgrade a hash made with another cost factor to
+     * this node's cost. Runs on the BCrypt pool; if the pool is busy it simply
+     * waits for a later login.
+     */
+    public void rehashIfNeeded(int userId, String password, String currentHash) {
+        if (!PasswordUtil.needsRehash(currentHash)) {
+            return;
+        }
+        PasswordHasher.hash(password).thenAccept(newHash -> updatePasswordHash(userId, currentHash, newHash));
+    }
+
+    /**
+     * Replace a password hash, only if it is still the one that was verified
+     */
+    public boolean updatePasswordHash(int userId, String expectedHash, String newHash) {
+        String sql = "UPDATE Users SET password_hash = ? WHERE user_id = ? AND password_hash = ?";
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, newHash);
+            stmt.setInt(2, userId);
+            stmt.setString(3, expectedHash);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Load a user together with the stored password hash, for verification
+     * outside the connection (see PasswordHasher)
+     */
+    public User getUserWithPasswordHash(String email) {
         String sql = "SELECT * FROM Users WHERE email = ?";
 
         try (Connection conn = DatabaseConfig.getConnection();
@@ -20,16 +84,11 @@ public class UserDAO {
             ResultSet rs = stmt.executeQuery();
 
             if (rs.next()) {
-                String storedHash = rs.getString("password_hash");
-
-                if (storedHash == null || !PasswordUtil.checkPassword(password, storedHash)) {
-                    return null;
-                }
-
                 User user = new User();
                 user.setUserId(rs.getInt("user_id"));
                 user.setName(rs.getString("name"));
                 user.setEmail(rs.getString("email"));
+                user.setPasswordHash(rs.getString("password_hash"));
                 user.setCreatedAt(rs.getTimestamp("created_at"));
                 return user;
             }
@@ -40,9 +99,18 @@ public class UserDAO {
     }
 
     /**
-     * Check if an email is already registered
+     * Check if an email is already registered. Emails the filter has never
+     * seen are answered without a query; this is only an early exit, the
+     * insert in registerUser is what actually rejects duplicates.
      */
     public boolean emailExists(String email) {
+        BloomFilter filter = emailFilter;
+        if (filter != null && !filter.mightContain(email.toLowerCase())) {
+            emailChecksSkipped.incrementAndGet();
+            return false;
+        }
+        emailChecksQueried.incrementAndGet();
+
         String sql = "SELECT 1 FROM Users WHERE email = ?";
         try (Connection conn = DatabaseConfig.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -56,10 +124,15 @@ public class UserDAO {
     }
 
     /**
-     * Register a new user with a pre-hashed password
+     * Register a new user with a pre-hashed password. A taken email is
+     * reported by the same statement (no row returned), so concurrent
+     * registrations of one address can't both pass a separate check.
+     *
+     * @return the outcome, or null on a database error
      */
-    public User registerUser(String name, String email, String hashedPassword) {
-        String sql = "INSERT INTO Users (name, email, password_hash) VALUES (?, ?, ?) RETURNING user_id, created_at";
+    public Registration registerUser(String name, String email, String hashedPassword) {
+        String sql = "INSERT INTO Users (name, email, password_hash) VALUES (?, ?, ?) "
+                + "ON CONFLICT (email) DO NOTHING RETURNING user_id, created_at";
 
         try (Connection conn = DatabaseConfig.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -69,40 +142,174 @@ public class UserDAO {
             stmt.setString(3, hashedPassword);
 
             ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                User user = new User();
-                user.setUserId(rs.getInt("user_id"));
-                user.setName(name);
-                user.setEmail(email);
-                user.setCreatedAt(rs.getTimestamp("created_at"));
-                return user;
+            if (!rs.next()) {
+                return Registration.duplicateEmail();
             }
 
+            User user = new User();
+            user.setUserId(rs.getInt("user_id"));
+            user.setName(name);
+            user.setEmail(email);
+            user.setCreatedAt(rs.getTimestamp("created_at"));
+            emailRegistered(email);
+            profiles.put(user.getUserId(), name, email, profiles.beginLoad());
+            return Registration.created(user);
+
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return null;
     }
 
+    private static void emailRegistered(String email) {
+        String key = email.toLowerCase();
+        BloomFilter filter = emailFilter;
+        if (filter != null) {
+            filter.add(key);
+        }
+        BloomFilter pending = pendingEmailFilter;
+        if (pending != null) {
+            pending.add(key);
+        }
+        if (filter != null && filter.isOverCapacity() && !rebuildingEmailFilter.get()) {
+            // Past its capacity the false-positive rate climbs; resize in the background
+            Thread rebuild = new Thread(UserDAO::loadEmailFilter, "email-filter-rebuild");
+            rebuild.setDaemon(true);
+            rebuild.start();
+        }
+    }
+
     /**
-     * Get user by ID
+     * (Re)build the email filter from the Users table, sized for twice the
+     * current count. Runs at startup and whenever the filter fills up; the
+     * old filter keeps answering until the new one is complete.
+     */
+    public static boolean loadEmailFilter() {
+        if (!rebuildingEmailFilter.compareAndSet(false, true)) {
+            return false;
+        }
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            long users = 0;
+            try (Statement stmt = conn.createStatement();
+                    ResultSet rs = stmt.executeQuery("SELECT count(*) FROM Users")) {
+                if (rs.next()) {
+                    users = rs.getLong(1);
+                }
+            }
+
+            BloomFilter fresh = new BloomFilter(Math.max(EMAIL_FILTER_CAPACITY, users * 2),
+                    EMAIL_FILTER_FALSE_POSITIVE_RATE);
+            // Installed before the scan: rows committed after its snapshot arrive through emailRegistered
+            pendingEmailFilter = fresh;
+
+            // Stream the emails instead of materializing them all (needs a transaction in PostgreSQL)
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.setFetchSize(5000);
+                try (ResultSet rs = stmt.executeQuery("SELECT email FROM Users")) {
+                    while (rs.next()) {
+                        fresh.add(rs.getString(1).toLowerCase());
+                    }
+                }
+                conn.commit();
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+            emailFilter = fresh;
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            pendingEmailFilter = null;
+            rebuildingEmailFilter.set(false);
+        }
+    }
+
+    public static Map<String, Object> emailFilterStats() {
+        BloomFilter filter = emailFilter;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loaded", filter != null);
+        stats.put("checksSkipped", emailChecksSkipped.get());
+        stats.put("checksQueried", emailChecksQueried.get());
+        if (filter != null) {
+            stats.putAll(filter.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * Get user by ID (name and email only), from the profile cache when possible
      */
     public User getUserById(int userId) {
-        String sql = "SELECT * FROM Users WHERE user_id = ?";
+        UserProfileCache.Profile cached = profiles.get(userId);
+        if (cached != null) {
+            return new User(cached.getUserId(), cached.getName(), cached.getEmail());
+        }
+
+        long loadToken = profiles.beginLoad();
+        String sql = "SELECT user_id, name, email FROM Users WHERE user_id = ?";
         try (Connection conn = DatabaseConfig.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, userId);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
-                User user = new User();
-                user.setUserId(rs.getInt("user_id"));
-                user.setName(rs.getString("name"));
-                user.setEmail(rs.getString("email"));
-                return user;
+                UserProfileCache.Profile profile = profiles.put(rs.getInt("user_id"),
+                        rs.getString("name"), rs.getString("email"), loadToken);
+                return new User(profile.getUserId(), profile.getName(), profile.getEmail());
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return null;
     }
+
+    /**
+     * Display names for a batch of users: cached ones from memory, the rest
+     * in one query. Unknown ids (and ids missed because of a database error)
+     * are absent from the result.
+     */
+    public Map<Integer, String> getUserNames(Collection<Integer> userIds) {
+        Map<Integer, String> names = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return names;
+        }
+        Map<Integer, UserProfileCache.Profile> cached = profiles.getAll(userIds);
+        Set<Integer> missing = new HashSet<>();
+        for (Integer userId : userIds) {
+            UserProfileCache.Profile profile = cached.get(userId);
+            if (profile != null) {
+                names.put(userId, profile.getName());
+            } else {
+                missing.add(userId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return names;
+        }
+
+        long loadToken = profiles.beginLoad();
+        String sql = "SELECT user_id, name, email FROM Users WHERE user_id = ANY(?)";
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("integer", missing.toArray(new Integer[0])));
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                int userId = rs.getInt("user_id");
+                String name = rs.getString("name");
+                profiles.put(userId, name, rs.getString("email"), loadToken);
+                names.put(userId, name);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return names;
+    }
+
+    public static Map<String, Object> profileCacheStats() {
+        Map<String, Object> stats = profiles.stats();
+        stats.put("namesFromCache", NAMES_FROM_CACHE);
+        return stats;
+    }
 }
@@ -0,0 +1,45 @@
+package com.notebook.dto;
+
+/**
+ * Outcome of a read or write that checks permissions inside the same query.
+ * Lets a servlet tell "doesn't exist" (404) from "not allowed" (403) without
+ * a separate access query.
+ */
+public class Authorized<T> {
+    private final boolean found;
+    private final boolean allowed;
+    private final T value;
+
+    private Authorized(boolean found, boolean allowed, T value) {
+        this.found = found;
+        this.allowed = allowed;
+        this.value = value;
+    }
+
+    public static <T> Authorized<T> notFound() {
+        return new Authorized<>(false, false, null);
+    }
+
+    public static <T> Authorized<T> denied() {
+        return new Authorized<>(true, false, null);
+    }
+
+    public static <T> Authorized<T> of(T value) {
+        return new Authorized<>(true, true, value);
+    }
+
+    public boolean isFound() {
+        return found;
+    }
+
+    public boolean isAllowed() {
+        return allowed;
+    }
+
+    /**
+     * The row read or written; null unless allowed
+     */
+    public T getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,34 @@
+package com.notebook.dto;
+
+import com.notebook.models.Message;
+
+import java.util.List;
+
+/**
+ * One page of chat history, walking backwards from the newest message.
+ * Messages are in ascending order within the page; pass nextCursor as
+ * ?before= to get the page of older messages.
+ */
+public class MessagePage {
+    private final List<Message> messages;
+    private final String nextCursor;
+    private final boolean hasMore;
+
+    public MessagePage(List<Message> messages, String nextCursor) {
+        this.messages = messages;
+        this.nextCursor = nextCursor;
+        this.hasMore = nextCursor != null;
+    }
+
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+}
@@ -0,0 +1,36 @@
+package com.notebook.dto;
+
+/**
+ * One autocomplete entry: a notebook whose title or course name has a word
+ * starting with the typed prefix
+ */
+public class NotebookSuggestion {
+    private final int notebookId;
+    private final String title;
+    private final String courseName;
+    // Epoch milliseconds; more recently updated notebooks are suggested first
+    private final long updatedAt;
+
+    public NotebookSuggestion(int notebookId, String title, String courseName, long updatedAt) {
+        this.notebookId = notebookId;
+        this.title = title;
+        this.courseName = courseName;
+        this.updatedAt = updatedAt;
+    }
+
+    public int getNotebookId() {
+        return notebookId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getCourseName() {
+        return courseName;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+}
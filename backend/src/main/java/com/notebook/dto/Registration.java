@@ -0,0 +1,34 @@
+package com.notebook.dto;
+
+import com.notebook.models.User;
+
+/**
+ * Outcome of a registration insert: the new user, or the email was taken.
+ * Both come from the one INSERT ... ON CONFLICT statement.
+ */
+public class Registration {
+    private final User user;
+
+    private Registration(User user) {
+        this.user = user;
+    }
+
+    public static Registration created(User user) {
+        return new Registration(user);
+    }
+
+    public static Registration duplicateEmail() {
+        return new Registration(null);
+    }
+
+    public boolean isDuplicateEmail() {
+        return user == null;
+    }
+
+    /**
+     * The new user; null if the email was already registered
+     */
+    public User getUser() {
+        return user;
+    }
+}
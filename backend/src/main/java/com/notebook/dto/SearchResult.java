@@ -0,0 +1,60 @@
+package com.notebook.dto;
+
+/**
+ * One hit of a full-text search: a notebook (title/course match) or a page
+ * of one. The snippet is HTML-escaped text with matches wrapped in mark tags.
+ */
+public class SearchResult {
+    private final String type;
+    private final int notebookId;
+    private final Integer noteId;
+    private final String notebookTitle;
+    private final String courseName;
+    private final String snippet;
+    private final double rank;
+
+    public SearchResult(String type, int notebookId, Integer noteId, String notebookTitle,
+            String courseName, String snippet, double rank) {
+        this.type = type;
+        this.notebookId = notebookId;
+        this.noteId = noteId;
+        this.notebookTitle = notebookTitle;
+        this.courseName = courseName;
+        this.snippet = snippet;
+        this.rank = rank;
+    }
+
+    /**
+     * "notebook" or "note"
+     */
+    public String getType() {
+        return type;
+    }
+
+    public int getNotebookId() {
+        return notebookId;
+    }
+
+    /**
+     * Matching page, or null for a notebook hit
+     */
+    public Integer getNoteId() {
+        return noteId;
+    }
+
+    public String getNotebookTitle() {
+        return notebookTitle;
+    }
+
+    public String getCourseName() {
+        return courseName;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public double getRank() {
+        return rank;
+    }
+}
@@ -2,7 +2,6 @@ package com.notebook.filter;
 
 import com.notebook.util.JwtUtil;
 import com.google.gson.Gson;
-import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
@@ -17,8 +16,9 @@ import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 
-@WebFilter("/api/*")
+@WebFilter(urlPatterns = "/api/*", asyncSupported = true)
 public class AuthFilter implements Filter {
 
     private static final Gson gson = new Gson();
@@ -29,6 +29,9 @@ public class AuthFilter implements Filter {
             "/api/auth/guest"
     );
 
+    // WebSocket handshakes authenticate in ChatSocketConfigurator (browsers can't send the header)
+    private static final Pattern WEBSOCKET_ENDPOINT = Pattern.compile("/api/notebooks/messages/ws/\\d+");
+
     @Override
     public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
             throws IOException, ServletException {
@@ -41,7 +44,7 @@ public class AuthFilter implements Filter {
         String relativePath = path.substring(contextPath.length());
 
         // Allow public endpoints
-        if (isPublicEndpoint(relativePath)) {
+        if (isPublicEndpoint(relativePath) || isWebSocketHandshake(request)) {
             chain.doFilter(req, res);
             return;
         }
@@ -55,12 +58,13 @@ public class AuthFilter implements Filter {
         }
 
         try {
-            Claims claims = JwtUtil.validateToken(token);
+            // Repeat requests with the same token skip signature verification
+            JwtUtil.TokenInfo user = JwtUtil.verify(token);
 
             // Attach user info to request for use in servlets
-            request.setAttribute("userId", Integer.parseInt(claims.getSubject()));
-            request.setAttribute("userEmail", claims.get("email", String.class));
-            request.setAttribute("userName", claims.get("name", String.class));
+            request.setAttribute("userId", user.getUserId());
+            request.setAttribute("userEmail", user.getEmail());
+            request.setAttribute("userName", user.getName());
 
             chain.doFilter(req, res);
 
@@ -81,6 +85,20 @@ public class AuthFilter implements Filter {
         return PUBLIC_ENDPOINTS.contains(path);
     }
 
+    /**
+     * Upgrade request for exactly the chat socket endpoint. Matched on the
+     * decoded, normalized servlet path so "/ws/../" tricks in the raw URI
+     * can't reach other endpoints unauthenticated.
+     */
+    private boolean isWebSocketHandshake(HttpServletRequest request) {
+        if (!"websocket".equalsIgnoreCase(request.getHeader("Upgrade"))) {
+            return false;
+        }
+        String pathInfo = request.getPathInfo();
+        String path = request.getServletPath() + (pathInfo == null ? "" : pathInfo);
+        return WEBSOCKET_ENDPOINT.matcher(path).matches();
+    }
+
     private void sendUnauthorized(HttpServletResponse response, String message)
             throws IOException {
         response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
@@ -0,0 +1,229 @@
+package com.notebook.filter;
+
+import com.notebook.config.AppConfig;
+import com.notebook.util.JwtUtil;
+import com.google.gson.Gson;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-user and per-address request limits, applied before AuthFilter.
+ *
+ * Mapped in web.xml ahead of AuthFilter so rejected requests never reach
+ * token handling or the database. Limits are set per endpoint class as
+ * RATE_LIMIT_{AUTH|CHAT|DEFAULT}_{USER|IP}=burst/perMinute.
+ */
+public class RateLimitFilter implements Filter {
+
+    private static final Gson gson = new Gson();
+
+    private static final boolean ENABLED = AppConfig.getBoolean("RATE_LIMIT_ENABLED", true);
+    private static final int MAX_BUCKETS = AppConfig.getInt("RATE_LIMIT_MAX_BUCKETS", 100000);
+    private static final long SWEEP_INTERVAL_SECONDS = AppConfig.getLong("RATE_LIMIT_SWEEP_INTERVAL_SECONDS", 60);
+
+    // X-Forwarded-For is only believed when the request comes from one of these (the Next.js server)
+    private static final TrustedProxies TRUSTED_PROXIES = new TrustedProxies(
+            AppConfig.getString("RATE_LIMIT_TRUSTED_PROXIES", "127.0.0.1,::1"));
+    // Set once a forwarded header from an untrusted address has been reported
+    private static final AtomicBoolean untrustedForwardReported = new AtomicBoolean();
+
+    private static final Set<String> AUTH_ENDPOINTS = Set.of(
+            "/api/auth/login",
+            "/api/auth/register",
+            "/api/auth/guest"
+    );
+
+    enum EndpointClass {
+        // Sign-ins cost a BCrypt hash each; only limited per address since there is no user yet
+        AUTH(null, "5/10"),
+        // Message polling, sends and stream/socket handshakes; per-address limits are looser for shared NATs
+        CHAT("60/300", "300/1500"),
+        DEFAULT("100/600", "600/3000");
+
+        final RateLimiter<Integer> perUser;
+        final RateLimiter<String> perIp;
+
+        EndpointClass(String defaultUser, String defaultIp) {
+            this.perIp = limiter("RATE_LIMIT_" + name() + "_IP", defaultIp);
+            this.perUser = defaultUser == null ? null : limiter("RATE_LIMIT_" + name() + "_USER", defaultUser);
+        }
+    }
+
+    private ScheduledExecutorService sweeper;
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+            throws IOException, ServletException {
+
+        if (!ENABLED) {
+            chain.doFilter(req, res);
+            return;
+        }
+
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) res;
+
+        String relativePath = request.getRequestURI().substring(request.getContextPath().length());
+        EndpointClass endpoint = classify(relativePath);
+
+        String address = clientAddress(request);
+        if (address == null && endpoint.perUser == null) {
+            // Nothing else limits sign-ins, so an anonymous proxy request shares the proxy's bucket
+            address = request.getRemoteAddr();
+        }
+        long waitNanos = address == null ? 0 : endpoint.perIp.tryAcquire(address);
+        if (waitNanos == 0 && endpoint.perUser != null) {
+            Integer userId = userIdOf(request);
+            if (userId != null) {
+                waitNanos = endpoint.perUser.tryAcquire(userId);
+            }
+        }
+
+        if (waitNanos > 0) {
+            sendTooManyRequests(response, waitNanos);
+            return;
+        }
+        chain.doFilter(req, res);
+    }
+
+    private static EndpointClass classify(String path) {
+        if (AUTH_ENDPOINTS.contains(path)) {
+            return EndpointClass.AUTH;
+        }
+        if (path.startsWith("/api/notebooks/") && path.contains("/messages")) {
+            return EndpointClass.CHAT;
+        }
+        return EndpointClass.DEFAULT;
+    }
+
+    /**
+     * Address to limit by, or null for a trusted proxy that didn't say who it is
+     * calling for (server-side fetches on behalf of many users; the user limit applies)
+     */
+    private static String clientAddress(HttpServletRequest request) {
+        String remote = request.getRemoteAddr();
+        String forwarded = request.getHeader("X-Forwarded-For");
+        if (!TRUSTED_PROXIES.contains(remote)) {
+            if (forwarded != null && untrustedForwardReported.compareAndSet(false, true)) {
+                System.err.println("Ignoring X-Forwarded-For from " + remote + ", which is not in " +
+                        "RATE_LIMIT_TRUSTED_PROXIES; if it is the frontend server, every client behind it shares one limit");
+            }
+            return remote;
+        }
+        if (forwarded == null || forwarded.isBlank()) {
+            return null;
+        }
+        // The last hop is the one the trusted proxy saw; earlier entries are client-supplied
+        String[] hops = forwarded.split(",");
+        String last = hops[hops.length - 1].trim();
+        return last.isEmpty() ? null : last;
+    }
+
+    /**
+     * User id from a valid Bearer token, or null (anonymous, guest or invalid: address limit only)
+     */
+    private static Integer userIdOf(HttpServletRequest request) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return null;
+        }
+        try {
+            // Cached, so AuthFilter's check of the same token right after is free
+            int userId = JwtUtil.verify(authHeader.substring(7)).getUserId();
+            // Guests all share one id, so a per-user bucket would throttle them together
+            return userId > 0 ? userId : null;
+        } catch (JwtException e) {
+            return null;
+        }
+    }
+
+    private void sendTooManyRequests(HttpServletResponse response, long waitNanos) throws IOException {
+        long seconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(429);
+        response.setHeader("Retry-After", String.valueOf(seconds));
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write(gson.toJson(Map.of(
+                "success", false,
+                "error", "Too many requests, try again in " + seconds + "s"
+        )));
+    }
+
+    private static <K> RateLimiter<K> limiter(String key, String defaultValue) {
+        String value = AppConfig.getString(key, defaultValue);
+        String[] parts = value.split("/");
+        try {
+            return new RateLimiter<>(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()), MAX_BUCKETS);
+        } catch (RuntimeException e) {
+            System.err.println("Invalid limit for " + key + " (expected burst/perMinute), using " + defaultValue);
+            String[] fallback = defaultValue.split("/");
+            return new RateLimiter<>(Integer.parseInt(fallback[0]), Integer.parseInt(fallback[1]), MAX_BUCKETS);
+        }
+    }
+
+    public static Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", ENABLED);
+        Map<EndpointClass, Object> byClass = new EnumMap<>(EndpointClass.class);
+        for (EndpointClass endpoint : EndpointClass.values()) {
+            Map<String, Object> limiters = new LinkedHashMap<>();
+            limiters.put("ip", endpoint.perIp.stats());
+            if (endpoint.perUser != null) {
+                limiters.put("user", endpoint.perUser.stats());
+            }
+            byClass.put(endpoint, limiters);
+        }
+        stats.put("endpoints", byClass);
+        return stats;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        if (!ENABLED) {
+            return;
+        }
+        for (String entry : TRUSTED_PROXIES.getInvalid()) {
+            System.err.println("Ignoring RATE_LIMIT_TRUSTED_PROXIES entry " + entry + " (not an address, range or known host)");
+        }
+        if (TRUSTED_PROXIES.size() == 0) {
+            System.err.println("No trusted proxies: sign-ins through the frontend server all share its rate limit");
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rate-limit-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleAtFixedRate(() -> {
+            for (EndpointClass endpoint : EndpointClass.values()) {
+                endpoint.perIp.sweep(true);
+                if (endpoint.perUser != null) {
+                    endpoint.perUser.sweep(true);
+                }
+            }
+        }, SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.notebook.filter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets keyed by user id or address, one limiter per endpoint class.
+ *
+ * Each bucket is a single AtomicLong updated with CAS (the GCRA form of a token
+ * bucket: it stores the time at which the bucket will be full again), so there
+ * are no locks on the request path. A bucket whose refill time has passed is
+ * indistinguishable from a new one and can be dropped, which is how idle keys
+ * are evicted.
+ */
+public class RateLimiter<K> {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int maxBuckets;
+    private final ConcurrentHashMap<K, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    // Shared by new keys while the table is full of active buckets
+    private final AtomicLong overflowBucket = new AtomicLong(System.nanoTime());
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+
+    private final AtomicLong allowed = new AtomicLong();
+    private final AtomicLong limited = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+
+    /**
+     * @param burst     requests allowed back to back from a full bucket
+     * @param perMinute sustained rate
+     */
+    public RateLimiter(int burst, int perMinute, int maxBuckets) {
+        this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, perMinute);
+        this.burstNanos = intervalNanos * Math.max(1, burst);
+        this.maxBuckets = maxBuckets;
+    }
+
+    /**
+     * Take one token for the key.
+     *
+     * @return 0 if allowed, otherwise nanoseconds until a retry can succeed
+     */
+    public long tryAcquire(K key) {
+        AtomicLong bucket = bucketFor(key);
+        while (true) {
+            long now = System.nanoTime();
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt, now) + intervalNanos;
+            long debt = next - now;
+            if (debt > burstNanos) {
+                limited.incrementAndGet();
+                return debt - burstNanos;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                allowed.incrementAndGet();
+                return 0;
+            }
+        }
+    }
+
+    private AtomicLong bucketFor(K key) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxBuckets) {
+            sweep(false);
+            if (buckets.size() >= maxBuckets) {
+                overflowed.incrementAndGet();
+                return overflowBucket;
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> new AtomicLong(System.nanoTime()));
+    }
+
+    /**
+     * Drop buckets that have refilled completely.
+     * A request racing with the removal may get one token more than its share.
+     *
+     * @param force sweep even if another sweep ran within the last second
+     */
+    public void sweep(boolean force) {
+        long now = System.nanoTime();
+        long last = lastSweep.get();
+        if (!force && now - last < TimeUnit.SECONDS.toNanos(1)) {
+            return;
+        }
+        if (!lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        buckets.values().removeIf(bucket -> bucket.get() <= now);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("buckets", buckets.size());
+        stats.put("allowed", allowed.get());
+        stats.put("limited", limited.get());
+        stats.put("overflowed", overflowed.get());
+        return stats;
+    }
+}
@@ -0,0 +1,139 @@
+package com.notebook.filter;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Addresses whose X-Forwarded-For header is believed: IP literals, CIDR
+ * ranges ("10.0.0.0/8", "fd00::/8") or host names, which are resolved once
+ * when parsed (e.g. the frontend's service name under Docker Compose).
+ * Entries that can't be parsed or resolved are reported and skipped.
+ */
+public class TrustedProxies {
+
+    private final List<byte[]> networks = new ArrayList<>();
+    private final List<Integer> prefixes = new ArrayList<>();
+    private final List<String> invalid = new ArrayList<>();
+
+    public TrustedProxies(String spec) {
+        for (String entry : spec.split(",")) {
+            entry = entry.trim();
+            if (!entry.isEmpty()) {
+                add(entry);
+            }
+        }
+    }
+
+    /**
+     * True if the address (as returned by getRemoteAddr) is one of the proxies
+     */
+    public boolean contains(String address) {
+        byte[] bytes = literal(address);
+        if (bytes == null) {
+            return false;
+        }
+        for (int i = 0; i < networks.size(); i++) {
+            if (matches(networks.get(i), prefixes.get(i), bytes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Entries that were ignored
+     */
+    public List<String> getInvalid() {
+        return invalid;
+    }
+
+    public int size() {
+        return networks.size();
+    }
+
+    private void add(String entry) {
+        int slash = entry.indexOf('/');
+        if (slash >= 0) {
+            byte[] network = literal(entry.substring(0, slash));
+            Integer prefix = parsePrefix(entry.substring(slash + 1));
+            if (network == null || prefix == null || prefix > network.length * 8) {
+                invalid.add(entry);
+                return;
+            }
+            networks.add(network);
+            prefixes.add(prefix);
+            return;
+        }
+        try {
+            for (InetAddress address : InetAddress.getAllByName(entry)) {
+                byte[] bytes = address.getAddress();
+                networks.add(bytes);
+                prefixes.add(bytes.length * 8);
+            }
+        } catch (UnknownHostException | SecurityException e) {
+            invalid.add(entry);
+        }
+    }
+
+    private static boolean matches(byte[] network, int prefix, byte[] address) {
+        if (network.length != address.length) {
+            return false;
+        }
+        int fullBytes = prefix / 8;
+        for (int i = 0; i < fullBytes; i++) {
+            if (network[i] != address[i]) {
+                return false;
+            }
+        }
+        int rest = prefix % 8;
+        if (rest == 0) {
+            return true;
+        }
+        int mask = 0xFF << (8 - rest);
+        return (network[fullBytes] & mask) == (address[fullBytes] & mask);
+    }
+
+    /**
+     * Bytes of an IPv4/IPv6 literal without any DNS lookup, or null if it isn't one
+     */
+    private static byte[] literal(String address) {
+        if (address == null || address.isEmpty()) {
+            return null;
+        }
+        if (address.indexOf(':') < 0) {
+            return ipv4(address);
+        }
+        try {
+            // Anything with a colon is parsed as an IPv6 literal, never resolved
+            return InetAddress.getByName(address).getAddress();
+        } catch (UnknownHostException | SecurityException e) {
+            return null;
+        }
+    }
+
+    private static byte[] ipv4(String address) {
+        String[] parts = address.split("\\.", -1);
+        if (parts.length != 4) {
+            return null;
+        }
+        byte[] bytes = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            if (!parts[i].matches("\\d{1,3}") || Integer.parseInt(parts[i]) > 255) {
+                return null;
+            }
+            bytes[i] = (byte) Integer.parseInt(parts[i]);
+        }
+        return bytes;
+    }
+
+    private static Integer parsePrefix(String value) {
+        try {
+            int prefix = Integer.parseInt(value.trim());
+            return prefix < 0 ? null : prefix;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
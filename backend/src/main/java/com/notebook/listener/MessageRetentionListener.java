@@ -0,0 +1,105 @@
+package com.notebook.listener;
+
+import com.notebook.config.AppConfig;
+import com.notebook.dao.MessageArchiveDAO;
+import com.notebook.dao.MessageDAO;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the Messages partition maintenance inside the webapp:
+ * <ul>
+ *   <li>creates monthly partitions ahead of time; there is no default partition, so inserts need them</li>
+ *   <li>detaches partitions older than MESSAGE_RETENTION_MONTHS into the archive schema</li>
+ *   <li>archives rows of notebooks that set their own message_retention_days</li>
+ * </ul>
+ * Partitions are always created; MESSAGE_RETENTION_ENABLED=false only turns off the archiving.
+ * Attached history is bounded by the global cutoff, so the hot partitions stay the
+ * same size however old the deployment gets.
+ */
+@WebListener
+public class MessageRetentionListener implements ServletContextListener {
+
+    private final MessageArchiveDAO archiveDAO = new MessageArchiveDAO();
+    private ScheduledExecutorService scheduler;
+
+    private final int retentionMonths = AppConfig.getInt("MESSAGE_RETENTION_MONTHS", 12);
+    private final int partitionsAhead = AppConfig.getInt("MESSAGE_PARTITIONS_AHEAD", 2);
+    private final boolean retentionEnabled = AppConfig.getBoolean("MESSAGE_RETENTION_ENABLED", true);
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        long intervalMinutes = AppConfig.getLong("MESSAGE_RETENTION_INTERVAL_MINUTES", 24 * 60);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "message-retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // First run right away so this month's partition exists before the first insert
+        scheduler.scheduleWithFixedDelay(this::runOnce, 0, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    void runOnce() {
+        // Each step runs on its own so one failure doesn't block the others
+        try {
+            archiveDAO.ensurePartitions(partitionsAhead);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        if (!retentionEnabled) {
+            return;
+        }
+
+        if (retentionMonths > 0) {
+            archiveOldPartitions();
+        }
+
+        try {
+            Map<Integer, Integer> archived = archiveDAO.archiveNotebookMessages();
+            for (Map.Entry<Integer, Integer> entry : archived.entrySet()) {
+                MessageDAO.messagesArchived(entry.getKey());
+            }
+            if (!archived.isEmpty()) {
+                System.out.println("Archived messages of " + archived.size() + " notebooks past their own retention");
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void archiveOldPartitions() {
+        YearMonth cutoff = YearMonth.now().minusMonths(retentionMonths);
+        try {
+            for (Map.Entry<String, YearMonth> partition : archiveDAO.getPartitions().entrySet()) {
+                if (!partition.getValue().isBefore(cutoff)) {
+                    continue;
+                }
+                List<Integer> notebookIds = archiveDAO.getNotebookIds(partition.getKey());
+                archiveDAO.archivePartition(partition.getKey());
+                for (int notebookId : notebookIds) {
+                    MessageDAO.messagesArchived(notebookId);
+                }
+                System.out.println("Archived message partition " + partition.getKey());
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
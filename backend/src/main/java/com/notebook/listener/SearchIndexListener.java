@@ -0,0 +1,79 @@
+package com.notebook.listener;
+
+import com.notebook.dao.SearchDAO;
+import com.notebook.search.NotebookSuggestions;
+import com.notebook.search.SearchIndex;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+
+/**
+ * Builds the in-memory search index and notebook autocomplete from one
+ * streaming scan of Notebooks and one of Notes. Runs in the background so
+ * startup isn't held up; searches use the database until it is done.
+ */
+@WebListener
+public class SearchIndexListener implements ServletContextListener {
+
+    private final SearchDAO searchDAO = new SearchDAO();
+    private Thread loader;
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        if (!SearchIndex.ENABLED && !NotebookSuggestions.ENABLED) {
+            return;
+        }
+        loader = new Thread(this::load, "search-index-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        if (loader != null) {
+            loader.interrupt();
+        }
+    }
+
+    void load() {
+        long start = System.currentTimeMillis();
+        boolean index = SearchIndex.ENABLED;
+        boolean suggest = NotebookSuggestions.ENABLED;
+        if (index) {
+            SearchIndex.beginLoad();
+        }
+        if (suggest) {
+            NotebookSuggestions.beginLoad();
+        }
+
+        int notebooks = searchDAO.scanNotebooks((notebookId, title, courseName, isPublic, updatedAt) -> {
+            if (index) {
+                SearchIndex.loadNotebook(notebookId, title, courseName);
+            }
+            if (suggest) {
+                NotebookSuggestions.loadNotebook(notebookId, title, courseName, isPublic, updatedAt);
+            }
+        });
+        if (suggest) {
+            if (notebooks < 0) {
+                NotebookSuggestions.abandonLoad();
+            } else {
+                NotebookSuggestions.endLoad();
+            }
+        }
+        if (!index) {
+            return;
+        }
+
+        int notes = notebooks < 0 ? -1 : searchDAO.scanNotes(SearchIndex::loadNote);
+        if (notes < 0) {
+            // Stay on the database path; a partial index would miss results
+            SearchIndex.abandonLoad();
+            System.err.println("Search index load failed; searching the database instead");
+            return;
+        }
+        SearchIndex.endLoad();
+        System.out.println("Indexed " + notebooks + " notebooks and " + notes + " pages in " +
+                (System.currentTimeMillis() - start) + " ms");
+    }
+}
@@ -0,0 +1,51 @@
+package com.notebook.listener;
+
+import com.notebook.config.AppConfig;
+import com.notebook.dao.RevokedTokenDAO;
+import com.notebook.util.JwtUtil;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads persisted token revocations into memory before the first request
+ * and periodically purges expired ones from memory and the table.
+ */
+@WebListener
+public class TokenRevocationListener implements ServletContextListener {
+
+    private final RevokedTokenDAO revokedTokenDAO = new RevokedTokenDAO();
+    private ScheduledExecutorService scheduler;
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        int loaded = revokedTokenDAO.loadActive(JwtUtil::restoreRevocation);
+        if (loaded >= 0) {
+            System.out.println("Loaded " + loaded + " revoked tokens");
+        }
+
+        long intervalMinutes = AppConfig.getLong("TOKEN_REVOCATION_PURGE_MINUTES", 10);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "token-revocation-purge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::purge, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    void purge() {
+        JwtUtil.purgeExpiredRevocations();
+        revokedTokenDAO.deleteExpired();
+    }
+}
@@ -8,6 +8,7 @@ public class Message {
     private int userId;
     private String userName; // Helper for display
     private String messageText;
+    private String type; // "sticky" or "chat"
     private Timestamp timestamp;
 
     public Message() {
@@ -54,6 +55,14 @@ public class Message {
         this.messageText = messageText;
     }
 
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
     public Timestamp getTimestamp() {
         return timestamp;
     }
@@ -0,0 +1,599 @@
+package com.notebook.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * In-memory inverted index with BM25 ranking.
+ *
+ * Each stored version of a document gets a new internal slot; posting lists
+ * are primitive int arrays of slots (ascending, since slots only grow) with a
+ * parallel array of term frequencies. Replacing or removing a document only
+ * marks its old slot dead; once a quarter of the slots are dead the index is
+ * compacted. Every document belongs to a group (its notebook) so results can
+ * be filtered by what the caller may read.
+ *
+ * Searches share a read lock; writes take the write lock. Each search borrows
+ * one of a fixed pool of scratch buffers (12 bytes per slot), so their memory
+ * is bounded by the pool size rather than by the number of request threads;
+ * searches beyond the pool size wait for a buffer.
+ */
+public class InvertedIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    // Bound on the terms one prefix may expand to; the most frequent are kept
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final int MIN_DEAD_TO_COMPACT = 1024;
+    // Scan a posting list unless it is this many times longer than the candidate list
+    private static final int PROBE_COST = 16;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Term dictionary, sorted for prefix lookups
+    private TreeMap<String, Integer> termIds = new TreeMap<>();
+    private int[][] postingSlots = new int[256][];
+    private int[][] postingFreqs = new int[256][];
+    private int[] postingSize = new int[256];
+    private int[] liveDocFreq = new int[256];
+    private int termCount;
+
+    // Per slot
+    private int[] slotKey = new int[256];
+    private int[] slotGroup = new int[256];
+    private int[] slotLength = new int[256];
+    private int[][] slotTerms = new int[256][];
+    private BitSet dead = new BitSet();
+    private int slotCount;
+    private int deadCount;
+
+    private final HashMap<Integer, Integer> slotByKey = new HashMap<>();
+    private long liveLength;
+
+    // Per-search score/mask arrays; sized to the slot count on demand
+    private final Scratch[] scratches;
+    private final ArrayBlockingQueue<Scratch> scratchPool;
+
+    /**
+     * Up to one concurrent search per processor
+     */
+    public InvertedIndex() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param concurrentSearches searches that can run at once, each holding one scratch buffer
+     */
+    public InvertedIndex(int concurrentSearches) {
+        scratches = new Scratch[Math.max(1, concurrentSearches)];
+        scratchPool = new ArrayBlockingQueue<>(scratches.length);
+        for (int i = 0; i < scratches.length; i++) {
+            scratches[i] = new Scratch();
+            scratchPool.add(scratches[i]);
+        }
+    }
+
+    /**
+     * Index (or re-index) a document
+     *
+     * @param key   document id (note id or notebook id)
+     * @param group notebook the document belongs to
+     */
+    public void put(int key, int group, List<String> terms) {
+        Map<String, Integer> frequencies = MarkdownTokenizer.termFrequencies(terms);
+        lock.writeLock().lock();
+        try {
+            removeLocked(key);
+
+            int slot = slotCount++;
+            growSlots(slotCount);
+            slotKey[slot] = key;
+            slotGroup[slot] = group;
+            slotLength[slot] = terms.size();
+
+            int[] ids = new int[frequencies.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                int termId = termIdFor(entry.getKey());
+                appendPosting(termId, slot, entry.getValue());
+                liveDocFreq[termId]++;
+                ids[i++] = termId;
+            }
+            slotTerms[slot] = ids;
+            slotByKey.put(key, slot);
+            liveLength += terms.size();
+            // Re-indexing an edited page leaves its old slot dead
+            maybeCompact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int key) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(key);
+            maybeCompact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove every document of a group (a deleted notebook's pages)
+     */
+    public void removeGroup(int group) {
+        lock.writeLock().lock();
+        try {
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (!dead.get(slot) && slotGroup[slot] == group) {
+                    removeLocked(slotKey[slot]);
+                }
+            }
+            maybeCompact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Top-k documents by BM25 that contain every query term; the last term
+     * also matches as a prefix. Only documents whose group passes the filter
+     * are ranked.
+     */
+    public List<Hit> search(List<String> queryTerms, IntPredicate groupFilter, int k) {
+        List<Hit> hits = new ArrayList<>();
+        if (queryTerms.isEmpty() || k <= 0) {
+            return hits;
+        }
+        // One bit per query term in the match mask
+        List<String> terms = queryTerms.size() > 31 ? queryTerms.subList(0, 31) : queryTerms;
+
+        Scratch s;
+        try {
+            s = scratchPool.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return hits;
+        }
+        lock.readLock().lock();
+        try {
+            int liveDocs = slotCount - deadCount;
+            if (liveDocs == 0) {
+                return hits;
+            }
+            float avgLength = Math.max(1f, (float) liveLength / liveDocs);
+
+            // Rarest term first: it picks the candidates, the others only score them
+            List<List<Integer>> expanded = new ArrayList<>(terms.size());
+            long[] order = new long[terms.size()];
+            for (int t = 0; t < terms.size(); t++) {
+                List<Integer> ids = expand(terms.get(t), t == terms.size() - 1);
+                long postings = 0;
+                for (int termId : ids) {
+                    postings += liveDocFreq[termId];
+                }
+                if (postings == 0) {
+                    return hits;
+                }
+                expanded.add(ids);
+                order[t] = postings << 5 | t;
+            }
+            Arrays.sort(order);
+
+            s.ensure(slotCount);
+            int required = 0;
+            for (int g = 0; g < order.length; g++) {
+                int t = (int) (order[g] & 31);
+                for (int termId : expanded.get(t)) {
+                    accumulate(termId, 1 << t, required, liveDocs, avgLength, s);
+                }
+                required |= 1 << t;
+                if (g == 0 || g == order.length - 1) {
+                    continue;
+                }
+                // Drop candidates that missed this term, so later terms probe fewer slots
+                int kept = 0;
+                for (int i = 0; i < s.touchedCount; i++) {
+                    int slot = s.touched[i];
+                    if ((s.masks[slot] & required) == required) {
+                        s.touched[kept++] = slot;
+                    } else {
+                        s.scores[slot] = 0;
+                        s.masks[slot] = 0;
+                    }
+                }
+                s.touchedCount = kept;
+            }
+
+            TopK top = new TopK(k);
+            for (int i = 0; i < s.touchedCount; i++) {
+                int slot = s.touched[i];
+                if (s.masks[slot] == required && groupFilter.test(slotGroup[slot])) {
+                    top.offer(slot, s.scores[slot]);
+                }
+                s.scores[slot] = 0;
+                s.masks[slot] = 0;
+            }
+            s.touchedCount = 0;
+
+            for (int i = top.size - 1; i >= 0; i--) {
+                top.popInto(hits, this);
+            }
+            // Popped from the min-heap lowest first
+            Collections.reverse(hits);
+            return hits;
+        } finally {
+            // Left dirty only if the group filter threw
+            s.clear();
+            lock.readLock().unlock();
+            scratchPool.add(s);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            long postings = 0;
+            long postingCapacity = 0;
+            for (int t = 0; t < termCount; t++) {
+                postings += postingSize[t];
+                postingCapacity += postingSlots[t] == null ? 0 : postingSlots[t].length;
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("documents", slotCount - deadCount);
+            stats.put("deadSlots", deadCount);
+            stats.put("terms", termCount);
+            stats.put("postings", postings);
+            long scratchBytes = 0;
+            for (Scratch scratch : scratches) {
+                scratchBytes += scratch.bytes();
+            }
+            stats.put("scratchBuffers", scratches.length);
+            stats.put("scratchBytes", scratchBytes);
+            // Two int arrays per posting list, the per-slot arrays and the search scratch;
+            // the term dictionary is not counted
+            stats.put("estimatedBytes", postingCapacity * 8 + (long) slotKey.length * 16 + postings * 4 + scratchBytes);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Integer> expand(String term, boolean prefix) {
+        if (!prefix) {
+            Integer id = termIds.get(term);
+            return id == null ? List.of() : List.of(id);
+        }
+        List<Integer> ids = new ArrayList<>(termIds.subMap(term, true, term + Character.MAX_VALUE, true).values());
+        if (ids.size() > MAX_PREFIX_EXPANSIONS) {
+            ids.sort((a, b) -> Integer.compare(liveDocFreq[b], liveDocFreq[a]));
+            ids = ids.subList(0, MAX_PREFIX_EXPANSIONS);
+        }
+        return ids;
+    }
+
+    /**
+     * Add the term's BM25 contribution. With no required bits every live posting
+     * becomes a candidate; otherwise only candidates holding all of them are scored,
+     * by binary search when the posting list is much longer than the candidate list.
+     */
+    private void accumulate(int termId, int bit, int required, int liveDocs, float avgLength, Scratch s) {
+        int df = liveDocFreq[termId];
+        if (df == 0) {
+            return;
+        }
+        float idf = (float) Math.log(1 + (liveDocs - df + 0.5) / (df + 0.5));
+        int[] slots = postingSlots[termId];
+        int[] freqs = postingFreqs[termId];
+        int size = postingSize[termId];
+        if (required != 0 && (long) s.touchedCount * PROBE_COST < size) {
+            for (int i = 0; i < s.touchedCount; i++) {
+                int slot = s.touched[i];
+                int at = Arrays.binarySearch(slots, 0, size, slot);
+                if (at >= 0) {
+                    score(slot, freqs[at], bit, idf, avgLength, s);
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            int slot = slots[i];
+            if (required == 0) {
+                if (dead.get(slot)) {
+                    continue;
+                }
+                if (s.masks[slot] == 0) {
+                    s.touched[s.touchedCount++] = slot;
+                }
+            } else if ((s.masks[slot] & required) != required) {
+                continue;
+            }
+            score(slot, freqs[i], bit, idf, avgLength, s);
+        }
+    }
+
+    private void score(int slot, int tf, int bit, float idf, float avgLength, Scratch s) {
+        float norm = K1 * (1 - B + B * slotLength[slot] / avgLength);
+        s.scores[slot] += idf * tf * (K1 + 1) / (tf + norm);
+        s.masks[slot] |= bit;
+    }
+
+    private void removeLocked(int key) {
+        Integer slot = slotByKey.remove(key);
+        if (slot == null) {
+            return;
+        }
+        dead.set(slot);
+        deadCount++;
+        for (int termId : slotTerms[slot]) {
+            liveDocFreq[termId]--;
+        }
+        slotTerms[slot] = null;
+        liveLength -= slotLength[slot];
+    }
+
+    private int termIdFor(String term) {
+        Integer id = termIds.get(term);
+        if (id != null) {
+            return id;
+        }
+        int termId = termCount++;
+        if (termId == postingSlots.length) {
+            int size = termId * 2;
+            postingSlots = Arrays.copyOf(postingSlots, size);
+            postingFreqs = Arrays.copyOf(postingFreqs, size);
+            postingSize = Arrays.copyOf(postingSize, size);
+            liveDocFreq = Arrays.copyOf(liveDocFreq, size);
+        }
+        postingSlots[termId] = new int[4];
+        postingFreqs[termId] = new int[4];
+        termIds.put(term, termId);
+        return termId;
+    }
+
+    private void appendPosting(int termId, int slot, int frequency) {
+        int size = postingSize[termId];
+        if (size == postingSlots[termId].length) {
+            postingSlots[termId] = Arrays.copyOf(postingSlots[termId], size * 2);
+            postingFreqs[termId] = Arrays.copyOf(postingFreqs[termId], size * 2);
+        }
+        postingSlots[termId][size] = slot;
+        postingFreqs[termId][size] = frequency;
+        postingSize[termId] = size + 1;
+    }
+
+    private void growSlots(int needed) {
+        if (needed <= slotKey.length) {
+            return;
+        }
+        int size = Math.max(needed, slotKey.length * 2);
+        slotKey = Arrays.copyOf(slotKey, size);
+        slotGroup = Arrays.copyOf(slotGroup, size);
+        slotLength = Arrays.copyOf(slotLength, size);
+        slotTerms = Arrays.copyOf(slotTerms, size);
+    }
+
+    /**
+     * Renumber live slots densely, drop dead postings and terms no live document uses
+     */
+    private void maybeCompact() {
+        if (deadCount < MIN_DEAD_TO_COMPACT || deadCount * 4 < slotCount) {
+            return;
+        }
+        int[] newSlot = new int[slotCount];
+        int live = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (dead.get(slot)) {
+                newSlot[slot] = -1;
+            } else {
+                newSlot[slot] = live;
+                slotKey[live] = slotKey[slot];
+                slotGroup[live] = slotGroup[slot];
+                slotLength[live] = slotLength[slot];
+                slotTerms[live] = slotTerms[slot];
+                live++;
+            }
+        }
+        Arrays.fill(slotTerms, live, slotCount, null);
+
+        // Terms keep their sorted order; ids are reassigned densely into new arrays
+        int[] newTermId = new int[termCount];
+        TreeMap<String, Integer> keptTerms = new TreeMap<>();
+        int capacity = Math.max(256, termCount);
+        int[][] keptSlots = new int[capacity][];
+        int[][] keptFreqs = new int[capacity][];
+        int[] keptSize = new int[capacity];
+        int[] keptDocFreq = new int[capacity];
+        int kept = 0;
+        for (Map.Entry<String, Integer> entry : termIds.entrySet()) {
+            int termId = entry.getValue();
+            if (liveDocFreq[termId] == 0) {
+                newTermId[termId] = -1;
+                continue;
+            }
+            int[] slots = postingSlots[termId];
+            int[] freqs = postingFreqs[termId];
+            int size = 0;
+            for (int i = 0; i < postingSize[termId]; i++) {
+                int mapped = newSlot[slots[i]];
+                if (mapped >= 0) {
+                    slots[size] = mapped;
+                    freqs[size] = freqs[i];
+                    size++;
+                }
+            }
+            newTermId[termId] = kept;
+            keptTerms.put(entry.getKey(), kept);
+            keptSlots[kept] = Arrays.copyOf(slots, Math.max(4, size));
+            keptFreqs[kept] = Arrays.copyOf(freqs, Math.max(4, size));
+            keptSize[kept] = size;
+            keptDocFreq[kept] = liveDocFreq[termId];
+            kept++;
+        }
+        for (int slot = 0; slot < live; slot++) {
+            int[] ids = slotTerms[slot];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = newTermId[ids[i]];
+            }
+        }
+
+        termIds = keptTerms;
+        postingSlots = keptSlots;
+        postingFreqs = keptFreqs;
+        postingSize = keptSize;
+        liveDocFreq = keptDocFreq;
+        termCount = kept;
+        slotCount = live;
+        deadCount = 0;
+        dead = new BitSet();
+        slotByKey.clear();
+        for (int slot = 0; slot < live; slot++) {
+            slotByKey.put(slotKey[slot], slot);
+        }
+        // Pooled scratch arrays are only ever too large, never too small
+    }
+
+    /**
+     * A ranked document
+     */
+    public static final class Hit {
+        private final int key;
+        private final int group;
+        private final float score;
+
+        Hit(int key, int group, float score) {
+            this.key = key;
+            this.group = group;
+            this.score = score;
+        }
+
+        public int getKey() {
+            return key;
+        }
+
+        public int getGroup() {
+            return group;
+        }
+
+        public float getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * Bounded min-heap of (score, slot); the root is the weakest kept hit
+     */
+    private static final class TopK {
+        final int[] slots;
+        final float[] scores;
+        int size;
+
+        TopK(int k) {
+            slots = new int[k];
+            scores = new float[k];
+        }
+
+        void offer(int slot, float score) {
+            if (size < slots.length) {
+                slots[size] = slot;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (score > scores[0]) {
+                slots[0] = slot;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        void popInto(List<Hit> hits, InvertedIndex index) {
+            int slot = slots[0];
+            hits.add(new Hit(index.slotKey[slot], index.slotGroup[slot], scores[0]));
+            size--;
+            if (size > 0) {
+                slots[0] = slots[size];
+                scores[0] = scores[size];
+                siftDown(0);
+            }
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (scores[parent] <= scores[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                int smallest = i;
+                if (left < size && scores[left] < scores[smallest]) {
+                    smallest = left;
+                }
+                if (left + 1 < size && scores[left + 1] < scores[smallest]) {
+                    smallest = left + 1;
+                }
+                if (smallest == i) {
+                    return;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int slot = slots[a];
+            slots[a] = slots[b];
+            slots[b] = slot;
+            float score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+
+    /**
+     * Score accumulators of one search at a time, indexed by slot and cleared after each search
+     */
+    private static final class Scratch {
+        float[] scores = new float[0];
+        int[] masks = new int[0];
+        int[] touched = new int[0];
+        int touchedCount;
+
+        void ensure(int slots) {
+            if (scores.length < slots) {
+                int size = Math.max(slots, scores.length * 2);
+                scores = new float[size];
+                masks = new int[size];
+                touched = new int[size];
+            }
+        }
+
+        void clear() {
+            for (int i = 0; i < touchedCount; i++) {
+                scores[touched[i]] = 0;
+                masks[touched[i]] = 0;
+            }
+            touchedCount = 0;
+        }
+
+        long bytes() {
+            return 12L * scores.length;
+        }
+    }
+}
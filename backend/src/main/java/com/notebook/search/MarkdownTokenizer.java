@@ -0,0 +1,100 @@
+package com.notebook.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Splits page markdown into index terms.
+ *
+ * Markup is dropped before splitting: link and image targets, raw URLs, HTML
+ * tags and code fence info strings never become terms, while link text,
+ * image alt text and code contents do. Terms are lower-cased letter/digit
+ * runs; there is no stemming, since queries match terms by prefix.
+ */
+public final class MarkdownTokenizer {
+
+    private static final Pattern IMAGE = Pattern.compile("!\\[([^\\]]*)\\]\\([^)]*\\)");
+    private static final Pattern LINK = Pattern.compile("\\[([^\\]]*)\\]\\([^)]*\\)");
+    private static final Pattern REFERENCE_DEFINITION = Pattern.compile("(?m)^\\s*\\[[^\\]]+\\]:\\s*\\S+.*$");
+    private static final Pattern URL = Pattern.compile("\\b(?:https?|ftp)://\\S+");
+    private static final Pattern HTML_TAG = Pattern.compile("</?[A-Za-z][^>]*>");
+    private static final Pattern FENCE = Pattern.compile("(?m)^\\s*(```|~~~)[^\\n]*$");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final int MAX_TERM_LENGTH = 40;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "from", "has", "have",
+            "if", "in", "into", "is", "it", "its", "of", "on", "or", "so", "that", "the", "their",
+            "then", "there", "these", "this", "to", "was", "were", "will", "with");
+
+    private MarkdownTokenizer() {}
+
+    /**
+     * Terms of the text in order, markup and stop words removed
+     */
+    public static List<String> tokenize(String markdown) {
+        List<String> terms = new ArrayList<>();
+        if (markdown == null || markdown.isEmpty()) {
+            return terms;
+        }
+        String text = FENCE.matcher(markdown).replaceAll(" ");
+        text = REFERENCE_DEFINITION.matcher(text).replaceAll(" ");
+        text = IMAGE.matcher(text).replaceAll(" $1 ");
+        text = LINK.matcher(text).replaceAll(" $1 ");
+        text = URL.matcher(text).replaceAll(" ");
+        text = HTML_TAG.matcher(text).replaceAll(" ");
+
+        // Emphasis, headings, list markers, tables and backticks are all non-word characters
+        for (String word : NON_WORD.split(text)) {
+            if (word.isEmpty() || word.length() > MAX_TERM_LENGTH) {
+                continue;
+            }
+            String term = word.toLowerCase(Locale.ROOT);
+            if (!STOP_WORDS.contains(term)) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Query terms: same rules as documents, so a query matches what was indexed.
+     * The last word is kept even if it is a stop word, since it is matched as
+     * a prefix of whatever is still being typed ("th" → "thermodynamics").
+     */
+    public static List<String> tokenizeQuery(String query) {
+        List<String> words = new ArrayList<>();
+        if (query == null) {
+            return words;
+        }
+        for (String word : NON_WORD.split(query)) {
+            if (!word.isEmpty() && word.length() <= MAX_TERM_LENGTH) {
+                words.add(word.toLowerCase(Locale.ROOT));
+            }
+        }
+        List<String> terms = new ArrayList<>();
+        for (int i = 0; i < words.size(); i++) {
+            if (i == words.size() - 1 || !STOP_WORDS.contains(words.get(i))) {
+                terms.add(words.get(i));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Term → occurrences
+     */
+    public static Map<String, Integer> termFrequencies(List<String> terms) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : terms) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        return frequencies;
+    }
+}
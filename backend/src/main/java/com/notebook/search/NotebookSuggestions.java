@@ -0,0 +1,167 @@
+package com.notebook.search;
+
+import com.notebook.cache.IntSet;
+import com.notebook.config.AppConfig;
+import com.notebook.dto.NotebookSuggestion;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide autocomplete for notebook titles and course names.
+ *
+ * Public notebooks live in a {@link SuggestTrie}; private ones are kept in a
+ * map and matched directly against the caller's own and shared notebooks,
+ * which are few, so one trie serves every user. Loaded by the startup scan
+ * and kept current by NotebookDAO, the same way as {@link SearchIndex}.
+ */
+public final class NotebookSuggestions {
+
+    public static final boolean ENABLED = AppConfig.getBoolean("SUGGEST_ENABLED", true);
+    public static final int TOP_K = AppConfig.getInt("SUGGEST_TOP_K", 10);
+
+    private static final SuggestTrie publicNotebooks = new SuggestTrie(TOP_K);
+    private static final Map<Integer, NotebookSuggestion> privateNotebooks = new ConcurrentHashMap<>();
+
+    private static final Object loadLock = new Object();
+    // Non-null while the startup scan runs
+    private static Set<Integer> written;
+    private static volatile boolean ready;
+
+    private NotebookSuggestions() {}
+
+    public static boolean isReady() {
+        return ENABLED && ready;
+    }
+
+    /**
+     * Start remembering writes; call before the startup scan
+     */
+    public static void beginLoad() {
+        synchronized (loadLock) {
+            written = new HashSet<>();
+        }
+    }
+
+    /**
+     * Add a scanned notebook unless it was written since the scan started
+     */
+    public static void loadNotebook(int notebookId, String title, String courseName, boolean isPublic, long updatedAt) {
+        synchronized (loadLock) {
+            if (!written.contains(notebookId)) {
+                put(new NotebookSuggestion(notebookId, title, courseName, updatedAt), isPublic);
+            }
+        }
+    }
+
+    public static void endLoad() {
+        synchronized (loadLock) {
+            written = null;
+            ready = true;
+        }
+    }
+
+    public static void abandonLoad() {
+        synchronized (loadLock) {
+            written = null;
+        }
+    }
+
+    public static void notebookSaved(int notebookId, String title, String courseName, boolean isPublic) {
+        if (!ENABLED) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (written != null) {
+                written.add(notebookId);
+            }
+            put(new NotebookSuggestion(notebookId, title, courseName, System.currentTimeMillis()), isPublic);
+        }
+    }
+
+    /**
+     * Move a notebook between the public trie and the private map; the
+     * visibility update also bumps its updated_at
+     */
+    public static void visibilityChanged(int notebookId, boolean isPublic) {
+        if (!ENABLED) {
+            return;
+        }
+        synchronized (loadLock) {
+            NotebookSuggestion entry = publicNotebooks.get(notebookId);
+            if (entry == null) {
+                entry = privateNotebooks.get(notebookId);
+            }
+            if (entry == null) {
+                // Not scanned yet; the scan will read the new visibility
+                return;
+            }
+            if (written != null) {
+                written.add(notebookId);
+            }
+            put(new NotebookSuggestion(notebookId, entry.getTitle(), entry.getCourseName(),
+                    System.currentTimeMillis()), isPublic);
+        }
+    }
+
+    public static void notebookDeleted(int notebookId) {
+        if (!ENABLED) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (written != null) {
+                written.add(notebookId);
+            }
+            publicNotebooks.remove(notebookId);
+            privateNotebooks.remove(notebookId);
+        }
+    }
+
+    /**
+     * Most recently updated notebooks with a title or course word starting
+     * with the prefix: public ones plus the given private notebooks of the caller
+     *
+     * @param memberIds notebooks the caller owns or is a collaborator on
+     */
+    public static List<NotebookSuggestion> suggest(String prefix, IntSet memberIds, int limit) {
+        String normalized = SuggestTrie.normalize(prefix);
+        int k = Math.min(limit, TOP_K);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+
+        List<NotebookSuggestion> results = new ArrayList<>(publicNotebooks.suggest(normalized, k));
+        for (int notebookId : memberIds.toArray()) {
+            NotebookSuggestion entry = privateNotebooks.get(notebookId);
+            if (entry != null && SuggestTrie.matches(entry, normalized)) {
+                results.add(entry);
+            }
+        }
+        results.sort((a, b) -> Long.compare(b.getUpdatedAt(), a.getUpdatedAt()));
+        return results.size() > k ? new ArrayList<>(results.subList(0, k)) : results;
+    }
+
+    public static Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", ENABLED);
+        stats.put("ready", ready);
+        stats.put("public", publicNotebooks.stats());
+        stats.put("private", privateNotebooks.size());
+        return stats;
+    }
+
+    private static void put(NotebookSuggestion entry, boolean isPublic) {
+        if (isPublic) {
+            privateNotebooks.remove(entry.getNotebookId());
+            publicNotebooks.put(entry);
+        } else {
+            publicNotebooks.remove(entry.getNotebookId());
+            privateNotebooks.put(entry.getNotebookId(), entry);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.notebook.search;
+
+import com.notebook.config.AppConfig;
+import com.notebook.dto.SearchResult;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Process-wide search index over page content and notebook titles, for
+ * type-ahead without a database round trip.
+ *
+ * The DAO writers report every change here, so once the startup scan has
+ * finished the index matches the tables of this node. While the scan runs,
+ * writes are applied as usual and remembered, and scanned rows for anything
+ * written since are skipped, since the scan may have read an older version.
+ * Until then {@link #isReady()} is false and callers search the database.
+ */
+public final class SearchIndex {
+
+    public static final boolean ENABLED = AppConfig.getBoolean("SEARCH_INDEX_ENABLED", true);
+
+    private static final InvertedIndex notes = new InvertedIndex();
+    private static final InvertedIndex notebooks = new InvertedIndex();
+    private static final Map<Integer, NotebookInfo> notebookInfo = new ConcurrentHashMap<>();
+
+    private static final Object loadLock = new Object();
+    // Non-null while the startup scan runs
+    private static Set<Integer> writtenNotes;
+    private static Set<Integer> writtenNotebooks;
+    private static volatile boolean ready;
+
+    private SearchIndex() {}
+
+    public static boolean isReady() {
+        return ENABLED && ready;
+    }
+
+    /**
+     * Start remembering writes; call before the startup scan
+     */
+    public static void beginLoad() {
+        synchronized (loadLock) {
+            writtenNotes = new HashSet<>();
+            writtenNotebooks = new HashSet<>();
+        }
+    }
+
+    /**
+     * Add a scanned page unless it was written since the scan started
+     */
+    public static void loadNote(int noteId, int notebookId, String content) {
+        List<String> terms = MarkdownTokenizer.tokenize(content);
+        synchronized (loadLock) {
+            if (!writtenNotes.contains(noteId) && !writtenNotebooks.contains(notebookId)) {
+                notes.put(noteId, notebookId, terms);
+            }
+        }
+    }
+
+    /**
+     * Add a scanned notebook unless it was written since the scan started
+     */
+    public static void loadNotebook(int notebookId, String title, String courseName) {
+        synchronized (loadLock) {
+            if (!writtenNotebooks.contains(notebookId)) {
+                putNotebook(notebookId, title, courseName);
+            }
+        }
+    }
+
+    /**
+     * Finish the startup scan; searches use the index from now on
+     */
+    public static void endLoad() {
+        synchronized (loadLock) {
+            writtenNotes = null;
+            writtenNotebooks = null;
+            ready = true;
+        }
+    }
+
+    /**
+     * Give up on a failed startup scan; the index stays unused
+     */
+    public static void abandonLoad() {
+        synchronized (loadLock) {
+            writtenNotes = null;
+            writtenNotebooks = null;
+        }
+    }
+
+    public static void noteSaved(int noteId, int notebookId, String content) {
+        if (!ENABLED) {
+            return;
+        }
+        List<String> terms = MarkdownTokenizer.tokenize(content);
+        synchronized (loadLock) {
+            if (writtenNotes != null) {
+                writtenNotes.add(noteId);
+            }
+            notes.put(noteId, notebookId, terms);
+        }
+    }
+
+    public static void noteDeleted(int noteId) {
+        if (!ENABLED) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (writtenNotes != null) {
+                writtenNotes.add(noteId);
+            }
+            notes.remove(noteId);
+        }
+    }
+
+    public static void notebookSaved(int notebookId, String title, String courseName) {
+        if (!ENABLED) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (writtenNotebooks != null) {
+                writtenNotebooks.add(notebookId);
+            }
+            putNotebook(notebookId, title, courseName);
+        }
+    }
+
+    /**
+     * Drop a notebook and its pages (they go with it by cascade)
+     */
+    public static void notebookDeleted(int notebookId) {
+        if (!ENABLED) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (writtenNotebooks != null) {
+                writtenNotebooks.add(notebookId);
+            }
+            notebooks.remove(notebookId);
+            notes.removeGroup(notebookId);
+            notebookInfo.remove(notebookId);
+        }
+    }
+
+    /**
+     * Best notebook and page matches among the given notebooks, by BM25.
+     * Results carry no snippet, since page content isn't kept in memory.
+     */
+    public static List<SearchResult> search(String query, IntPredicate accessible, int limit) {
+        List<String> terms = MarkdownTokenizer.tokenizeQuery(query);
+        List<InvertedIndex.Hit> noteHits = notes.search(terms, accessible, limit);
+        List<InvertedIndex.Hit> notebookHits = notebooks.search(terms, accessible, limit);
+
+        // Both lists are sorted by score; merge the first `limit`
+        List<SearchResult> results = new ArrayList<>();
+        int n = 0;
+        int b = 0;
+        while (results.size() < limit && (n < noteHits.size() || b < notebookHits.size())) {
+            boolean takeNotebook = n == noteHits.size() ||
+                    (b < notebookHits.size() && notebookHits.get(b).getScore() >= noteHits.get(n).getScore());
+            InvertedIndex.Hit hit = takeNotebook ? notebookHits.get(b++) : noteHits.get(n++);
+            NotebookInfo info = notebookInfo.get(hit.getGroup());
+            results.add(new SearchResult(
+                    takeNotebook ? "notebook" : "note",
+                    hit.getGroup(),
+                    takeNotebook ? null : hit.getKey(),
+                    info == null ? null : info.title,
+                    info == null ? null : info.courseName,
+                    null,
+                    hit.getScore()));
+        }
+        return results;
+    }
+
+    public static Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", ENABLED);
+        stats.put("ready", ready);
+        stats.put("notes", notes.stats());
+        stats.put("notebooks", notebooks.stats());
+        return stats;
+    }
+
+    private static void putNotebook(int notebookId, String title, String courseName) {
+        notebookInfo.put(notebookId, new NotebookInfo(title, courseName));
+        List<String> terms = MarkdownTokenizer.tokenize(title);
+        terms.addAll(MarkdownTokenizer.tokenize(courseName));
+        notebooks.put(notebookId, notebookId, terms);
+    }
+
+    private static final class NotebookInfo {
+        final String title;
+        final String courseName;
+
+        NotebookInfo(String title, String courseName) {
+            this.title = title;
+            this.courseName = courseName;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.notebook.search;
+
+import com.notebook.dto.NotebookSuggestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Prefix trie over notebook titles and course names for autocomplete.
+ *
+ * Every word start of a title or course name is a key ("Linear Algebra" is
+ * reachable from "lin" and "alg"), and each node keeps the k most recently
+ * updated notebooks below it, so a lookup is one walk down the prefix with
+ * no subtree search. Inserts push the notebook into the lists along its
+ * paths; removals rebuild only the lists on those paths from the children's.
+ */
+public class SuggestTrie {
+
+    // Deeper than anyone types; bounds the nodes per notebook
+    private static final int MAX_KEY_LENGTH = 48;
+
+    private static final Comparator<NotebookSuggestion> MOST_RECENT =
+            Comparator.comparingLong(NotebookSuggestion::getUpdatedAt).reversed()
+                    .thenComparing(Comparator.comparingInt(NotebookSuggestion::getNotebookId).reversed());
+
+    private final int k;
+    private final Node root = new Node();
+    private final Map<Integer, NotebookSuggestion> entries = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private int nodeCount = 1;
+
+    public SuggestTrie(int k) {
+        this.k = k;
+    }
+
+    /**
+     * Lower-case letter/digit words separated by single spaces
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    /**
+     * Whether a word of the notebook's title or course name starts with the normalized prefix
+     */
+    public static boolean matches(NotebookSuggestion entry, String prefix) {
+        for (String key : keys(entry)) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Add or replace a notebook
+     */
+    public void put(NotebookSuggestion entry) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(entry.getNotebookId());
+            entries.put(entry.getNotebookId(), entry);
+            for (String key : keys(entry)) {
+                Node node = root;
+                offer(node, entry);
+                for (int i = 0; i < key.length(); i++) {
+                    node = node.childOrCreate(key.charAt(i));
+                    offer(node, entry);
+                }
+                node.ends.add(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int notebookId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(notebookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public NotebookSuggestion get(int notebookId) {
+        lock.readLock().lock();
+        try {
+            return entries.get(notebookId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Up to limit (at most k) most recently updated notebooks matching the normalized prefix
+     */
+    public List<NotebookSuggestion> suggest(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.child(prefix.charAt(i));
+            }
+            if (node == null) {
+                return List.of();
+            }
+            return new ArrayList<>(node.top.subList(0, Math.min(limit, node.top.size())));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("notebooks", entries.size());
+            stats.put("nodes", nodeCount);
+            stats.put("topK", k);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Set<String> keys(NotebookSuggestion entry) {
+        Set<String> keys = new LinkedHashSet<>();
+        addKeys(keys, normalize(entry.getTitle()));
+        addKeys(keys, normalize(entry.getCourseName()));
+        return keys;
+    }
+
+    private static void addKeys(Set<String> keys, String text) {
+        for (int start = 0; start < text.length(); start++) {
+            if (start == 0 || text.charAt(start - 1) == ' ') {
+                keys.add(text.substring(start, Math.min(text.length(), start + MAX_KEY_LENGTH)));
+            }
+        }
+    }
+
+    private void offer(Node node, NotebookSuggestion entry) {
+        List<NotebookSuggestion> top = node.top;
+        // Two keys of one notebook can share a path ("linear" and "linear algebra")
+        for (NotebookSuggestion existing : top) {
+            if (existing.getNotebookId() == entry.getNotebookId()) {
+                return;
+            }
+        }
+        int at = 0;
+        while (at < top.size() && MOST_RECENT.compare(top.get(at), entry) < 0) {
+            at++;
+        }
+        if (at < k) {
+            top.add(at, entry);
+            if (top.size() > k) {
+                top.remove(k);
+            }
+        }
+    }
+
+    private void removeLocked(int notebookId) {
+        NotebookSuggestion entry = entries.remove(notebookId);
+        if (entry == null) {
+            return;
+        }
+        for (String key : keys(entry)) {
+            Node[] path = new Node[key.length() + 1];
+            path[0] = root;
+            for (int i = 0; i < key.length(); i++) {
+                path[i + 1] = path[i].child(key.charAt(i));
+                if (path[i + 1] == null) {
+                    // Already removed through a longer key sharing this path
+                    break;
+                }
+            }
+            if (path[key.length()] != null) {
+                path[key.length()].ends.removeIf(e -> e.getNotebookId() == notebookId);
+            }
+            // Deepest first, so each node rebuilds from already-fixed children
+            for (int depth = key.length(); depth >= 0; depth--) {
+                Node node = path[depth];
+                if (node == null || !containsId(node.top, notebookId)) {
+                    continue;
+                }
+                rebuild(node);
+                if (depth > 0 && node.top.isEmpty()) {
+                    path[depth - 1].removeChild(key.charAt(depth - 1));
+                    nodeCount--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Top k of the notebooks ending here and the children's lists
+     */
+    private void rebuild(Node node) {
+        List<NotebookSuggestion> candidates = new ArrayList<>(node.ends);
+        for (int i = 0; i < node.childCount; i++) {
+            candidates.addAll(node.children[i].top);
+        }
+        candidates.sort(MOST_RECENT);
+        List<NotebookSuggestion> top = new ArrayList<>(k);
+        for (NotebookSuggestion candidate : candidates) {
+            if (top.size() == k) {
+                break;
+            }
+            if (!containsId(top, candidate.getNotebookId())) {
+                top.add(candidate);
+            }
+        }
+        node.top = top;
+    }
+
+    private static boolean containsId(List<NotebookSuggestion> list, int notebookId) {
+        for (NotebookSuggestion entry : list) {
+            if (entry.getNotebookId() == notebookId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final class Node {
+        char[] labels = new char[0];
+        Node[] children = new Node[0];
+        int childCount;
+        List<NotebookSuggestion> top = new ArrayList<>(2);
+        // Notebooks with a key ending exactly here
+        List<NotebookSuggestion> ends = new ArrayList<>(1);
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(labels, 0, childCount, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int i = Arrays.binarySearch(labels, 0, childCount, c);
+            if (i >= 0) {
+                return children[i];
+            }
+            int at = -i - 1;
+            if (childCount == labels.length) {
+                int size = Math.max(2, childCount * 2);
+                labels = Arrays.copyOf(labels, size);
+                children = Arrays.copyOf(children, size);
+            }
+            System.arraycopy(labels, at, labels, at + 1, childCount - at);
+            System.arraycopy(children, at, children, at + 1, childCount - at);
+            Node node = new Node();
+            labels[at] = c;
+            children[at] = node;
+            childCount++;
+            nodeCount++;
+            return node;
+        }
+
+        void removeChild(char c) {
+            int i = Arrays.binarySearch(labels, 0, childCount, c);
+            if (i < 0) {
+                return;
+            }
+            System.arraycopy(labels, i + 1, labels, i, childCount - i - 1);
+            System.arraycopy(children, i + 1, children, i, childCount - i - 1);
+            childCount--;
+            children[childCount] = null;
+        }
+    }
+}
@@ -1,25 +1,47 @@
 package com.notebook.servlet;
 
+import com.notebook.dao.RevokedTokenDAO;
 import com.notebook.dao.UserDAO;
+import com.notebook.dto.Registration;
 import com.notebook.models.User;
 import com.notebook.util.JwtUtil;
+import com.notebook.util.PasswordHasher;
 import com.notebook.util.PasswordUtil;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Pattern;
 
-@WebServlet("/api/auth/*")
+@WebServlet(value = "/api/auth/*", asyncSupported = true, loadOnStartup = 1)
 public class AuthServlet extends BaseServlet {
 
+    // Upper bound for queue wait plus hashing before the client gets a 503
+    private static final long HASH_TIMEOUT_MS = 15000;
+    private static final String RETRY_AFTER_SECONDS = "1";
+
     private final UserDAO userDAO = new UserDAO();
+    private final RevokedTokenDAO revokedTokenDAO = new RevokedTokenDAO();
     private static final Pattern EMAIL_PATTERN = Pattern.compile(
             "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$"
     );
 
+    @Override
+    public void init() throws ServletException {
+        // Run the BCrypt cost calibration at startup rather than on the first sign-in
+        PasswordUtil.getRounds();
+        UserDAO.loadEmailFilter();
+    }
+
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws IOException {
@@ -78,30 +100,41 @@ public class AuthServlet extends BaseServlet {
             return;
         }
 
-        if (userDAO.emailExists(email)) {
+        String normalizedEmail = email.toLowerCase();
+
+        // Saves the hash for known addresses; new ones are answered by the email filter without a query
+        if (userDAO.emailExists(normalizedEmail)) {
             sendError(response, 409, "Email already registered");
             return;
         }
 
-        // Hash password and register
-        String hashedPassword = PasswordUtil.hashPassword(password);
-        User user = userDAO.registerUser(name.trim(), email.toLowerCase(), hashedPassword);
+        // Hash on the BCrypt pool, then register back on a container thread
+        completeAsync(request, response, PasswordHasher.hash(password), hashedPassword -> {
+            Registration registration = userDAO.registerUser(name.trim(), normalizedEmail, hashedPassword);
 
-        if (user == null) {
-            sendError(response, 500, "Registration failed");
-            return;
-        }
+            if (registration == null) {
+                sendError(response, 500, "Registration failed");
+                return;
+            }
 
-        // Generate JWT and return in response
-        String token = JwtUtil.generateToken(user);
+            if (registration.isDuplicateEmail()) {
+                sendError(response, 409, "Email already registered");
+                return;
+            }
 
-        response.setStatus(201);
-        sendSuccess(response, Map.of(
-                "userId", user.getUserId(),
-                "name", user.getName(),
-                "email", user.getEmail(),
-                "token", token
-        ));
+            User user = registration.getUser();
+
+            // Generate JWT and return in response
+            String token = JwtUtil.generateToken(user);
+
+            response.setStatus(201);
+            sendSuccess(response, Map.of(
+                    "userId", user.getUserId(),
+                    "name", user.getName(),
+                    "email", user.getEmail(),
+                    "token", token
+            ));
+        });
     }
 
     private void handleLogin(HttpServletRequest request, HttpServletResponse response)
@@ -116,26 +149,50 @@ public class AuthServlet extends BaseServlet {
             return;
         }
 
-        User user = userDAO.loginUser(email.toLowerCase(), password);
+        // The lookup releases its connection before the password is checked
+        User user = userDAO.getUserWithPasswordHash(email.toLowerCase());
 
-        if (user == null) {
+        if (user == null || user.getPasswordHash() == null) {
             sendError(response, 401, "Invalid email or password");
             return;
         }
 
-        // Generate JWT and return in response
-        String token = JwtUtil.generateToken(user);
+        completeAsync(request, response, PasswordHasher.check(password, user.getPasswordHash()), matches -> {
+            if (!matches) {
+                sendError(response, 401, "Invalid email or password");
+                return;
+            }
 
-        sendSuccess(response, Map.of(
-                "userId", user.getUserId(),
-                "name", user.getName(),
-                "email", user.getEmail(),
-                "token", token
-        ));
+            // Upgrade hashes made with another cost factor in the background
+            userDAO.rehashIfNeeded(user.getUserId(), password, user.getPasswordHash());
+
+            // Generate JWT and return in response
+            user.setPasswordHash(null);
+            String token = JwtUtil.generateToken(user);
+
+            sendSuccess(response, Map.of(
+                    "userId", user.getUserId(),
+                    "name", user.getName(),
+                    "email", user.getEmail(),
+                    "token", token
+            ));
+        });
     }
 
     private void handleLogout(HttpServletRequest request, HttpServletResponse response)
             throws IOException {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            try {
+                // Already verified by AuthFilter, so this is a cache hit
+                JwtUtil.TokenInfo token = JwtUtil.verify(authHeader.substring(7));
+                if (JwtUtil.revoke(token)) {
+                    revokedTokenDAO.revoke(token.getJti(), token.getUserId(), token.getExpiresAt());
+                }
+            } catch (JwtException ignored) {
+                // Nothing left to revoke
+            }
+        }
         sendSuccess(response, Map.of("message", "Logged out successfully"));
     }
 
@@ -167,6 +224,7 @@ public class AuthServlet extends BaseServlet {
             ));
             return;
         }
+        // Served from the profile cache on repeat page loads
         User user = userDAO.getUserById(userId);
 
         if (user == null) {
@@ -180,4 +238,84 @@ public class AuthServlet extends BaseServlet {
                 "email", user.getEmail()
         ));
     }
+
+    /**
+     * Finish the request once BCrypt work is done, without holding a request
+     * thread while it waits. A full hashing queue answers 503 right away.
+     */
+    private <T> void completeAsync(HttpServletRequest request, HttpServletResponse response,
+            CompletableFuture<T> work, ResultHandler<T> onResult) throws IOException {
+        if (work.isCompletedExceptionally() && work.handle((r, e) -> PasswordHasher.isRejection(e)).join()) {
+            sendBusy(response);
+            return;
+        }
+
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(HASH_TIMEOUT_MS);
+        AtomicBoolean done = new AtomicBoolean();
+
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                if (done.compareAndSet(false, true)) {
+                    try {
+                        sendBusy(response);
+                    } finally {
+                        asyncContext.complete();
+                    }
+                }
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {}
+
+            @Override
+            public void onError(AsyncEvent event) {
+                done.set(true);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {}
+        });
+
+        work.whenComplete((result, error) -> {
+            if (done.get()) {
+                return;
+            }
+            // Respond (and touch the database) on a container thread, not a BCrypt thread
+            try {
+                asyncContext.start(() -> {
+                    if (!done.compareAndSet(false, true)) {
+                        return;
+                    }
+                    try {
+                        if (error == null) {
+                            onResult.handle(result);
+                        } else if (PasswordHasher.isRejection(error)) {
+                            sendBusy(response);
+                        } else {
+                            error.printStackTrace();
+                            sendError(response, 500, "Authentication failed");
+                        }
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    } finally {
+                        asyncContext.complete();
+                    }
+                });
+            } catch (IllegalStateException ignored) {
+                // Request already timed out or was closed by the client
+            }
+        });
+    }
+
+    private void sendBusy(HttpServletResponse response) throws IOException {
+        response.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+        sendError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many sign-ins right now, please retry");
+    }
+
+    @FunctionalInterface
+    private interface ResultHandler<T> {
+        void handle(T result) throws IOException;
+    }
 }
@@ -1,19 +1,35 @@
 package com.notebook.servlet;
 
+import com.notebook.chat.ChatHub;
+import com.notebook.chat.ChatWaiter;
 import com.notebook.dao.MessageDAO;
 import com.notebook.dao.NotebookDAO;
+import com.notebook.dto.MessagePage;
 import com.notebook.models.Message;
+import jakarta.servlet.AsyncContext;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
-@WebServlet(urlPatterns = {"/api/notebooks/*/messages", "/api/notebooks/messages/*"})
+@WebServlet(urlPatterns = {"/api/notebooks/*/messages", "/api/notebooks/messages/*"}, asyncSupported = true)
 public class ChatServlet extends BaseServlet {
 
+    // Upper bound for ?wait= so parked requests stay under typical proxy idle timeouts
+    private static final int MAX_WAIT_SECONDS = 30;
+
+    // Bounds every history response; the first page is normally served by the recent-message cache
+    private static final int DEFAULT_PAGE_SIZE = 200;
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final MessageDAO messageDAO = new MessageDAO();
     private final NotebookDAO notebookDAO = new NotebookDAO();
 
@@ -31,10 +47,153 @@ public class ChatServlet extends BaseServlet {
             return;
         }
 
-        List<Message> messages = messageDAO.getNotebookMessages(notebookId);
+        // Read the version before querying: if a message lands in between, the client just
+        // refetches on its next poll instead of caching a stale ETag
+        long version = ChatHub.currentVersion(notebookId);
+        String etag = ChatHub.etag(notebookId, version);
+
+        // Cursor mode: ?afterId={messageId} (or ?since=) returns only newer messages
+        String cursor = request.getParameter("afterId");
+        if (cursor == null) {
+            cursor = request.getParameter("since");
+        }
+        if (cursor != null && !isNumeric(cursor)) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid message cursor");
+            return;
+        }
+        Integer afterId = cursor == null ? null : Integer.parseInt(cursor);
+
+        // ?type=sticky|chat lets the sticky board and the chat drawer each pull only their own rows
+        String type = request.getParameter("type");
+        if (type != null && !MessageDAO.isValidType(type)) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Message type must be sticky or chat");
+            return;
+        }
+
+        // History mode: ?before={cursor}&limit=N walks backwards one bounded page at a time
+        if (request.getParameter("before") != null || request.getParameter("limit") != null) {
+            sendHistoryPage(request, response, notebookId, type);
+            return;
+        }
+
+        // Long-poll clients that can't send If-None-Match may pass the ETag as ?version=
+        String clientTag = request.getHeader("If-None-Match");
+        if (clientTag == null && request.getParameter("version") != null) {
+            clientTag = "\"" + request.getParameter("version").replace("\"", "") + "\"";
+        }
+
+        if (etag.equals(clientTag)) {
+            int waitSeconds = parseWaitSeconds(request);
+            if (waitSeconds > 0) {
+                awaitChange(request, response, notebookId, version, afterId, type, waitSeconds);
+                return;
+            }
+            sendNotModified(response, etag);
+            return;
+        }
+
+        sendMessages(response, notebookId, etag, afterId, type);
+    }
+
+    /**
+     * Long-poll: park the request until this notebook's chat version moves or the wait expires.
+     * Nothing touches the database until there is something new to return.
+     */
+    private void awaitChange(HttpServletRequest request, HttpServletResponse response,
+            int notebookId, long seenVersion, Integer afterId, String type, int waitSeconds) {
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(waitSeconds * 1000L);
+
+        ChatWaiter waiter = new ChatWaiter(asyncContext, notebookId,
+                () -> {
+                    try {
+                        sendMessages(response, notebookId, ChatHub.etag(notebookId), afterId, type);
+                    } catch (IOException e) {
+                        // Client went away while we were waiting
+                    }
+                },
+                () -> sendNotModified(response, ChatHub.etag(notebookId, seenVersion)));
+        waiter.park(seenVersion);
+    }
+
+    private void sendMessages(HttpServletResponse response, int notebookId, String etag,
+            Integer afterId, String type) throws IOException {
+        // Without a cursor only the newest page is returned; older history goes through ?before=
+        List<Message> messages = afterId != null
+                ? messageDAO.getNotebookMessagesAfter(notebookId, afterId, type)
+                : messageDAO.getRecentMessages(notebookId, DEFAULT_PAGE_SIZE, type);
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", "no-cache");
         sendSuccess(response, messages);
     }
 
+    private void sendHistoryPage(HttpServletRequest request, HttpServletResponse response,
+            int notebookId, String type) throws IOException {
+        int limit = DEFAULT_PAGE_SIZE;
+        String limitParam = request.getParameter("limit");
+        if (limitParam != null) {
+            if (!isNumeric(limitParam) || Integer.parseInt(limitParam) < 1) {
+                sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid limit");
+                return;
+            }
+            limit = Math.min(Integer.parseInt(limitParam), MAX_PAGE_SIZE);
+        }
+
+        Timestamp beforeTime = null;
+        int beforeId = 0;
+        String before = request.getParameter("before");
+        if (before != null) {
+            String[] cursor = decodeCursor(before);
+            if (cursor == null) {
+                sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid history cursor");
+                return;
+            }
+            beforeTime = Timestamp.valueOf(cursor[0]);
+            beforeId = Integer.parseInt(cursor[1]);
+        }
+
+        List<Message> rows = messageDAO.getMessagesBefore(notebookId, beforeTime, beforeId, limit, type);
+        boolean hasMore = rows.size() > limit;
+        List<Message> page = new ArrayList<>(rows.subList(0, Math.min(limit, rows.size())));
+        String nextCursor = hasMore ? encodeCursor(page.get(page.size() - 1)) : null;
+        Collections.reverse(page);
+        sendSuccess(response, new MessagePage(page, nextCursor));
+    }
+
+    // Opaque cursor: base64url("<timestamp>|<messageId>") of the oldest message on the page
+    private String encodeCursor(Message message) {
+        String raw = message.getTimestamp().toString() + "|" + message.getMessageId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 2 || !isNumeric(parts[1])) {
+                return null;
+            }
+            Timestamp.valueOf(parts[0]);
+            return parts;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void sendNotModified(HttpServletResponse response, String etag) {
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", "no-cache");
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    }
+
+    private int parseWaitSeconds(HttpServletRequest request) {
+        String wait = request.getParameter("wait");
+        if (wait == null || !isNumeric(wait)) {
+            return 0;
+        }
+        return Math.max(0, Math.min(Integer.parseInt(wait), MAX_WAIT_SECONDS));
+    }
+
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
         Integer notebookId = extractNotebookId(request);
@@ -56,14 +215,13 @@ public class ChatServlet extends BaseServlet {
         }
 
         // Get message type from request, default to "sticky" for backward compatibility
-        String messageType = (body.type != null && !body.type.isBlank()) ? body.type : "sticky";
-        
-        // Store the type in the message text with a prefix (temporary workaround)
-        // Format: [TYPE:sticky]actual message text
-        // or [TYPE:chat]actual message text
-        String messageTextWithType = "[TYPE:" + messageType + "]" + body.text;
-        
-        boolean sent = messageDAO.sendMessage(notebookId, userId, messageTextWithType);
+        String messageType = (body.type != null && !body.type.isBlank()) ? body.type : MessageDAO.TYPE_STICKY;
+        if (!MessageDAO.isValidType(messageType)) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Message type must be sticky or chat");
+            return;
+        }
+
+        boolean sent = messageDAO.sendMessage(notebookId, userId, body.text, messageType);
         if (!sent) {
             sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Failed to send message");
             return;
@@ -103,7 +261,7 @@ public class ChatServlet extends BaseServlet {
 
     private static class ChatRequest {
         String text;
-        String type; // Add type field: "sticky" or "chat"
+        String type; // "sticky" or "chat"
     }
     
     @Override
@@ -0,0 +1,106 @@
+package com.notebook.servlet;
+
+import com.notebook.chat.SseConnection;
+import com.notebook.dao.MessageDAO;
+import com.notebook.dao.NotebookDAO;
+import com.notebook.models.Message;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Server-Sent Events push channel for notebook chat and sticky notes.
+ * The request goes async right after the access check, so an idle stream
+ * holds neither a container thread nor a pooled connection.
+ */
+@WebServlet(urlPatterns = {"/api/notebooks/*/messages/stream", "/api/notebooks/messages/stream/*"},
+        asyncSupported = true)
+public class ChatStreamServlet extends BaseServlet {
+
+    // Clients reconnect automatically (resuming via Last-Event-ID), this just recycles long-lived streams
+    private static final long STREAM_TIMEOUT_MS = 30 * 60 * 1000;
+
+    private final MessageDAO messageDAO = new MessageDAO();
+    private final NotebookDAO notebookDAO = new NotebookDAO();
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Integer notebookId = extractNotebookId(request);
+        if (notebookId == null) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid notebook id");
+            return;
+        }
+
+        int userId = getUserId(request);
+        if (!notebookDAO.canUserAccessNotebook(userId, notebookId)) {
+            sendError(response, HttpServletResponse.SC_FORBIDDEN, "Access denied");
+            return;
+        }
+
+        // Resume point: EventSource sends Last-Event-ID on reconnect, first connects may pass ?afterId=
+        String resumeFrom = request.getHeader("Last-Event-ID");
+        if (resumeFrom == null) {
+            resumeFrom = request.getParameter("afterId");
+        }
+        Integer afterId = parseInt(resumeFrom);
+        if (resumeFrom != null && afterId == null) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid message cursor");
+            return;
+        }
+
+        response.setContentType("text/event-stream");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("X-Accel-Buffering", "no");
+
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(STREAM_TIMEOUT_MS);
+
+        SseConnection connection = new SseConnection(asyncContext, notebookId);
+        connection.subscribe();
+
+        // A client further behind than this reloads through the paged history API instead
+        int maxReplay = Math.min(MessageDAO.recentCapacity(), SseConnection.MAX_REPLAY);
+        List<Message> backlog = afterId == null
+                ? List.of()
+                : messageDAO.getNotebookMessagesAfter(notebookId, afterId, null, maxReplay + 1);
+        connection.start(backlog, backlog.size() > maxReplay);
+    }
+
+    private Integer extractNotebookId(HttpServletRequest request) {
+        // Supports:
+        //  /api/notebooks/{id}/messages/stream
+        //  /api/notebooks/messages/stream/{id}
+        String uri = request.getRequestURI();
+        String[] parts = uri.split("/");
+        for (int i = 0; i < parts.length; i++) {
+            if ("notebooks".equals(parts[i])) {
+                // /api/notebooks/{id}/messages/stream
+                if (i + 1 < parts.length && parseInt(parts[i + 1]) != null) {
+                    return Integer.parseInt(parts[i + 1]);
+                }
+                // /api/notebooks/messages/stream/{id}
+                if (i + 3 < parts.length && "messages".equals(parts[i + 1])
+                        && "stream".equals(parts[i + 2]) && parseInt(parts[i + 3]) != null) {
+                    return Integer.parseInt(parts[i + 3]);
+                }
+            }
+        }
+        return null;
+    }
+
+    private Integer parseInt(String s) {
+        if (s == null) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.notebook.servlet;
+
+import com.notebook.chat.ChatSocketSession;
+import com.notebook.chat.SseConnection;
+import com.notebook.config.AppConfig;
+import com.notebook.dao.MessageDAO;
+import com.notebook.dao.NotebookDAO;
+import com.notebook.dao.UserDAO;
+import com.notebook.filter.RateLimitFilter;
+import com.notebook.search.NotebookSuggestions;
+import com.notebook.search.SearchIndex;
+import com.notebook.util.JwtUtil;
+import com.notebook.util.PasswordHasher;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * In-process counters for the caches and push channels.
+ * Off unless METRICS_ENABLED is set, and then only answered to the addresses
+ * in METRICS_ALLOWED_ADDRESSES (loopback by default), whatever the token.
+ */
+@WebServlet("/api/metrics")
+public class MetricsServlet extends BaseServlet {
+
+    private static final boolean ENABLED = AppConfig.getBoolean("METRICS_ENABLED", false);
+    private static final Set<String> ALLOWED_ADDRESSES = Arrays.stream(
+                    AppConfig.getString("METRICS_ALLOWED_ADDRESSES", "127.0.0.1,0:0:0:0:0:0:0:1").split(","))
+            .map(String::trim)
+            .filter(s -> !s.isEmpty())
+            .collect(Collectors.toUnmodifiableSet());
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!ENABLED) {
+            sendError(response, HttpServletResponse.SC_NOT_FOUND, "Not found");
+            return;
+        }
+        if (!ALLOWED_ADDRESSES.contains(request.getRemoteAddr())) {
+            sendError(response, HttpServletResponse.SC_FORBIDDEN, "Access denied");
+            return;
+        }
+
+        Map<String, Object> chat = new LinkedHashMap<>();
+        chat.put("sseConnections", SseConnection.openConnections());
+        chat.put("webSocketSessions", ChatSocketSession.openSessions());
+        chat.put("webSocketDroppedFrames", ChatSocketSession.droppedFrames());
+        chat.put("webSocketSlowDisconnects", ChatSocketSession.slowDisconnects());
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("messageCache", MessageDAO.cacheStats());
+        metrics.put("accessCache", NotebookDAO.accessCacheStats());
+        metrics.put("accessIndex", NotebookDAO.accessIndexStats());
+        metrics.put("searchCache", NotebookDAO.searchCacheStats());
+        metrics.put("tokenCache", JwtUtil.cacheStats());
+        metrics.put("revokedTokens", JwtUtil.revocationStats());
+        metrics.put("passwordHashing", PasswordHasher.stats());
+        metrics.put("emailFilter", UserDAO.emailFilterStats());
+        metrics.put("userProfileCache", UserDAO.profileCacheStats());
+        metrics.put("rateLimits", RateLimitFilter.stats());
+        metrics.put("searchIndex", SearchIndex.stats());
+        metrics.put("notebookSuggestions", NotebookSuggestions.stats());
+        metrics.put("chat", chat);
+        sendSuccess(response, metrics);
+    }
+}
@@ -1,18 +1,28 @@
 package com.notebook.servlet;
 
+import com.google.gson.stream.JsonWriter;
+import com.notebook.cache.IntSet;
 import com.notebook.dao.NotebookDAO;
+import com.notebook.dto.NotebookSuggestion;
 import com.notebook.models.Notebook;
+import com.notebook.search.NotebookSuggestions;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Objects;
 
 @WebServlet("/api/notebooks/*")
 public class NotebookServlet extends BaseServlet {
 
+    private static final int DEFAULT_SEARCH_PAGE_SIZE = 20;
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+
     private final NotebookDAO notebookDAO = new NotebookDAO();
 
     @Override
@@ -29,16 +39,15 @@ public class NotebookServlet extends BaseServlet {
             return;
         }
 
-        // Search
+        // Search: /search?q=...&limit=20&cursor=..., best matches first, one page at a time
         if (segments.length == 1 && "search".equals(segments[0])) {
-            int userId = getUserId(request);
-            String q = request.getParameter("q");
-            if (q == null || q.isBlank()) {
-                sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Missing search query");
-                return;
-            }
-            List<Notebook> results = notebookDAO.searchNotebooks(q, userId);
-            sendSuccess(response, results);
+            handleSearch(request, response);
+            return;
+        }
+
+        // Autocomplete: /suggest?prefix=...&limit=10, served from memory once loaded
+        if (segments.length == 1 && "suggest".equals(segments[0])) {
+            handleSuggest(request, response);
             return;
         }
 
@@ -143,6 +152,66 @@ public class NotebookServlet extends BaseServlet {
         sendSuccess(response, nb);
     }
 
+    @Override
+    protected void doPut(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String pathInfo = request.getPathInfo();
+        String[] segments = pathInfo == null ? new String[0] : pathInfo.substring(1).split("/");
+
+        // Visibility: /{id}/visibility
+        if (segments.length == 2 && "visibility".equals(segments[1])) {
+            Integer notebookId = parseInt(segments[0]);
+            if (notebookId == null) {
+                sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid notebook id");
+                return;
+            }
+            int userId = getUserId(request);
+            if (!notebookDAO.isOwner(userId, notebookId)) {
+                sendError(response, HttpServletResponse.SC_FORBIDDEN, "Only owners can change visibility");
+                return;
+            }
+
+            VisibilityRequest body = parseBody(request, VisibilityRequest.class);
+            if (body == null || !("Public".equals(body.visibility) || "Private".equals(body.visibility))) {
+                sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Visibility must be Public or Private");
+                return;
+            }
+            if (!notebookDAO.updateVisibility(notebookId, body.visibility)) {
+                sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Failed to update visibility");
+                return;
+            }
+            sendSuccess(response, notebookDAO.getNotebookById(notebookId));
+            return;
+        }
+
+        // Chat retention: /{id}/message-retention
+        if (segments.length == 2 && "message-retention".equals(segments[1])) {
+            Integer notebookId = parseInt(segments[0]);
+            if (notebookId == null) {
+                sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid notebook id");
+                return;
+            }
+            int userId = getUserId(request);
+            if (!notebookDAO.isOwner(userId, notebookId)) {
+                sendError(response, HttpServletResponse.SC_FORBIDDEN, "Only owners can change message retention");
+                return;
+            }
+
+            RetentionRequest body = parseBody(request, RetentionRequest.class);
+            if (body == null || (body.days != null && body.days < 1)) {
+                sendError(response, HttpServletResponse.SC_BAD_REQUEST, "days must be a positive number or null");
+                return;
+            }
+            if (!notebookDAO.setMessageRetentionDays(notebookId, body.days)) {
+                sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Failed to update message retention");
+                return;
+            }
+            sendSuccess(response, java.util.Map.of("message", "Message retention updated"));
+            return;
+        }
+
+        sendError(response, HttpServletResponse.SC_NOT_FOUND, "Endpoint not found");
+    }
+
     @Override
     protected void doDelete(HttpServletRequest request, HttpServletResponse response) throws IOException {
         String pathInfo = request.getPathInfo();
@@ -188,6 +257,174 @@ public class NotebookServlet extends BaseServlet {
         sendSuccess(response, java.util.Map.of("message", "Notebook deleted"));
     }
 
+    private void handleSearch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String q = request.getParameter("q");
+        if (q == null || q.isBlank()) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Missing search query");
+            return;
+        }
+        int limit = DEFAULT_SEARCH_PAGE_SIZE;
+        String limitParam = request.getParameter("limit");
+        if (limitParam != null) {
+            Integer parsed = parseInt(limitParam);
+            if (parsed == null || parsed < 1) {
+                sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid limit");
+                return;
+            }
+            limit = Math.min(parsed, MAX_SEARCH_PAGE_SIZE);
+        }
+
+        Float afterRank = null;
+        int afterId = 0;
+        String cursor = request.getParameter("cursor");
+        if (cursor != null) {
+            String[] parts = decodeSearchCursor(cursor);
+            if (parts == null) {
+                sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid search cursor");
+                return;
+            }
+            afterRank = Float.parseFloat(parts[0]);
+            afterId = Integer.parseInt(parts[1]);
+        }
+
+        SearchPageWriter page = new SearchPageWriter(response, limit);
+        boolean ok = notebookDAO.searchNotebooks(q, getUserId(request), afterRank, afterId, limit, page::write);
+        if (!ok) {
+            if (!page.isStarted()) {
+                sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Search failed");
+                return;
+            }
+            // Part of the page is already sent; fail the response rather than end it as if complete
+            throw new IOException("Notebook search failed mid-response");
+        }
+        page.finish();
+    }
+
+    /**
+     * Writes {"success":true,"data":{"notebooks":[...],"nextCursor":...,"hasMore":...}}
+     * row by row as the DAO reads them, so a page is never held as a list or a string
+     */
+    private static class SearchPageWriter {
+        private final HttpServletResponse response;
+        private final int limit;
+        private JsonWriter json;
+        private int written;
+        private String nextCursor;
+        private Notebook last;
+        private float lastRank;
+
+        SearchPageWriter(HttpServletResponse response, int limit) {
+            this.response = response;
+            this.limit = limit;
+        }
+
+        boolean isStarted() {
+            return json != null;
+        }
+
+        void write(Notebook notebook, float rank) throws IOException {
+            if (written == limit) {
+                // The extra row: there is another page after the last one written
+                nextCursor = encodeSearchCursor(lastRank, last.getNotebookId());
+                return;
+            }
+            start();
+            gson.toJson(notebook, Notebook.class, json);
+            last = notebook;
+            lastRank = rank;
+            written++;
+        }
+
+        void finish() throws IOException {
+            start();
+            json.endArray();
+            json.name("nextCursor").value(nextCursor);
+            json.name("hasMore").value(nextCursor != null);
+            json.endObject();
+            json.endObject();
+            json.flush();
+        }
+
+        private void start() throws IOException {
+            if (json != null) {
+                return;
+            }
+            response.setContentType("application/json");
+            response.setCharacterEncoding("UTF-8");
+            json = gson.newJsonWriter(response.getWriter());
+            json.beginObject();
+            json.name("success").value(true);
+            json.name("data").beginObject();
+            json.name("notebooks").beginArray();
+        }
+    }
+
+    // Opaque cursor: base64url("<rank>|<notebookId>") of the last notebook on the page.
+    // Float.toString round-trips exactly, so the next page starts right after that row.
+    private static String encodeSearchCursor(float rank, int notebookId) {
+        String raw = Float.toString(rank) + "|" + notebookId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeSearchCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 2) {
+                return null;
+            }
+            Float.parseFloat(parts[0]);
+            Integer.parseInt(parts[1]);
+            return parts;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void handleSuggest(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String prefix = request.getParameter("prefix");
+        if (prefix == null || prefix.isBlank()) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Missing prefix");
+            return;
+        }
+        int limit = NotebookSuggestions.TOP_K;
+        String limitParam = request.getParameter("limit");
+        if (limitParam != null) {
+            Integer parsed = parseInt(limitParam);
+            if (parsed == null) {
+                sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid limit");
+                return;
+            }
+            limit = Math.max(1, Math.min(NotebookSuggestions.TOP_K, parsed));
+        }
+
+        int userId = getUserId(request);
+        if (!NotebookSuggestions.isReady()) {
+            // Still loading (or disabled): answer from the database search
+            List<NotebookSuggestion> suggestions = new ArrayList<>();
+            int max = limit;
+            boolean ok = notebookDAO.searchNotebooks(prefix, userId, null, 0, limit, (notebook, rank) -> {
+                if (suggestions.size() < max) {
+                    suggestions.add(new NotebookSuggestion(notebook.getNotebookId(), notebook.getTitle(),
+                            notebook.getCourseName(), notebook.getUpdatedAt() == null ? 0 : notebook.getUpdatedAt().getTime()));
+                }
+            });
+            if (!ok) {
+                sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Failed to load suggestions");
+                return;
+            }
+            sendSuccess(response, suggestions);
+            return;
+        }
+
+        IntSet memberIds = notebookDAO.getMemberNotebookIds(userId);
+        if (memberIds == null) {
+            sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Failed to load suggestions");
+            return;
+        }
+        sendSuccess(response, NotebookSuggestions.suggest(prefix, memberIds, limit));
+    }
+
     private static class CreateNotebookRequest {
         String title;
         String courseName;
@@ -199,6 +436,14 @@ public class NotebookServlet extends BaseServlet {
         String role;
     }
 
+    private static class VisibilityRequest {
+        String visibility;
+    }
+
+    private static class RetentionRequest {
+        Integer days;
+    }
+
     private Integer parseInt(String s) {
         try {
             return Integer.parseInt(s);
@@ -1,7 +1,7 @@
 package com.notebook.servlet;
 
 import com.notebook.dao.NoteDAO;
-import com.notebook.dao.NotebookDAO;
+import com.notebook.dto.Authorized;
 import com.notebook.models.Note;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServletRequest;
@@ -15,7 +15,6 @@ import java.util.Map;
 public class PageServlet extends BaseServlet {
 
     private final NoteDAO noteDAO = new NoteDAO();
-    private final NotebookDAO notebookDAO = new NotebookDAO();
 
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
@@ -34,13 +33,11 @@ public class PageServlet extends BaseServlet {
                 return;
             }
 
-            if (!notebookDAO.canUserAccessNotebook(userId, notebookId)) {
-                sendError(response, HttpServletResponse.SC_FORBIDDEN, "Access denied");
+            Authorized<List<Note>> notes = noteDAO.getNotesForUser(notebookId, userId);
+            if (sendAuthorizationError(response, notes, "Notebook not found", "Access denied")) {
                 return;
             }
-
-            List<Note> notes = noteDAO.getNotesByNotebookId(notebookId);
-            sendSuccess(response, notes);
+            sendSuccess(response, notes.getValue());
             return;
         }
 
@@ -51,18 +48,11 @@ public class PageServlet extends BaseServlet {
             return;
         }
 
-        Note note = noteDAO.getNoteById(pageId);
-        if (note == null) {
-            sendError(response, HttpServletResponse.SC_NOT_FOUND, "Page not found");
+        Authorized<Note> note = noteDAO.getNoteForUser(pageId, userId);
+        if (sendAuthorizationError(response, note, "Page not found", "Access denied")) {
             return;
         }
-
-        if (!notebookDAO.canUserAccessNotebook(userId, note.getNotebookId())) {
-            sendError(response, HttpServletResponse.SC_FORBIDDEN, "Access denied");
-            return;
-        }
-
-        sendSuccess(response, note);
+        sendSuccess(response, note.getValue());
     }
 
     @Override
@@ -84,24 +74,24 @@ public class PageServlet extends BaseServlet {
             return;
         }
 
-        if (!notebookDAO.isUserEditor(userId, notebookId)) {
-            sendError(response, HttpServletResponse.SC_FORBIDDEN, "Edit permission required");
-            return;
-        }
-
         CreatePageRequest body = parseBody(request, CreatePageRequest.class);
         if (body == null || body.content == null || body.content.isBlank()) {
             sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Content is required");
             return;
         }
 
-        Note created = noteDAO.createNote(notebookId, body.content);
+        Authorized<Note> created = noteDAO.createNoteForUser(notebookId, userId, body.content);
         if (created == null) {
             sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Failed to create page");
             return;
         }
+        if (!created.isAllowed()) {
+            // Missing notebooks have always answered 403 here
+            sendError(response, HttpServletResponse.SC_FORBIDDEN, "Edit permission required");
+            return;
+        }
 
-        sendSuccess(response, created);
+        sendSuccess(response, created.getValue());
     }
 
     @Override
@@ -113,31 +103,22 @@ public class PageServlet extends BaseServlet {
         }
         int userId = getUserId(request);
 
-        Note note = noteDAO.getNoteById(pageId);
-        if (note == null) {
-            sendError(response, HttpServletResponse.SC_NOT_FOUND, "Page not found");
-            return;
-        }
-
-        if (!notebookDAO.isUserEditor(userId, note.getNotebookId())) {
-            sendError(response, HttpServletResponse.SC_FORBIDDEN, "Edit permission required");
-            return;
-        }
-
         CreatePageRequest body = parseBody(request, CreatePageRequest.class);
         if (body == null || body.content == null || body.content.isBlank()) {
             sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Content is required");
             return;
         }
 
-        boolean updated = noteDAO.updateNote(pageId, body.content);
-        if (!updated) {
+        Authorized<Note> updated = noteDAO.updateNoteForUser(pageId, userId, body.content);
+        if (updated == null) {
             sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Failed to update page");
             return;
         }
+        if (sendAuthorizationError(response, updated, "Page not found", "Edit permission required")) {
+            return;
+        }
 
-        Note refreshed = noteDAO.getNoteById(pageId);
-        sendSuccess(response, refreshed);
+        sendSuccess(response, updated.getValue());
     }
 
     @Override
@@ -149,26 +130,38 @@ public class PageServlet extends BaseServlet {
         }
         int userId = getUserId(request);
 
-        Note note = noteDAO.getNoteById(pageId);
-        if (note == null) {
-            sendError(response, HttpServletResponse.SC_NOT_FOUND, "Page not found");
-            return;
-        }
-
-        if (!notebookDAO.isUserEditor(userId, note.getNotebookId())) {
-            sendError(response, HttpServletResponse.SC_FORBIDDEN, "Edit permission required");
+        Authorized<Note> deleted = noteDAO.deleteNoteForUser(pageId, userId);
+        if (deleted == null) {
+            sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Failed to delete page");
             return;
         }
-
-        boolean deleted = noteDAO.deleteNote(pageId);
-        if (!deleted) {
-            sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Failed to delete page");
+        if (sendAuthorizationError(response, deleted, "Page not found", "Edit permission required")) {
             return;
         }
 
         sendSuccess(response, Map.of("message", "Page deleted"));
     }
 
+    /**
+     * Send 500/404/403 for a failed, missing or denied result; false if the caller can go ahead
+     */
+    private boolean sendAuthorizationError(HttpServletResponse response, Authorized<?> result,
+            String notFoundMessage, String deniedMessage) throws IOException {
+        if (result == null) {
+            sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error");
+            return true;
+        }
+        if (!result.isFound()) {
+            sendError(response, HttpServletResponse.SC_NOT_FOUND, notFoundMessage);
+            return true;
+        }
+        if (!result.isAllowed()) {
+            sendError(response, HttpServletResponse.SC_FORBIDDEN, deniedMessage);
+            return true;
+        }
+        return false;
+    }
+
     private Integer extractNotebookId(HttpServletRequest request) {
         // Supports:
         //  /api/notebooks/{id}/pages
@@ -1,9 +1,8 @@
 package com.notebook.servlet;
 
-import com.notebook.dao.NoteDAO;
+import com.notebook.dao.HierarchyResolver;
 import com.notebook.dao.NotebookDAO;
 import com.notebook.dao.QnADAO;
-import com.notebook.models.Note;
 import com.notebook.models.Question;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServletRequest;
@@ -17,7 +16,7 @@ import java.util.Map;
 public class QnAServlet extends BaseServlet {
 
     private final QnADAO qnaDAO = new QnADAO();
-    private final NoteDAO noteDAO = new NoteDAO();
+    private final HierarchyResolver hierarchy = new HierarchyResolver();
     private final NotebookDAO notebookDAO = new NotebookDAO();
 
     @Override
@@ -29,13 +28,13 @@ public class QnAServlet extends BaseServlet {
                 sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid page id");
                 return;
             }
-            Note note = noteDAO.getNoteById(pageId);
-            if (note == null) {
+            Integer notebookId = hierarchy.getNotebookIdForNote(pageId);
+            if (notebookId == null) {
                 sendError(response, HttpServletResponse.SC_NOT_FOUND, "Page not found");
                 return;
             }
             int userId = getUserId(request);
-            if (!notebookDAO.canUserAccessNotebook(userId, note.getNotebookId())) {
+            if (!notebookDAO.canUserAccessNotebook(userId, notebookId)) {
                 sendError(response, HttpServletResponse.SC_FORBIDDEN, "Access denied");
                 return;
             }
@@ -57,13 +56,13 @@ public class QnAServlet extends BaseServlet {
                 sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid page id");
                 return;
             }
-            Note note = noteDAO.getNoteById(pageId);
-            if (note == null) {
+            Integer notebookId = hierarchy.getNotebookIdForNote(pageId);
+            if (notebookId == null) {
                 sendError(response, HttpServletResponse.SC_NOT_FOUND, "Page not found");
                 return;
             }
             int userId = getUserId(request);
-            if (!notebookDAO.canUserAccessNotebook(userId, note.getNotebookId())) {
+            if (!notebookDAO.canUserAccessNotebook(userId, notebookId)) {
                 sendError(response, HttpServletResponse.SC_FORBIDDEN, "Access denied");
                 return;
             }
@@ -88,18 +87,14 @@ public class QnAServlet extends BaseServlet {
                 sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid question id");
                 return;
             }
-            Integer noteId = qnaDAO.getNoteIdForQuestion(questionId);
-            if (noteId == null) {
+            // Parent links are cached, so this is normally free; the access check is the one read
+            Integer notebookId = hierarchy.getNotebookIdForQuestion(questionId);
+            if (notebookId == null) {
                 sendError(response, HttpServletResponse.SC_NOT_FOUND, "Question not found");
                 return;
             }
-            Note note = noteDAO.getNoteById(noteId);
-            if (note == null) {
-                sendError(response, HttpServletResponse.SC_NOT_FOUND, "Page not found");
-                return;
-            }
             int userId = getUserId(request);
-            if (!notebookDAO.canUserAccessNotebook(userId, note.getNotebookId())) {
+            if (!notebookDAO.canUserAccessNotebook(userId, notebookId)) {
                 sendError(response, HttpServletResponse.SC_FORBIDDEN, "Access denied");
                 return;
             }
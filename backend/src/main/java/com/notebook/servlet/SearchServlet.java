@@ -0,0 +1,63 @@
+package com.notebook.servlet;
+
+import com.notebook.dao.NotebookDAO;
+import com.notebook.dao.SearchDAO;
+import com.notebook.dto.SearchResult;
+import com.notebook.search.SearchIndex;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * GET /api/search?q=...&limit=20 — ranked matches across notebook titles and
+ * page content the caller can read, with highlighted snippets
+ * GET /api/search/typeahead?q=...&limit=20 — the same matches without
+ * snippets, from the in-memory index once it is loaded
+ */
+@WebServlet(urlPatterns = {"/api/search", "/api/search/typeahead"})
+public class SearchServlet extends BaseServlet {
+
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 50;
+
+    private final SearchDAO searchDAO = new SearchDAO();
+    private final NotebookDAO notebookDAO = new NotebookDAO();
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String q = request.getParameter("q");
+        if (q == null || q.isBlank()) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Missing search query");
+            return;
+        }
+
+        int limit = DEFAULT_LIMIT;
+        String limitParam = request.getParameter("limit");
+        if (limitParam != null) {
+            try {
+                limit = Math.max(1, Math.min(MAX_LIMIT, Integer.parseInt(limitParam)));
+            } catch (NumberFormatException e) {
+                sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Invalid limit");
+                return;
+            }
+        }
+
+        int userId = getUserId(request);
+        List<SearchResult> results;
+        if ("/api/search/typeahead".equals(request.getServletPath()) && SearchIndex.isReady()) {
+            IntPredicate accessible = notebookDAO.getAccessibleNotebookIds(userId);
+            results = accessible == null ? null : SearchIndex.search(q, accessible, limit);
+        } else {
+            results = searchDAO.search(q, userId, limit);
+        }
+        if (results == null) {
+            sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Search failed");
+            return;
+        }
+        sendSuccess(response, results);
+    }
+}
@@ -1,17 +1,44 @@
 package com.notebook.util;
 
+import com.notebook.cache.RevocationList;
+import com.notebook.config.AppConfig;
 import com.notebook.config.JwtConfig;
 import com.notebook.models.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class JwtUtil {
 
     private static final SecretKey key = Keys.hmacShaKeyFor(JwtConfig.getSecret().getBytes());
 
+    // Immutable and thread-safe once built
+    private static final JwtParser parser = Jwts.parser().verifyWith(key).build();
+
+    // SHA-256 of the token → claims already verified; entries die with the token
+    private static final int MAX_CACHED_TOKENS = AppConfig.getInt("JWT_CACHE_MAX_ENTRIES", 10000);
+    private static final Map<ByteBuffer, TokenInfo> verified = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, TokenInfo> eldest) {
+            return size() > MAX_CACHED_TOKENS;
+        }
+    };
+    private static final AtomicLong cacheHits = new AtomicLong();
+    private static final AtomicLong cacheMisses = new AtomicLong();
+
+    // Logged-out token ids; checked on every verify, including cache hits
+    private static final RevocationList revocations = new RevocationList();
+
     public static String generateToken(User user) {
         Date now = new Date();
         Date expiry = new Date(now.getTime() + JwtConfig.getExpirationMs());
@@ -20,6 +47,7 @@ public class JwtUtil {
                 .header()
                     .type("JWT")
                     .and()
+                .id(UUID.randomUUID().toString())
                 .subject(String.valueOf(user.getUserId()))
                 .claim("email", user.getEmail())
                 .claim("name", user.getName())
@@ -30,24 +58,157 @@ public class JwtUtil {
     }
 
     public static Claims validateToken(String token) throws JwtException {
-        return Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
 
-    public static int getUserIdFromToken(String token) throws JwtException {
+    /**
+     * Verify a token, skipping signature checks and claim parsing for tokens
+     * already verified and not yet expired. Revoked tokens are rejected.
+     */
+    public static TokenInfo verify(String token) throws JwtException {
+        ByteBuffer digest = digest(token);
+        TokenInfo info;
+        synchronized (verified) {
+            info = verified.get(digest);
+        }
+        if (info != null && info.getExpiresAt() > System.currentTimeMillis()) {
+            cacheHits.incrementAndGet();
+            return checkNotRevoked(info);
+        }
+
+        cacheMisses.incrementAndGet();
         Claims claims = validateToken(token);
-        return Integer.parseInt(claims.getSubject());
+        try {
+            info = new TokenInfo(
+                    Integer.parseInt(claims.getSubject()),
+                    claims.get("email", String.class),
+                    claims.get("name", String.class),
+                    claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE,
+                    claims.getId());
+        } catch (NumberFormatException e) {
+            throw new MalformedJwtException("Token subject is not a user id", e);
+        }
+        synchronized (verified) {
+            verified.put(digest, info);
+        }
+        return checkNotRevoked(info);
+    }
+
+    private static TokenInfo checkNotRevoked(TokenInfo info) {
+        if (revocations.isRevoked(info.getJti())) {
+            throw new JwtException("Token has been revoked");
+        }
+        return info;
+    }
+
+    /**
+     * Reject the token from now on, until it expires. Tokens issued before
+     * the jti claim existed can't be revoked and simply run out.
+     *
+     * @return false if the token has no id
+     */
+    public static boolean revoke(TokenInfo info) {
+        if (info.getJti() == null) {
+            return false;
+        }
+        revocations.revoke(info.getJti(), info.getExpiresAt());
+        return true;
+    }
+
+    /**
+     * Restore a revocation persisted by an earlier run
+     */
+    public static void restoreRevocation(String jti, long expiresAt) {
+        revocations.revoke(jti, expiresAt);
+    }
+
+    public static int purgeExpiredRevocations() {
+        return revocations.purgeExpired();
+    }
+
+    public static Map<String, Object> revocationStats() {
+        return revocations.stats();
+    }
+
+    public static Map<String, Object> cacheStats() {
+        long h = cacheHits.get();
+        long m = cacheMisses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("hitRatio", h + m == 0 ? 0.0 : (double) h / (h + m));
+        synchronized (verified) {
+            stats.put("entries", verified.size());
+        }
+        stats.put("maxEntries", MAX_CACHED_TOKENS);
+        return stats;
+    }
+
+    private static ByteBuffer digest(String token) {
+        try {
+            // MessageDigest instances aren't thread-safe; creating one is cheap
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static int getUserIdFromToken(String token) throws JwtException {
+        return verify(token).getUserId();
     }
 
     public static boolean isTokenValid(String token) {
         try {
-            validateToken(token);
+            verify(token);
             return true;
         } catch (JwtException e) {
             return false;
         }
     }
+
+    /**
+     * Identity carried by a verified token
+     */
+    public static final class TokenInfo {
+        private final int userId;
+        private final String email;
+        private final String name;
+        private final long expiresAt;
+        private final String jti;
+
+        TokenInfo(int userId, String email, String name, long expiresAt, String jti) {
+            this.userId = userId;
+            this.email = email;
+            this.name = name;
+            this.expiresAt = expiresAt;
+            this.jti = jti;
+        }
+
+        public int getUserId() {
+            return userId;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Expiry in epoch milliseconds
+         */
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        /**
+         * Token id (jti claim); null for tokens issued before it was added
+         */
+        public String getJti() {
+            return jti;
+        }
+    }
 }
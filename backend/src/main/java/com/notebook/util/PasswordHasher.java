@@ -0,0 +1,118 @@
+package com.notebook.util;
+
+import com.notebook.config.AppConfig;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs BCrypt hashing and verification on a small dedicated pool, so a burst
+ * of logins can't occupy every request thread. The queue is bounded: once it
+ * is full, work is rejected immediately and callers answer 503.
+ */
+public class PasswordHasher {
+
+    private static final int THREADS = AppConfig.getInt("BCRYPT_THREADS",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int QUEUE_SIZE = AppConfig.getInt("BCRYPT_QUEUE_SIZE", 64);
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            THREADS, THREADS, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_SIZE),
+            r -> {
+                Thread thread = new Thread(r, "bcrypt-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+
+    private static final AtomicLong completed = new AtomicLong();
+    private static final AtomicLong rejected = new AtomicLong();
+    private static final AtomicLong queueWaitNanos = new AtomicLong();
+    private static final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    private static final AtomicLong hashNanos = new AtomicLong();
+    private static final AtomicLong maxHashNanos = new AtomicLong();
+
+    /**
+     * Verify a password off the request thread. Fails with
+     * RejectedExecutionException when the queue is full.
+     */
+    public static CompletableFuture<Boolean> check(String plainPassword, String hashedPassword) {
+        return submit(() -> PasswordUtil.checkPassword(plainPassword, hashedPassword));
+    }
+
+    /**
+     * Hash a new password off the request thread. Fails with
+     * RejectedExecutionException when the queue is full.
+     */
+    public static CompletableFuture<String> hash(String plainPassword) {
+        return submit(() -> PasswordUtil.hashPassword(plainPassword));
+    }
+
+    /**
+     * True if the failure of a {@link #check} or {@link #hash} future means "too busy"
+     */
+    public static boolean isRejection(Throwable error) {
+        Throwable cause = error;
+        while (cause != null) {
+            if (cause instanceof RejectedExecutionException) {
+                return true;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+    private static <T> CompletableFuture<T> submit(Supplier<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long enqueued = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long started = System.nanoTime();
+                record(queueWaitNanos, maxQueueWaitNanos, started - enqueued);
+                try {
+                    future.complete(work.get());
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    record(hashNanos, maxHashNanos, System.nanoTime() - started);
+                    completed.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static void record(AtomicLong total, AtomicLong max, long nanos) {
+        total.addAndGet(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    public static Map<String, Object> stats() {
+        long done = completed.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("threads", THREADS);
+        stats.put("queueCapacity", QUEUE_SIZE);
+        stats.put("queueDepth", executor.getQueue().size());
+        stats.put("active", executor.getActiveCount());
+        stats.put("completed", done);
+        stats.put("rejected", rejected.get());
+        stats.put("avgQueueWaitMs", done == 0 ? 0.0 : queueWaitNanos.get() / 1e6 / done);
+        stats.put("maxQueueWaitMs", maxQueueWaitNanos.get() / 1e6);
+        stats.put("avgHashMs", done == 0 ? 0.0 : hashNanos.get() / 1e6 / done);
+        stats.put("maxHashMs", maxHashNanos.get() / 1e6);
+        return stats;
+    }
+}
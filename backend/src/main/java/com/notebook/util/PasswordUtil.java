@@ -1,10 +1,17 @@
 package com.notebook.util;
 
+import com.notebook.config.AppConfig;
 import org.mindrot.jbcrypt.BCrypt;
 
 public class PasswordUtil {
 
-    private static final int BCRYPT_ROUNDS = 12;
+    private static final int MIN_ROUNDS = AppConfig.getInt("BCRYPT_MIN_ROUNDS", 12);
+    private static final int MAX_ROUNDS = AppConfig.getInt("BCRYPT_MAX_ROUNDS", 14);
+    // Lets a lower target cost also rewrite stronger stored hashes (e.g. to undo a mistaken raise)
+    private static final boolean ALLOW_DOWNGRADE = AppConfig.getBoolean("BCRYPT_ALLOW_DOWNGRADE", false);
+
+    // Fixed by BCRYPT_ROUNDS, otherwise calibrated to BCRYPT_TARGET_MS on this machine
+    private static final int BCRYPT_ROUNDS = chooseRounds();
 
     public static String hashPassword(String plainPassword) {
         return BCrypt.hashpw(plainPassword, BCrypt.gensalt(BCRYPT_ROUNDS));
@@ -17,4 +24,56 @@ public class PasswordUtil {
             return false;
         }
     }
+
+    /**
+     * Cost factor new hashes are created with
+     */
+    public static int getRounds() {
+        return BCRYPT_ROUNDS;
+    }
+
+    /**
+     * True if the hash was made with a lower cost than this node targets.
+     * A node calibrated on slower hardware never weakens stronger hashes
+     * unless BCRYPT_ALLOW_DOWNGRADE is set.
+     */
+    public static boolean needsRehash(String hashedPassword) {
+        // $2a$12$<salt+hash>
+        if (hashedPassword == null || hashedPassword.length() < 7 || hashedPassword.charAt(3) != '$') {
+            return false;
+        }
+        try {
+            int cost = Integer.parseInt(hashedPassword.substring(4, 6));
+            return cost < BCRYPT_ROUNDS || (ALLOW_DOWNGRADE && cost != BCRYPT_ROUNDS);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static int chooseRounds() {
+        int fixed = AppConfig.getInt("BCRYPT_ROUNDS", 0);
+        if (fixed > 0) {
+            return fixed;
+        }
+        long targetMs = AppConfig.getLong("BCRYPT_TARGET_MS", 250);
+
+        // Each extra round doubles the work, so one timing at the minimum cost predicts the rest
+        String salt = BCrypt.gensalt(MIN_ROUNDS);
+        BCrypt.hashpw("calibration", salt); // warm-up
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", salt);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double baseMs = best / 1e6;
+
+        int rounds = MIN_ROUNDS;
+        while (rounds < MAX_ROUNDS && baseMs * (1L << (rounds + 1 - MIN_ROUNDS)) <= targetMs) {
+            rounds++;
+        }
+        System.out.println("BCrypt cost " + rounds + " (cost " + MIN_ROUNDS + " took "
+                + String.format("%.1f", baseMs) + " ms, target " + targetMs + " ms)");
+        return rounds;
+    }
 }
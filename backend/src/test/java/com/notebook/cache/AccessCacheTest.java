@@ -0,0 +1,83 @@
+package com.notebook.cache;
+
+import com.notebook.cache.AccessCache.Role;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class AccessCacheTest {
+
+    @Test
+    public void cachesLoadedRoles() {
+        AccessCache cache = new AccessCache(100, 60_000);
+        assertNull(cache.get(1, 10));
+        cache.put(1, 10, Role.EDITOR, cache.beginLoad(10));
+        assertEquals(Role.EDITOR, cache.get(1, 10));
+        assertEquals(1L, cache.stats().get("hits"));
+        assertEquals(1L, cache.stats().get("misses"));
+    }
+
+    @Test
+    public void notebookInvalidationDropsEveryUser() {
+        AccessCache cache = new AccessCache(100, 60_000);
+        cache.put(1, 10, Role.PUBLIC, cache.beginLoad(10));
+        cache.put(2, 10, Role.OWNER, cache.beginLoad(10));
+        cache.put(1, 11, Role.VIEWER, cache.beginLoad(11));
+
+        cache.invalidateNotebook(10);
+
+        assertNull(cache.get(1, 10));
+        assertNull(cache.get(2, 10));
+        assertEquals(Role.VIEWER, cache.get(1, 11));
+    }
+
+    @Test
+    public void userInvalidationDropsOnlyThatUser() {
+        AccessCache cache = new AccessCache(100, 60_000);
+        cache.put(1, 10, Role.VIEWER, cache.beginLoad(10));
+        cache.put(2, 10, Role.OWNER, cache.beginLoad(10));
+
+        cache.invalidate(1, 10);
+
+        assertNull(cache.get(1, 10));
+        assertEquals(Role.OWNER, cache.get(2, 10));
+    }
+
+    @Test
+    public void loadOverlappingAWriteIsNotCached() {
+        AccessCache cache = new AccessCache(100, 60_000);
+        long token = cache.beginLoad(10);
+        cache.invalidate(1, 10);
+        cache.put(1, 10, Role.EDITOR, token);
+        assertNull(cache.get(1, 10));
+    }
+
+    @Test
+    public void expiresAndEvicts() throws InterruptedException {
+        AccessCache expiring = new AccessCache(100, 1);
+        expiring.put(1, 10, Role.VIEWER, expiring.beginLoad(10));
+        Thread.sleep(5);
+        assertNull(expiring.get(1, 10));
+
+        AccessCache small = new AccessCache(2, 60_000);
+        small.put(1, 1, Role.VIEWER, small.beginLoad(1));
+        small.put(1, 2, Role.VIEWER, small.beginLoad(2));
+        small.get(1, 1);
+        small.put(1, 3, Role.VIEWER, small.beginLoad(3));
+        assertNull(small.get(1, 2));
+        assertEquals(Role.VIEWER, small.get(1, 1));
+    }
+
+    @Test
+    public void manyNotebooksShareTheStripedCounters() {
+        AccessCache cache = new AccessCache(10, 60_000);
+        for (int notebookId = 0; notebookId < 200_000; notebookId++) {
+            cache.invalidateNotebook(notebookId);
+            cache.put(1, notebookId, Role.PUBLIC, cache.beginLoad(notebookId));
+        }
+        // The most recent entries are still valid despite sharing stripes with older notebooks
+        assertEquals(Role.PUBLIC, cache.get(1, 199_999));
+        assertEquals(10, cache.stats().get("entries"));
+    }
+}
@@ -0,0 +1,55 @@
+package com.notebook.cache;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BloomFilterTest {
+
+    @Test
+    public void addedValuesAreAlwaysFound() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("user" + i + "@example.com");
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("user" + i + "@example.com"));
+        }
+    }
+
+    @Test
+    public void falsePositiveRateStaysNearTarget() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("user" + i + "@example.com");
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other" + i + "@example.com")) {
+                falsePositives++;
+            }
+        }
+        // 1% target; allow for hash quality and sampling
+        assertTrue("false positives: " + falsePositives, falsePositives < 2_000);
+    }
+
+    @Test
+    public void emptyFilterContainsNothing() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+        assertFalse(filter.mightContain("a@example.com"));
+        assertFalse(filter.mightContain(""));
+    }
+
+    @Test
+    public void reportsOverCapacity() {
+        BloomFilter filter = new BloomFilter(2, 0.01);
+        filter.add("a");
+        filter.add("b");
+        assertFalse(filter.isOverCapacity());
+        filter.add("c");
+        assertTrue(filter.isOverCapacity());
+        assertEquals(3L, filter.stats().get("added"));
+    }
+}
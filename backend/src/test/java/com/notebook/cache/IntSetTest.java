@@ -0,0 +1,59 @@
+package com.notebook.cache;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IntSetTest {
+
+    @Test
+    public void ofSortsAndDropsDuplicates() {
+        IntSet set = IntSet.of(5, 1, 3, 1, 5);
+        assertArrayEquals(new int[] {1, 3, 5}, set.toArray());
+        assertTrue(set.contains(3));
+        assertFalse(set.contains(2));
+        assertSame(IntSet.EMPTY, IntSet.of());
+    }
+
+    @Test
+    public void withKeepsOrder() {
+        IntSet set = IntSet.of(2, 4);
+        assertArrayEquals(new int[] {1, 2, 4}, set.with(1).toArray());
+        assertArrayEquals(new int[] {2, 3, 4}, set.with(3).toArray());
+        assertArrayEquals(new int[] {2, 4, 9}, set.with(9).toArray());
+        assertSame(set, set.with(4));
+        assertArrayEquals(new int[] {2, 4}, set.toArray());
+    }
+
+    @Test
+    public void withoutRemovesOnlyThatValue() {
+        IntSet set = IntSet.of(1, 2, 3);
+        assertArrayEquals(new int[] {1, 3}, set.without(2).toArray());
+        assertArrayEquals(new int[] {2, 3}, set.without(1).toArray());
+        assertArrayEquals(new int[] {1, 2}, set.without(3).toArray());
+        assertSame(set, set.without(7));
+        assertSame(IntSet.EMPTY, IntSet.of(1).without(1));
+    }
+
+    @Test
+    public void unionMergesWithoutDuplicates() {
+        IntSet a = IntSet.of(1, 3, 5, 7);
+        IntSet b = IntSet.of(2, 3, 8);
+        assertArrayEquals(new int[] {1, 2, 3, 5, 7, 8}, a.union(b).toArray());
+        assertArrayEquals(new int[] {1, 2, 3, 5, 7, 8}, b.union(a).toArray());
+        assertSame(a, a.union(IntSet.EMPTY));
+        assertSame(b, IntSet.EMPTY.union(b));
+        assertArrayEquals(a.toArray(), a.union(a).toArray());
+    }
+
+    @Test
+    public void toArrayIsACopy() {
+        IntSet set = IntSet.of(1, 2);
+        set.toArray()[0] = 99;
+        assertTrue(set.contains(1));
+        assertArrayEquals(new Integer[] {1, 2}, set.toBoxedArray());
+    }
+}
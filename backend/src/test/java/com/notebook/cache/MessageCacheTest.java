@@ -0,0 +1,157 @@
+package com.notebook.cache;
+
+import com.notebook.chat.ChatHub;
+import com.notebook.models.Message;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MessageCacheTest {
+
+    private static int nextNotebook = 1000;
+
+    private static Message message(int notebookId, int messageId, String type) {
+        Message message = new Message();
+        message.setNotebookId(notebookId);
+        message.setMessageId(messageId);
+        message.setType(type);
+        message.setMessageText("message " + messageId);
+        return message;
+    }
+
+    private static List<Message> messages(int notebookId, int fromId, int toId) {
+        List<Message> list = new ArrayList<>();
+        for (int id = fromId; id <= toId; id++) {
+            list.add(message(notebookId, id, id % 2 == 0 ? "chat" : "sticky"));
+        }
+        return list;
+    }
+
+    private static List<Integer> ids(List<Message> messages) {
+        List<Integer> ids = new ArrayList<>();
+        for (Message message : messages) {
+            ids.add(message.getMessageId());
+        }
+        return ids;
+    }
+
+    private static MessageCache.Snapshot fill(MessageCache cache, int notebookId, List<Message> rows) {
+        return cache.fill(notebookId, rows, ChatHub.currentVersion(notebookId));
+    }
+
+    @Test
+    public void shortHistoryIsComplete() {
+        MessageCache cache = new MessageCache(5, Long.MAX_VALUE);
+        int notebookId = nextNotebook++;
+        fill(cache, notebookId, messages(notebookId, 1, 3));
+
+        MessageCache.Snapshot snapshot = cache.get(notebookId);
+        assertTrue(snapshot.isComplete());
+        assertEquals(List.of(1, 2, 3), ids(snapshot.all(null)));
+        assertEquals(List.of(2), ids(snapshot.all("chat")));
+        assertEquals(List.of(2, 3), ids(snapshot.newest(2, null)));
+    }
+
+    @Test
+    public void extraRowMarksHistoryIncomplete() {
+        MessageCache cache = new MessageCache(3, Long.MAX_VALUE);
+        int notebookId = nextNotebook++;
+        // capacity + 1 rows: the oldest only says there is more
+        fill(cache, notebookId, messages(notebookId, 10, 13));
+
+        MessageCache.Snapshot snapshot = cache.get(notebookId);
+        assertFalse(snapshot.isComplete());
+        assertEquals(List.of(11, 12, 13), ids(snapshot.all(null)));
+        assertTrue(snapshot.coversAfter(10));
+        assertFalse(snapshot.coversAfter(9));
+        // Only one chat message is cached, so two can't be answered from memory
+        assertNull(snapshot.newest(2, "chat"));
+        assertEquals(List.of(12, 13), ids(snapshot.newest(2, null)));
+    }
+
+    @Test
+    public void ringDropsOldestAndRaisesFloor() {
+        MessageCache cache = new MessageCache(3, Long.MAX_VALUE);
+        int notebookId = nextNotebook++;
+        fill(cache, notebookId, messages(notebookId, 1, 3));
+
+        cache.append(message(notebookId, 4, "chat"));
+        cache.append(message(notebookId, 5, "chat"));
+
+        MessageCache.Snapshot snapshot = cache.get(notebookId);
+        assertEquals(List.of(3, 4, 5), ids(snapshot.all(null)));
+        assertFalse(snapshot.isComplete());
+        assertTrue(snapshot.coversAfter(2));
+        assertFalse(snapshot.coversAfter(1));
+    }
+
+    @Test
+    public void outOfOrderAppendsStaySortedWithoutDuplicates() {
+        MessageCache cache = new MessageCache(4, Long.MAX_VALUE);
+        int notebookId = nextNotebook++;
+        fill(cache, notebookId, messages(notebookId, 1, 2));
+
+        cache.append(message(notebookId, 5, "chat"));
+        cache.append(message(notebookId, 3, "chat"));
+        cache.append(message(notebookId, 5, "chat"));
+        // Older than everything in the now-full ring: it only raises the floor
+        cache.append(message(notebookId, 6, "chat"));
+        cache.append(message(notebookId, 1, "chat"));
+
+        MessageCache.Snapshot snapshot = cache.get(notebookId);
+        assertEquals(List.of(2, 3, 5, 6), ids(snapshot.all(null)));
+        assertFalse(snapshot.coversAfter(0));
+        assertTrue(snapshot.coversAfter(1));
+    }
+
+    @Test
+    public void fillIsNotCachedIfVersionMoved() {
+        MessageCache cache = new MessageCache(5, Long.MAX_VALUE);
+        int notebookId = nextNotebook++;
+        long version = ChatHub.currentVersion(notebookId);
+        ChatHub.recordChange(notebookId);
+
+        MessageCache.Snapshot loaded = cache.fill(notebookId, messages(notebookId, 1, 2), version);
+        assertEquals(List.of(1, 2), ids(loaded.all(null)));
+        assertNull(cache.get(notebookId));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedPastByteCap() {
+        MessageCache cache = new MessageCache(10, 1000);
+        int first = nextNotebook++;
+        int second = nextNotebook++;
+        fill(cache, first, messages(first, 1, 3));
+        fill(cache, second, messages(second, 1, 3));
+        cache.get(first);
+        int third = nextNotebook++;
+        fill(cache, third, messages(third, 1, 3));
+
+        assertNotNull(cache.get(first));
+        assertNull(cache.get(second));
+        assertEquals(1L, cache.stats().get("evictions"));
+    }
+
+    @Test
+    public void countsHitsOnlyWhenCachedRowsAnswer() {
+        MessageCache cache = new MessageCache(3, Long.MAX_VALUE);
+        int notebookId = nextNotebook++;
+        MessageCache.Snapshot loaded = fill(cache, notebookId, messages(notebookId, 1, 4));
+        cache.recordLookup(loaded, true);
+
+        MessageCache.Snapshot cached = cache.get(notebookId);
+        cache.recordLookup(cached, cached.newest(3, null) != null);
+        cache.recordLookup(cached, cached.newest(3, "chat") != null);
+        cache.recordLookup(null, false);
+
+        assertEquals(1L, cache.stats().get("hits"));
+        assertEquals(3L, cache.stats().get("misses"));
+    }
+}
@@ -0,0 +1,60 @@
+package com.notebook.cache;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Cost of the per-request revocation check with 1M revoked tokens.
+ * Needs a few hundred MB of heap, so it only runs with AUTH_BENCHMARK=true.
+ */
+public class RevocationListBenchmarkTest {
+
+    private static final int REVOKED = 1_000_000;
+    private static final int LOOKUPS = 1_000_000;
+
+    @Test
+    public void checkStaysInMicroseconds() {
+        assumeTrue("set AUTH_BENCHMARK=true to run", "true".equalsIgnoreCase(System.getenv("AUTH_BENCHMARK")));
+        RevocationList list = new RevocationList();
+        long expiresAt = System.currentTimeMillis() + 3_600_000;
+        String[] revoked = new String[REVOKED];
+        for (int i = 0; i < REVOKED; i++) {
+            revoked[i] = UUID.randomUUID().toString();
+            list.revoke(revoked[i], expiresAt + i);
+        }
+        String[] active = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            active[i] = UUID.randomUUID().toString();
+        }
+
+        // Warm up, then time revoked and active tokens separately
+        timeLookups(list, revoked, REVOKED);
+        timeLookups(list, active, 0);
+        double hit = timeLookups(list, revoked, REVOKED);
+        double miss = timeLookups(list, active, 0);
+        System.out.printf("%d revoked: revoked token %.0f ns/check, active token %.0f ns/check%n", REVOKED, hit, miss);
+
+        assertEquals(REVOKED, list.stats().get("revoked"));
+        assertTrue("revoked check took " + hit + " ns", hit < 2_000);
+        assertTrue("active check took " + miss + " ns", miss < 2_000);
+    }
+
+    private static double timeLookups(RevocationList list, String[] jtis, int expectedRevoked) {
+        int found = 0;
+        long start = System.nanoTime();
+        for (String jti : jtis) {
+            if (list.isRevoked(jti)) {
+                found++;
+            }
+        }
+        double nanos = (double) (System.nanoTime() - start) / jtis.length;
+        // Also keeps the result live so the JIT can't drop the lookups
+        assertEquals(expectedRevoked, found);
+        return nanos;
+    }
+}
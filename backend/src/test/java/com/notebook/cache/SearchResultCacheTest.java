@@ -0,0 +1,71 @@
+package com.notebook.cache;
+
+import com.notebook.cache.SearchResultCache.Row;
+import com.notebook.models.Notebook;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class SearchResultCacheTest {
+
+    private static final List<Row> ROWS = List.of(new Row(new Notebook(), 1f));
+
+    @Test
+    public void userInvalidationKeepsPublicPagesAndOtherOverlays() {
+        SearchResultCache cache = new SearchResultCache(100, 60_000);
+        cache.putPublicPage("linear", 20, null, 0, ROWS, cache.beginLoad());
+        cache.putOverlay(1, "linear", ROWS, cache.beginLoad());
+        cache.putOverlay(2, "linear", ROWS, cache.beginLoad());
+
+        cache.invalidateUser(1);
+
+        assertNotNull(cache.getPublicPage("linear", 20, null, 0));
+        assertNull(cache.getOverlay(1, "linear"));
+        assertNotNull(cache.getOverlay(2, "linear"));
+    }
+
+    @Test
+    public void publicInvalidationKeepsOverlays() {
+        SearchResultCache cache = new SearchResultCache(100, 60_000);
+        cache.putPublicPage("linear", 20, null, 0, ROWS, cache.beginLoad());
+        cache.putOverlay(1, "linear", ROWS, cache.beginLoad());
+
+        cache.invalidatePublic();
+
+        assertNull(cache.getPublicPage("linear", 20, null, 0));
+        assertNotNull(cache.getOverlay(1, "linear"));
+    }
+
+    @Test
+    public void invalidateAllDropsEverything() {
+        SearchResultCache cache = new SearchResultCache(100, 60_000);
+        cache.putPublicPage("linear", 20, null, 0, ROWS, cache.beginLoad());
+        cache.putOverlay(1, "linear", ROWS, cache.beginLoad());
+
+        cache.invalidateAll();
+
+        assertNull(cache.getPublicPage("linear", 20, null, 0));
+        assertNull(cache.getOverlay(1, "linear"));
+    }
+
+    @Test
+    public void loadOverlappingInvalidationIsNotCached() {
+        SearchResultCache cache = new SearchResultCache(100, 60_000);
+        long publicLoad = cache.beginLoad();
+        long overlayLoad = cache.beginLoad();
+        long otherLoad = cache.beginLoad();
+
+        cache.invalidatePublic();
+        cache.invalidateUser(1);
+
+        cache.putPublicPage("linear", 20, null, 0, ROWS, publicLoad);
+        cache.putOverlay(1, "linear", ROWS, overlayLoad);
+        cache.putOverlay(2, "linear", ROWS, otherLoad);
+        assertNull(cache.getPublicPage("linear", 20, null, 0));
+        assertNull(cache.getOverlay(1, "linear"));
+        assertNotNull(cache.getOverlay(2, "linear"));
+    }
+}
@@ -0,0 +1,186 @@
+package com.notebook.chat;
+
+import com.notebook.chat.ChatSocketSession.SlowConsumerPolicy;
+import com.notebook.models.Message;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.SendHandler;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Broadcast latency to 10k chat sockets on one notebook while a tenth of them
+ * never finish a send, under each slow-consumer policy, against the same
+ * fan-out with no stalled sockets. The sockets are in-process stand-ins for
+ * the container's async remote (healthy ones complete each send on a
+ * container-like thread pool, stalled ones never call back), so this measures
+ * ChatHub and the per-session queues rather than the network. Only runs with
+ * CHAT_WS_BENCHMARK=true.
+ */
+public class ChatSocketSessionBenchmarkTest {
+
+    private static final int SESSIONS = 10_000;
+    private static final int STALL_EVERY = 10;
+    private static final int QUEUE_SIZE = 64;
+    private static final int WARMUP = 100;
+    private static final int BROADCASTS = 1000;
+
+    private static final AtomicInteger nextNotebookId = new AtomicInteger(900_000);
+
+    @Test
+    public void stalledSessionsDoNotSlowHealthyOnes() throws InterruptedException {
+        assumeTrue("set CHAT_WS_BENCHMARK=true to run", "true".equalsIgnoreCase(System.getenv("CHAT_WS_BENCHMARK")));
+        ExecutorService container = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            for (SlowConsumerPolicy policy : SlowConsumerPolicy.values()) {
+                long disconnectsBefore = ChatSocketSession.slowDisconnects();
+                Fanout healthy = new Fanout(policy, false, container);
+                Fanout stalled = new Fanout(policy, true, container);
+                double[][] times;
+                try {
+                    // Alternate between the two so GC pauses and noisy neighbours hit both alike
+                    times = new double[2][BROADCASTS];
+                    for (int i = 0; i < WARMUP + BROADCASTS; i++) {
+                        double h = healthy.broadcast(i);
+                        double s = stalled.broadcast(i);
+                        if (i >= WARMUP) {
+                            times[0][i - WARMUP] = h;
+                            times[1][i - WARMUP] = s;
+                        }
+                    }
+                } finally {
+                    healthy.close();
+                    stalled.close();
+                }
+                long disconnects = ChatSocketSession.slowDisconnects() - disconnectsBefore;
+                double[] base = percentiles(times[0]);
+                double[] slow = percentiles(times[1]);
+                System.out.printf("%-10s no stalls p50 %6.2f ms p99 %6.2f ms   %d stalled p50 %6.2f ms p99 %6.2f ms%n",
+                        policy, base[0], base[1], SESSIONS / STALL_EVERY, slow[0], slow[1]);
+
+                assertTrue(policy + " p50 went from " + base[0] + " to " + slow[0] + " ms", slow[0] < 2 * base[0] + 1);
+                assertTrue(policy + " p99 went from " + base[1] + " to " + slow[1] + " ms", slow[1] < 2 * base[1] + 5);
+                if (policy == SlowConsumerPolicy.DISCONNECT) {
+                    assertEquals(SESSIONS / STALL_EVERY, disconnects);
+                }
+            }
+        } finally {
+            container.shutdownNow();
+        }
+    }
+
+    private static double[] percentiles(double[] times) {
+        Arrays.sort(times);
+        return new double[] {times[times.length / 2], times[times.length * 99 / 100]};
+    }
+
+    /**
+     * SESSIONS sockets subscribed to a notebook of their own, every tenth stalled if asked
+     */
+    private static final class Fanout {
+        final int notebookId = nextNotebookId.getAndIncrement();
+        final AtomicReference<CountDownLatch> delivered = new AtomicReference<>();
+        final List<ChatSocketSession> sessions = new ArrayList<>(SESSIONS);
+        int healthy;
+
+        Fanout(SlowConsumerPolicy policy, boolean stall, ExecutorService container) {
+            for (int i = 0; i < SESSIONS; i++) {
+                boolean stalled = stall && i % STALL_EVERY == 0;
+                if (!stalled) {
+                    healthy++;
+                }
+                ChatSocketSession session = new ChatSocketSession(
+                        fakeSession(stalled, delivered, container), notebookId, i, policy, QUEUE_SIZE);
+                session.subscribe();
+                sessions.add(session);
+            }
+        }
+
+        /**
+         * Milliseconds from publishing a message until every healthy session has finished sending it
+         */
+        double broadcast(int messageId) throws InterruptedException {
+            Message message = new Message();
+            message.setMessageId(messageId);
+            message.setNotebookId(notebookId);
+            message.setMessageText("broadcast " + messageId);
+            CountDownLatch latch = new CountDownLatch(healthy);
+            delivered.set(latch);
+
+            long start = System.nanoTime();
+            ChatHub.messageSent(message, ChatHub.recordChange(notebookId));
+            assertTrue("healthy sessions missed broadcast " + messageId, latch.await(10, TimeUnit.SECONDS));
+            return (System.nanoTime() - start) / 1e6;
+        }
+
+        void close() {
+            for (ChatSocketSession session : sessions) {
+                session.close(null);
+            }
+        }
+    }
+
+    /**
+     * A session whose async sends either complete on the container pool or never complete
+     */
+    private static Session fakeSession(boolean stalled, AtomicReference<CountDownLatch> delivered,
+            ExecutorService container) {
+        RemoteEndpoint.Async remote = proxy(RemoteEndpoint.Async.class, (method, args) -> {
+            if (method.equals("sendText") && !stalled) {
+                CountDownLatch latch = delivered.get();
+                SendHandler handler = (SendHandler) args[1];
+                container.execute(() -> {
+                    handler.onResult(new SendResult());
+                    latch.countDown();
+                });
+            }
+            return null;
+        });
+        return proxy(Session.class, (method, args) -> switch (method) {
+            case "getAsyncRemote" -> remote;
+            case "isOpen" -> true;
+            case "getUserProperties" -> new HashMap<>();
+            default -> null;
+        });
+    }
+
+    private interface Handler {
+        Object invoke(String method, Object[] args);
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (self, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return self == args[0];
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "toString":
+                    return type.getSimpleName();
+                default:
+                    Object result = handler.invoke(method.getName(), args);
+                    if (result == null && method.getReturnType() == long.class) {
+                        return 0L;
+                    }
+                    return result;
+            }
+        });
+        return type.cast(proxy);
+    }
+}
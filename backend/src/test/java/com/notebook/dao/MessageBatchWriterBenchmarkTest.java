@@ -0,0 +1,176 @@
+package com.notebook.dao;
+
+import com.notebook.config.DatabaseConfig;
+import com.notebook.models.Message;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Sustained 1,000 messages/s against a real database, batched versus one
+ * insert per message the way sendMessage does it without batching (a
+ * connection checkout per message from a pool of request threads). Writes
+ * rows, so it only runs with CHAT_BENCHMARK=true and DATABASE_URL pointing
+ * at a scratch database.
+ */
+public class MessageBatchWriterBenchmarkTest {
+
+    private static final int RATE_PER_SECOND = 1000;
+    private static final int SECONDS = 5;
+    // Tomcat's default maxThreads
+    private static final int REQUEST_THREADS = 200;
+
+    private int userId;
+    private int notebookId;
+
+    @Before
+    public void createNotebook() throws SQLException {
+        assumeTrue("set CHAT_BENCHMARK=true to run", "true".equalsIgnoreCase(System.getenv("CHAT_BENCHMARK")));
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            userId = insertReturningId(conn,
+                    "INSERT INTO Users (name, email, password_hash) VALUES ('Benchmark', ?, 'x') RETURNING user_id",
+                    "chat-benchmark-" + System.nanoTime() + "@example.com");
+            notebookId = insertReturningId(conn,
+                    "INSERT INTO Notebooks (title, owner_id) VALUES ('Chat benchmark', " + userId + ") RETURNING notebook_id",
+                    null);
+        }
+    }
+
+    @After
+    public void dropNotebook() throws SQLException {
+        if (userId == 0) {
+            return;
+        }
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement notebook = conn.prepareStatement("DELETE FROM Notebooks WHERE notebook_id = ?");
+                PreparedStatement user = conn.prepareStatement("DELETE FROM Users WHERE user_id = ?")) {
+            notebook.setInt(1, notebookId);
+            notebook.executeUpdate();
+            user.setInt(1, userId);
+            user.executeUpdate();
+        }
+    }
+
+    @Test
+    public void sustainsOneThousandMessagesPerSecond() throws Exception {
+        MessageDAO messageDAO = new MessageDAO();
+        ExecutorService requestThreads = Executors.newFixedThreadPool(REQUEST_THREADS);
+        Result unbatched;
+        try {
+            unbatched = run(text -> CompletableFuture.supplyAsync(() -> {
+                Message stored = messageDAO.insertMessage(notebookId, userId, text, "chat");
+                if (stored == null) {
+                    throw new IllegalStateException("insert failed");
+                }
+                return stored;
+            }, requestThreads));
+        } finally {
+            requestThreads.shutdownNow();
+        }
+        MessageBatchWriter writer = new MessageBatchWriter(5, 200, 100_000, m -> {});
+        Result batched = run(text -> writer.submit(notebookId, userId, text, "chat"));
+        System.out.println("one insert per message: " + unbatched);
+        System.out.println("batched (5 ms window):  " + batched);
+
+        assertEquals(0, batched.failed);
+        assertTrue("batched writes fell behind: " + batched, batched.throughput >= RATE_PER_SECOND * 0.95);
+        assertTrue("batched p99 too high: " + batched, batched.p99Millis < 250);
+    }
+
+    private Result run(Function<String, CompletableFuture<Message>> send) throws Exception {
+        int total = RATE_PER_SECOND * SECONDS;
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        List<CompletableFuture<Message>> futures = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger sent = new AtomicInteger();
+
+        // Open loop: one send per millisecond whether or not earlier ones are done
+        ScheduledExecutorService clock = Executors.newSingleThreadScheduledExecutor();
+        long start = System.nanoTime();
+        clock.scheduleAtFixedRate(() -> {
+            int n = sent.incrementAndGet();
+            if (n > total) {
+                return;
+            }
+            long submitted = System.nanoTime();
+            futures.add(send.apply("benchmark " + n).whenComplete((m, e) -> {
+                if (e != null) {
+                    failed.incrementAndGet();
+                }
+                latencies.add(System.nanoTime() - submitted);
+            }));
+        }, 0, 1_000_000 / RATE_PER_SECOND, TimeUnit.MICROSECONDS);
+
+        while (sent.get() < total) {
+            Thread.sleep(10);
+        }
+        clock.shutdown();
+        List<CompletableFuture<Message>> all;
+        synchronized (futures) {
+            all = new ArrayList<>(futures);
+        }
+        try {
+            CompletableFuture.allOf(all.toArray(new CompletableFuture<?>[0])).get(60, TimeUnit.SECONDS);
+        } catch (Exception ignored) {
+            // Failures are counted per future
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return new Result(total / seconds,
+                sorted.get(sorted.size() / 2) / 1e6,
+                sorted.get((int) (sorted.size() * 0.99)) / 1e6,
+                failed.get());
+    }
+
+    private static int insertReturningId(Connection conn, String sql, String param) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            if (param != null) {
+                stmt.setString(1, param);
+            }
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static final class Result {
+        final double throughput;
+        final double p50Millis;
+        final double p99Millis;
+        final int failed;
+
+        Result(double throughput, double p50Millis, double p99Millis, int failed) {
+            this.throughput = throughput;
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+            this.failed = failed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.0f msg/s, p50 %.1f ms, p99 %.1f ms, %d failed", throughput, p50Millis, p99Millis, failed);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.notebook.dao;
+
+import org.junit.Test;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MessageBatchWriterTest {
+
+    @Test
+    public void integrityAndDataErrorsAreRetriedPerRow() {
+        assertTrue(MessageBatchWriter.isDataError(new SQLException("fk", "23503")));
+        assertTrue(MessageBatchWriter.isDataError(new SQLException("bad enum", "22P02")));
+    }
+
+    @Test
+    public void connectionErrorsFailFast() {
+        assertFalse(MessageBatchWriter.isDataError(new SQLTransientConnectionException("pool timeout")));
+        assertFalse(MessageBatchWriter.isDataError(new SQLException("connection lost", "08006")));
+        assertFalse(MessageBatchWriter.isDataError(new SQLException("shutting down", "57P01")));
+    }
+
+    @Test
+    public void looksThroughBatchChains() {
+        BatchUpdateException batch = new BatchUpdateException("batch entry 3 failed", null, 0, new int[0]);
+        batch.setNextException(new SQLException("fk", "23503"));
+        assertTrue(MessageBatchWriter.isDataError(batch));
+
+        SQLException wrapped = new SQLException("wrapped", null, new SQLException("unique", "23505"));
+        assertTrue(MessageBatchWriter.isDataError(wrapped));
+    }
+}
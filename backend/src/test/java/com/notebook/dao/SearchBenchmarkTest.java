@@ -0,0 +1,154 @@
+package com.notebook.dao;
+
+import com.notebook.config.DatabaseConfig;
+import com.notebook.dto.SearchResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Full-text search over 1M pages versus the ILIKE '%q%' scan it replaced.
+ * Seeds rows, so it only runs with SEARCH_BENCHMARK=true and DATABASE_URL
+ * pointing at a scratch database. SEARCH_BENCHMARK_NOTES overrides the page count.
+ */
+public class SearchBenchmarkTest {
+
+    private static final int RUNS = 10;
+    private static final int LIMIT = 20;
+
+    // Visible pages containing the pattern, like the search endpoint's access check
+    private static final String ILIKE_SQL = "SELECT nt.note_id, nt.notebook_id FROM Notes nt " +
+            "JOIN Notebooks nb ON nb.notebook_id = nt.notebook_id " +
+            "WHERE nt.content ILIKE ? AND (nb.visibility = 'Public' OR nb.owner_id = ? OR EXISTS (" +
+            "SELECT 1 FROM NotebookCollaborators nc WHERE nc.notebook_id = nb.notebook_id AND nc.user_id = ?)) " +
+            "LIMIT ?";
+
+    private final SearchDAO searchDAO = new SearchDAO();
+    private int userId;
+    private int notebookId;
+
+    @Before
+    public void seedNotes() throws SQLException {
+        assumeTrue("set SEARCH_BENCHMARK=true to run", "true".equalsIgnoreCase(System.getenv("SEARCH_BENCHMARK")));
+        String count = System.getenv("SEARCH_BENCHMARK_NOTES");
+        int notes = count == null || count.isBlank() ? 1_000_000 : Integer.parseInt(count.trim());
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            userId = insertReturningId(conn,
+                    "INSERT INTO Users (name, email, password_hash) VALUES ('Benchmark', ?, 'x') RETURNING user_id",
+                    "search-benchmark-" + System.nanoTime() + "@example.com");
+            notebookId = insertReturningId(conn,
+                    "INSERT INTO Notebooks (title, owner_id) VALUES ('Search benchmark', " + userId + ") RETURNING notebook_id",
+                    null);
+
+            // 40 common words per page, a numbered topic, and a rare word on one page in a thousand
+            String seed = "INSERT INTO Notes (notebook_id, content) " +
+                    "SELECT ?, array_to_string(ARRAY(" +
+                    "SELECT w[1 + floor(random() * array_length(w, 1))::int] FROM generate_series(1, 40) WHERE g > 0" +
+                    "), ' ') || ' topic' || (g % 5000) || CASE WHEN g % 1000 = 0 THEN ' eigenvector' ELSE '' END " +
+                    "FROM generate_series(1, ?) g, (SELECT ARRAY['linear', 'algebra', 'matrix', 'vector', 'proof', " +
+                    "'theorem', 'lemma', 'integral', 'derivative', 'limit', 'series', 'function', 'graph', 'network', " +
+                    "'protocol', 'memory', 'cache', 'thread', 'lecture', 'exam', 'homework', 'chapter', 'example', " +
+                    "'definition', 'the', 'of', 'and', 'in', 'is', 'a']) v(w)";
+            long start = System.nanoTime();
+            try (PreparedStatement stmt = conn.prepareStatement(seed)) {
+                stmt.setInt(1, notebookId);
+                stmt.setInt(2, notes);
+                stmt.executeUpdate();
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ANALYZE Notes");
+            }
+            System.out.printf("seeded %d pages in %.1f s%n", notes, (System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    @After
+    public void dropNotes() throws SQLException {
+        if (userId == 0) {
+            return;
+        }
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement notebook = conn.prepareStatement("DELETE FROM Notebooks WHERE notebook_id = ?");
+                PreparedStatement user = conn.prepareStatement("DELETE FROM Users WHERE user_id = ?")) {
+            notebook.setInt(1, notebookId);
+            notebook.executeUpdate();
+            user.setInt(1, userId);
+            user.executeUpdate();
+        }
+    }
+
+    @Test
+    public void fullTextSearchBeatsIlike() {
+        double rareFts = 0;
+        double rareIlike = 0;
+        for (String term : new String[] {"eigenvector", "topic4999", "deriv", "linear matrix"}) {
+            double fts = medianMillis(() -> assertNotNull(searchDAO.search(term, userId, LIMIT)));
+            double ilike = medianMillis(() -> ilike(term));
+            System.out.printf("%-14s tsvector %8.1f ms   ILIKE %8.1f ms%n", '"' + term + '"', fts, ilike);
+            if (term.equals("eigenvector")) {
+                rareFts = fts;
+                rareIlike = ilike;
+            }
+        }
+
+        List<SearchResult> results = searchDAO.search("eigenvector", userId, LIMIT);
+        assertNotNull(results);
+        assertTrue(results.size() > 0);
+        assertTrue("tsvector search slower than ILIKE for a rare word", rareFts < rareIlike);
+    }
+
+    private void ilike(String term) {
+        // The old path matched the whole input as one substring
+        try (Connection conn = DatabaseConfig.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(ILIKE_SQL)) {
+            stmt.setString(1, "%" + term + "%");
+            stmt.setInt(2, userId);
+            stmt.setInt(3, userId);
+            stmt.setInt(4, LIMIT);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static double medianMillis(Runnable query) {
+        // Two untimed runs to warm the buffer cache and the plan
+        query.run();
+        query.run();
+        double[] times = new double[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            query.run();
+            times[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(times);
+        return times[RUNS / 2];
+    }
+
+    private static int insertReturningId(Connection conn, String sql, String param) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            if (param != null) {
+                stmt.setString(1, param);
+            }
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.notebook.filter;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimiterTest {
+
+    @Test
+    public void allowsBurstThenLimits() {
+        // One token a second, so nothing refills during the test
+        RateLimiter<String> limiter = new RateLimiter<>(3, 60, 100);
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertEquals(0, limiter.tryAcquire("a"));
+
+        long retry = limiter.tryAcquire("a");
+        assertTrue(retry > 0);
+        assertTrue(retry <= TimeUnit.SECONDS.toNanos(1));
+        assertEquals(3L, limiter.stats().get("allowed"));
+        assertEquals(1L, limiter.stats().get("limited"));
+    }
+
+    @Test
+    public void keysHaveSeparateBuckets() {
+        RateLimiter<Integer> limiter = new RateLimiter<>(1, 60, 100);
+        assertEquals(0, limiter.tryAcquire(1));
+        assertTrue(limiter.tryAcquire(1) > 0);
+        assertEquals(0, limiter.tryAcquire(2));
+        assertEquals(2, limiter.stats().get("buckets"));
+    }
+
+    @Test
+    public void newKeysShareOverflowBucketWhenFull() {
+        RateLimiter<String> limiter = new RateLimiter<>(1, 60, 1);
+        assertEquals(0, limiter.tryAcquire("a"));
+        // "a" hasn't refilled, so the sweep can't make room for "b"
+        assertEquals(0, limiter.tryAcquire("b"));
+        assertTrue(limiter.tryAcquire("c") > 0);
+        assertEquals(1, limiter.stats().get("buckets"));
+        assertEquals(2L, limiter.stats().get("overflowed"));
+    }
+
+    @Test
+    public void sweepDropsRefilledBuckets() throws InterruptedException {
+        // One token a microsecond, so buckets are full again almost at once
+        RateLimiter<String> limiter = new RateLimiter<>(1, 60_000_000, 100);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+        Thread.sleep(5);
+        limiter.sweep(true);
+        assertEquals(0, limiter.stats().get("buckets"));
+    }
+}
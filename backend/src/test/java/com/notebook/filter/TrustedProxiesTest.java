@@ -0,0 +1,50 @@
+package com.notebook.filter;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TrustedProxiesTest {
+
+    @Test
+    public void matchesExactAddresses() {
+        TrustedProxies proxies = new TrustedProxies("127.0.0.1, ::1");
+        assertTrue(proxies.contains("127.0.0.1"));
+        // Tomcat reports IPv6 loopback in its long form
+        assertTrue(proxies.contains("0:0:0:0:0:0:0:1"));
+        assertFalse(proxies.contains("127.0.0.2"));
+        assertFalse(proxies.contains("10.0.0.1"));
+    }
+
+    @Test
+    public void matchesCidrRanges() {
+        TrustedProxies proxies = new TrustedProxies("172.16.0.0/12,10.1.2.128/25,fd00::/8");
+        assertTrue(proxies.contains("172.18.0.3"));
+        assertTrue(proxies.contains("172.31.255.255"));
+        assertFalse(proxies.contains("172.32.0.1"));
+        assertTrue(proxies.contains("10.1.2.200"));
+        assertFalse(proxies.contains("10.1.2.127"));
+        assertTrue(proxies.contains("fd12:3456::1"));
+        assertFalse(proxies.contains("fe80::1"));
+        assertFalse(proxies.contains("172.18.0.3.evil"));
+    }
+
+    @Test
+    public void reportsInvalidEntries() {
+        TrustedProxies proxies = new TrustedProxies("10.0.0.0/40, 1.2.3.4/x, 300.1.1.1/8, localhost");
+        assertEquals(List.of("10.0.0.0/40", "1.2.3.4/x", "300.1.1.1/8"), proxies.getInvalid());
+        assertTrue(proxies.contains("127.0.0.1"));
+    }
+
+    @Test
+    public void neverResolvesTheCheckedAddress() {
+        TrustedProxies proxies = new TrustedProxies("127.0.0.1");
+        assertFalse(proxies.contains("localhost"));
+        assertFalse(proxies.contains(""));
+        assertFalse(proxies.contains(null));
+    }
+}
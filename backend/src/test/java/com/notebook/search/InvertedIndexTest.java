@@ -0,0 +1,225 @@
+package com.notebook.search;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InvertedIndexTest {
+
+    private static List<String> terms(String text) {
+        return MarkdownTokenizer.tokenize(text);
+    }
+
+    private static List<Integer> keys(List<InvertedIndex.Hit> hits) {
+        List<Integer> keys = new ArrayList<>();
+        for (InvertedIndex.Hit hit : hits) {
+            keys.add(hit.getKey());
+        }
+        return keys;
+    }
+
+    private static List<Integer> search(InvertedIndex index, String query) {
+        return keys(index.search(MarkdownTokenizer.tokenizeQuery(query), group -> true, 10));
+    }
+
+    @Test
+    public void ranksByTermFrequencyAndLength() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, 1, terms("entropy"));
+        index.put(2, 1, terms("entropy entropy entropy heat"));
+        index.put(3, 1, terms("entropy heat work energy temperature pressure volume gas"));
+        index.put(4, 1, terms("heat"));
+
+        List<InvertedIndex.Hit> hits = index.search(List.of("entropy"), group -> true, 10);
+
+        // More occurrences win; with one occurrence each, the shorter page wins
+        assertEquals(List.of(2, 1, 3), keys(hits));
+        assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+        assertTrue(hits.get(1).getScore() > hits.get(2).getScore());
+    }
+
+    @Test
+    public void rarerTermsWeighMore() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, 1, terms("common rare"));
+        index.put(2, 1, terms("common common"));
+        index.put(3, 1, terms("common"));
+        index.put(4, 1, terms("common"));
+
+        List<InvertedIndex.Hit> hits = index.search(List.of("common"), group -> true, 10);
+        float commonOnly = hits.get(keys(hits).indexOf(3)).getScore();
+        float withRare = index.search(List.of("rare"), group -> true, 10).get(0).getScore();
+        assertTrue(withRare > commonOnly);
+    }
+
+    @Test
+    public void everyTermMustMatch() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, 1, terms("linear algebra"));
+        index.put(2, 1, terms("linear regression"));
+
+        assertEquals(List.of(1), search(index, "linear algebra"));
+        assertEquals(List.of(), search(index, "algebra regression"));
+    }
+
+    @Test
+    public void lastTermMatchesAsPrefix() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, 1, terms("thermodynamics lecture"));
+        index.put(2, 1, terms("thermal expansion"));
+        index.put(3, 1, terms("quantum lecture"));
+
+        List<Integer> hits = search(index, "ther");
+        Collections.sort(hits);
+        assertEquals(List.of(1, 2), hits);
+        // Only the word being typed is a prefix
+        assertEquals(List.of(), search(index, "ther lecture"));
+        assertEquals(List.of(1), search(index, "thermodynamics lec"));
+    }
+
+    @Test
+    public void filtersByGroupAndLimitsToK() {
+        InvertedIndex index = new InvertedIndex();
+        for (int key = 1; key <= 20; key++) {
+            index.put(key, key % 2, terms("vector"));
+        }
+
+        List<InvertedIndex.Hit> odd = index.search(List.of("vector"), group -> group == 1, 100);
+        assertEquals(10, odd.size());
+        for (InvertedIndex.Hit hit : odd) {
+            assertEquals(1, hit.getGroup());
+        }
+        assertEquals(3, index.search(List.of("vector"), group -> true, 3).size());
+    }
+
+    @Test
+    public void removedDocumentsStopMatching() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, 7, terms("matrix"));
+        index.put(2, 7, terms("matrix"));
+        index.put(3, 8, terms("matrix"));
+
+        index.remove(1);
+        assertEquals(List.of(2, 3), sorted(search(index, "matrix")));
+
+        index.removeGroup(7);
+        assertEquals(List.of(3), search(index, "matrix"));
+    }
+
+    @Test
+    public void reindexingReplacesOldTerms() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, 1, terms("draft outline"));
+        index.put(1, 1, terms("final essay"));
+
+        assertEquals(List.of(), search(index, "draft"));
+        assertEquals(List.of(1), search(index, "essay"));
+        assertEquals(1, index.stats().get("documents"));
+    }
+
+    @Test
+    public void compactsAfterManyRemovals() {
+        InvertedIndex index = new InvertedIndex();
+        for (int key = 0; key < 3000; key++) {
+            index.put(key, key % 10, terms("page " + key + (key % 2 == 0 ? " even" : " odd")));
+        }
+        for (int key = 0; key < 3000; key += 2) {
+            index.remove(key);
+        }
+
+        // 1500 removed, but compaction ran once 1024 slots were dead
+        Map<String, Object> stats = index.stats();
+        assertEquals(1500, stats.get("documents"));
+        assertEquals(1500 - 1024, stats.get("deadSlots"));
+        assertEquals(List.of(), search(index, "even"));
+        assertEquals(List.of(1999), search(index, "1999"));
+        assertEquals(10, index.search(List.of("odd"), group -> true, 10).size());
+    }
+
+    @Test
+    public void compactsWhenEditsLeaveDeadSlots() {
+        InvertedIndex index = new InvertedIndex();
+        for (int key = 0; key < 100; key++) {
+            index.put(key, 1, terms("version zero"));
+        }
+        // Every re-index of a page kills its old slot
+        for (int round = 1; round <= 30; round++) {
+            for (int key = 0; key < 100; key++) {
+                index.put(key, 1, terms("version v" + round));
+            }
+        }
+
+        Map<String, Object> stats = index.stats();
+        assertEquals(100, stats.get("documents"));
+        assertTrue((Integer) stats.get("deadSlots") < 1024);
+        assertEquals(List.of(), search(index, "zero"));
+        assertEquals(100, index.search(List.of("v30"), group -> true, 1000).size());
+    }
+
+    @Test
+    public void scratchIsBoundedByPoolSize() throws Exception {
+        InvertedIndex index = new InvertedIndex(2);
+        for (int key = 0; key < 1000; key++) {
+            index.put(key, key % 10, terms("shared word" + key));
+        }
+
+        // More searching threads than buffers: they take turns and all get full results
+        List<Thread> threads = new ArrayList<>();
+        List<Integer> counts = Collections.synchronizedList(new ArrayList<>());
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    counts.add(index.search(List.of("shared"), group -> group < 5, 1000).size());
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400, counts.size());
+        for (int count : counts) {
+            assertEquals(500, count);
+        }
+
+        Map<String, Object> stats = index.stats();
+        assertEquals(2, stats.get("scratchBuffers"));
+        assertTrue((Long) stats.get("scratchBytes") <= 2 * 12L * 2 * 1000);
+    }
+
+    @Test
+    public void failingFilterLeavesNoStaleScores() {
+        InvertedIndex index = twoEntropyPages();
+        try {
+            index.search(List.of("entropy"), group -> {
+                throw new IllegalStateException("filter failed");
+            }, 10);
+        } catch (IllegalStateException expected) {
+            // The buffer goes back to the pool cleared
+        }
+        List<InvertedIndex.Hit> hits = index.search(List.of("entropy"), group -> true, 10);
+        List<InvertedIndex.Hit> fresh = twoEntropyPages().search(List.of("entropy"), group -> true, 10);
+        assertEquals(fresh.get(0).getScore(), hits.get(0).getScore(), 0f);
+        assertEquals(fresh.get(1).getScore(), hits.get(1).getScore(), 0f);
+    }
+
+    private static InvertedIndex twoEntropyPages() {
+        InvertedIndex index = new InvertedIndex(1);
+        index.put(1, 1, terms("entropy"));
+        index.put(2, 2, terms("entropy entropy"));
+        return index;
+    }
+
+    private static List<Integer> sorted(List<Integer> values) {
+        List<Integer> copy = new ArrayList<>(values);
+        Collections.sort(copy);
+        return copy;
+    }
+}
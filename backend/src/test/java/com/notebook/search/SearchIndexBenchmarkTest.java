@@ -0,0 +1,139 @@
+package com.notebook.search;
+
+import com.notebook.cache.AccessIndex;
+import com.notebook.cache.IntSet;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Type-ahead latency over 100k synthetic pages in 2,000 notebooks, through the
+ * same path as GET /api/search/typeahead: the reader's access predicate over
+ * the public set and their own notebooks, then SearchIndex.search over pages
+ * and titles. Every keystroke of a two-word query is timed. The typical
+ * keystroke must stay under a millisecond; the tail is printed, and is set by
+ * queries whose words are both on tens of thousands of pages.
+ * Only runs with INDEX_BENCHMARK=true.
+ */
+public class SearchIndexBenchmarkTest {
+
+    private static final int PAGES = 100_000;
+    private static final int WORDS_PER_PAGE = 150;
+    private static final int PAGES_PER_NOTEBOOK = 50;
+    private static final int NOTEBOOKS = PAGES / PAGES_PER_NOTEBOOK;
+    // Most course notebooks are shared publicly; the reader owns a few and collaborates on a few more
+    private static final double PUBLIC_SHARE = 0.6;
+    private static final int OWNED = 5;
+    private static final int SHARED = 10;
+    private static final int VOCABULARY = 20_000;
+    private static final int QUERIES = 2_000;
+    private static final int STOP_WORD_RANKS = 35;
+
+    @Test
+    public void typeAheadLatency() {
+        assumeTrue("set INDEX_BENCHMARK=true to run", "true".equalsIgnoreCase(System.getenv("INDEX_BENCHMARK")));
+        assumeTrue("SEARCH_INDEX_ENABLED is false", SearchIndex.ENABLED);
+        Random random = new Random(42);
+        String[] words = vocabulary(random);
+        double[] zipf = zipfCumulative();
+
+        long start = System.nanoTime();
+        SearchIndex.beginLoad();
+        List<Integer> publicList = new ArrayList<>();
+        for (int notebook = 0; notebook < NOTEBOOKS; notebook++) {
+            SearchIndex.loadNotebook(notebook, words[pick(zipf, random)] + " " + words[pick(zipf, random)],
+                    "CS-" + (100 + random.nextInt(400)));
+            if (random.nextDouble() < PUBLIC_SHARE) {
+                publicList.add(notebook);
+            }
+        }
+        for (int page = 0; page < PAGES; page++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < WORDS_PER_PAGE; i++) {
+                text.append(words[pick(zipf, random)]).append(' ');
+            }
+            SearchIndex.loadNote(page, page / PAGES_PER_NOTEBOOK, text.toString());
+        }
+        SearchIndex.endLoad();
+        System.out.printf("indexed %d pages in %.1f s%n", PAGES, (System.nanoTime() - start) / 1e9);
+
+        IntSet publicIds = IntSet.of(publicList.stream().mapToInt(Integer::intValue).toArray());
+        int[] owned = new int[OWNED];
+        int[] shared = new int[SHARED];
+        for (int i = 0; i < OWNED; i++) {
+            owned[i] = random.nextInt(NOTEBOOKS);
+        }
+        for (int i = 0; i < SHARED; i++) {
+            shared[i] = random.nextInt(NOTEBOOKS);
+        }
+        AccessIndex.UserNotebooks mine = new AccessIndex.UserNotebooks(IntSet.of(owned), IntSet.of(shared), IntSet.EMPTY);
+        System.out.printf("%d public notebooks, %d own or shared%n", publicIds.size(), mine.all().size());
+
+        List<String> keystrokes = new ArrayList<>();
+        for (int q = 0; q < QUERIES; q++) {
+            String first = words[pick(zipf, random)];
+            String second = words[pick(zipf, random)];
+            for (int length = 2; length <= second.length(); length++) {
+                keystrokes.add(first + " " + second.substring(0, length));
+            }
+        }
+
+        // Warm up, then time each keystroke, predicate included
+        for (String query : keystrokes) {
+            SearchIndex.search(query, mine.readableWith(publicIds), 10);
+        }
+        long[] nanos = new long[keystrokes.size()];
+        int hits = 0;
+        for (int i = 0; i < nanos.length; i++) {
+            long t = System.nanoTime();
+            hits += SearchIndex.search(keystrokes.get(i), mine.readableWith(publicIds), 10).size();
+            nanos[i] = System.nanoTime() - t;
+        }
+        Arrays.sort(nanos);
+        double p50 = nanos[nanos.length / 2] / 1e6;
+        double p99 = nanos[(int) (nanos.length * 0.99)] / 1e6;
+        System.out.printf("%d keystrokes: p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                nanos.length, p50, p99, nanos[nanos.length - 1] / 1e6);
+
+        assertTrue(hits > 0);
+        assertTrue("p50 " + p50 + " ms", p50 < 1.0);
+    }
+
+    private static String[] vocabulary(Random random) {
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            char[] word = new char[4 + random.nextInt(6)];
+            for (int c = 0; c < word.length; c++) {
+                word[c] = (char) ('a' + random.nextInt(26));
+            }
+            words[i] = new String(word);
+        }
+        return words;
+    }
+
+    // Word frequencies fall off like natural text (rank r has weight 1/r), starting
+    // below the most frequent ranks, which are the stop words the tokenizer drops
+    private static double[] zipfCumulative() {
+        double[] cumulative = new double[VOCABULARY];
+        double total = 0;
+        for (int i = 0; i < VOCABULARY; i++) {
+            total += 1.0 / (i + 1 + STOP_WORD_RANKS);
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < VOCABULARY; i++) {
+            cumulative[i] /= total;
+        }
+        return cumulative;
+    }
+
+    private static int pick(double[] cumulative, Random random) {
+        int i = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(cumulative.length - 1, i >= 0 ? i : -i - 1);
+    }
+}
@@ -0,0 +1,73 @@
+package com.notebook.search;
+
+import com.notebook.dto.NotebookSuggestion;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Autocomplete latency over 200k notebooks: every keystroke of titles and
+ * course names as they are typed, against the 1 ms p99 target.
+ * Only runs with SUGGEST_BENCHMARK=true.
+ */
+public class SuggestTrieBenchmarkTest {
+
+    private static final int NOTEBOOKS = 200_000;
+    private static final int QUERIES = 20_000;
+    private static final String[] SUBJECTS = {"linear", "algebra", "calculus", "physics", "chemistry",
+            "biology", "operating", "systems", "networks", "databases", "compilers", "statistics",
+            "probability", "economics", "history", "literature", "organic", "quantum", "mechanics",
+            "thermodynamics", "discrete", "mathematics", "machine", "learning", "genetics"};
+    private static final String[] KINDS = {"notes", "lecture notes", "exam prep", "homework", "summary"};
+
+    @Test
+    public void p99StaysUnderOneMillisecond() {
+        assumeTrue("set SUGGEST_BENCHMARK=true to run", "true".equalsIgnoreCase(System.getenv("SUGGEST_BENCHMARK")));
+        Random random = new Random(42);
+        SuggestTrie trie = new SuggestTrie(10);
+        long start = System.nanoTime();
+        for (int id = 1; id <= NOTEBOOKS; id++) {
+            String title = SUBJECTS[random.nextInt(SUBJECTS.length)] + " " + SUBJECTS[random.nextInt(SUBJECTS.length)]
+                    + " " + KINDS[random.nextInt(KINDS.length)] + " " + random.nextInt(1000);
+            String course = "CS-" + (100 + random.nextInt(400));
+            trie.put(new NotebookSuggestion(id, title, course, random.nextInt(1_000_000_000)));
+        }
+        System.out.printf("built %d notebooks in %.1f s, %s%n", NOTEBOOKS, (System.nanoTime() - start) / 1e9, trie.stats());
+
+        List<String> keystrokes = new ArrayList<>();
+        for (int q = 0; q < QUERIES; q++) {
+            String typed = random.nextBoolean()
+                    ? SUBJECTS[random.nextInt(SUBJECTS.length)] + " " + SUBJECTS[random.nextInt(SUBJECTS.length)]
+                    : "cs " + (100 + random.nextInt(400));
+            for (int length = 1; length <= typed.length(); length++) {
+                keystrokes.add(SuggestTrie.normalize(typed.substring(0, length)));
+            }
+        }
+
+        // Warm up, then time each keystroke
+        for (String prefix : keystrokes) {
+            trie.suggest(prefix, 10);
+        }
+        long[] nanos = new long[keystrokes.size()];
+        int results = 0;
+        for (int i = 0; i < nanos.length; i++) {
+            long t = System.nanoTime();
+            results += trie.suggest(keystrokes.get(i), 10).size();
+            nanos[i] = System.nanoTime() - t;
+        }
+        Arrays.sort(nanos);
+        double p50 = nanos[nanos.length / 2] / 1e6;
+        double p99 = nanos[(int) (nanos.length * 0.99)] / 1e6;
+        System.out.printf("%d keystrokes: p50 %.4f ms, p99 %.4f ms, max %.3f ms%n",
+                nanos.length, p50, p99, nanos[nanos.length - 1] / 1e6);
+
+        assertTrue(results > 0);
+        assertTrue("p99 " + p99 + " ms", p99 < 1.0);
+    }
+}
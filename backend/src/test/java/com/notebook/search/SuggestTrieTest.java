@@ -0,0 +1,96 @@
+package com.notebook.search;
+
+import com.notebook.dto.NotebookSuggestion;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SuggestTrieTest {
+
+    @Test
+    public void matchesEveryWordStart() {
+        SuggestTrie trie = new SuggestTrie(5);
+        trie.put(new NotebookSuggestion(1, "Linear Algebra", "MATH-221", 100));
+
+        assertEquals(List.of(1), ids(trie.suggest("lin", 10)));
+        assertEquals(List.of(1), ids(trie.suggest("alg", 10)));
+        assertEquals(List.of(1), ids(trie.suggest("math 2", 10)));
+        assertEquals(List.of(1), ids(trie.suggest("linear algebra", 10)));
+        assertEquals(List.of(), ids(trie.suggest("gebra", 10)));
+    }
+
+    @Test
+    public void normalizesCaseAndPunctuation() {
+        assertEquals("cs 101 intro", SuggestTrie.normalize("  CS-101: Intro! "));
+        assertEquals("", SuggestTrie.normalize(null));
+        NotebookSuggestion entry = new NotebookSuggestion(1, "Operating Systems", null, 0);
+        assertTrue(SuggestTrie.matches(entry, "sys"));
+        assertFalse(SuggestTrie.matches(entry, "stems"));
+    }
+
+    @Test
+    public void keepsMostRecentK() {
+        SuggestTrie trie = new SuggestTrie(3);
+        for (int id = 1; id <= 5; id++) {
+            trie.put(new NotebookSuggestion(id, "Physics " + id, null, id * 10L));
+        }
+        assertEquals(List.of(5, 4, 3), ids(trie.suggest("phy", 10)));
+        assertEquals(List.of(5, 4), ids(trie.suggest("phy", 2)));
+        // Equal update times fall back to the higher id
+        trie.put(new NotebookSuggestion(6, "Physics lab", null, 50));
+        assertEquals(List.of(6, 5, 4), ids(trie.suggest("phy", 10)));
+    }
+
+    @Test
+    public void removalRefillsFromSubtree() {
+        SuggestTrie trie = new SuggestTrie(2);
+        trie.put(new NotebookSuggestion(1, "Chemistry", null, 10));
+        trie.put(new NotebookSuggestion(2, "Chess openings", null, 20));
+        trie.put(new NotebookSuggestion(3, "Chemical kinetics", null, 30));
+        assertEquals(List.of(3, 2), ids(trie.suggest("che", 10)));
+
+        trie.remove(3);
+        assertEquals(List.of(2, 1), ids(trie.suggest("che", 10)));
+        assertEquals(List.of(1), ids(trie.suggest("chem", 10)));
+        assertEquals(List.of(), ids(trie.suggest("kin", 10)));
+        assertNull(trie.get(3));
+    }
+
+    @Test
+    public void putReplacesOldTitle() {
+        SuggestTrie trie = new SuggestTrie(5);
+        trie.put(new NotebookSuggestion(1, "Biology", null, 10));
+        trie.put(new NotebookSuggestion(1, "Genetics", null, 20));
+
+        assertEquals(List.of(), ids(trie.suggest("bio", 10)));
+        assertEquals(List.of(1), ids(trie.suggest("gen", 10)));
+        assertEquals(20L, trie.get(1).getUpdatedAt());
+    }
+
+    @Test
+    public void removingEverythingFreesNodes() {
+        SuggestTrie trie = new SuggestTrie(5);
+        trie.put(new NotebookSuggestion(1, "Linear algebra", "Linear", 10));
+        trie.put(new NotebookSuggestion(2, "Logic", null, 20));
+        trie.remove(1);
+        trie.remove(2);
+
+        assertEquals(0, trie.stats().get("notebooks"));
+        assertEquals(1, trie.stats().get("nodes"));
+        assertEquals(List.of(), ids(trie.suggest("", 10)));
+    }
+
+    private static List<Integer> ids(List<NotebookSuggestion> suggestions) {
+        List<Integer> ids = new ArrayList<>();
+        for (NotebookSuggestion suggestion : suggestions) {
+            ids.add(suggestion.getNotebookId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,64 @@
+package com.notebook.util;
+
+import com.notebook.config.JwtConfig;
+import com.notebook.models.User;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.Test;
+
+import javax.crypto.SecretKey;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Per-request token check as AuthFilter does it: a new parser per request
+ * (the old path), the shared parser, and the verified-token cache.
+ * Only runs with AUTH_BENCHMARK=true.
+ */
+public class JwtUtilBenchmarkTest {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    @Test
+    public void cachedVerifySkipsParsing() {
+        assumeTrue("set AUTH_BENCHMARK=true to run", "true".equalsIgnoreCase(System.getenv("AUTH_BENCHMARK")));
+        String token = JwtUtil.generateToken(new User(42, "Benchmark", "benchmark@example.com"));
+        SecretKey key = Keys.hmacShaKeyFor(JwtConfig.getSecret().getBytes());
+
+        double perRequestParser = nanosPerCall(() ->
+                Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload().getSubject());
+        double sharedParser = nanosPerCall(() -> JwtUtil.validateToken(token).getSubject());
+        double cached = nanosPerCall(() -> String.valueOf(JwtUtil.verify(token).getUserId()));
+
+        System.out.printf("new parser per request %8.0f ns/op%n", perRequestParser);
+        System.out.printf("shared parser          %8.0f ns/op%n", sharedParser);
+        System.out.printf("verified-token cache   %8.0f ns/op%n", cached);
+
+        assertEquals(42, JwtUtil.verify(token).getUserId());
+        assertTrue("cache slower than parsing: " + cached + " ns", cached < sharedParser);
+        assertTrue("shared parser slower than a new one: " + sharedParser + " ns", sharedParser <= perRequestParser);
+    }
+
+    private static double nanosPerCall(Check check) {
+        int sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += check.run().length();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += check.run().length();
+        }
+        double nanos = (double) (System.nanoTime() - start) / ITERATIONS;
+        // Keep the results live so the JIT can't drop the calls
+        assertEquals((WARMUP + ITERATIONS) * 2, sink);
+        return nanos;
+    }
+
+    @FunctionalInterface
+    private interface Check {
+        String run();
+    }
+}
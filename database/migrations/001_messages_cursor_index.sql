@@ -0,0 +1,6 @@
+-- Keyset index for incremental chat fetches (?afterId=)
+-- Serves: WHERE notebook_id = ? AND message_id > ? ORDER BY message_id
+CREATE INDEX IF NOT EXISTS idx_messages_notebook_id ON Messages(notebook_id, message_id);
+
+-- The composite index covers plain notebook_id lookups too
+DROP INDEX IF EXISTS idx_messages_notebook;
@@ -0,0 +1,19 @@
+-- Promote the "[TYPE:sticky]" / "[TYPE:chat]" text prefix to a real column
+
+DO $$
+BEGIN
+    CREATE TYPE message_type AS ENUM ('sticky', 'chat');
+EXCEPTION
+    WHEN duplicate_object THEN NULL;
+END $$;
+
+ALTER TABLE Messages ADD COLUMN IF NOT EXISTS type message_type NOT NULL DEFAULT 'sticky';
+
+-- Backfill from the prefix and strip it from the stored text
+UPDATE Messages
+SET type = substring(message_text FROM '^\[TYPE:(sticky|chat)\]')::message_type,
+    message_text = regexp_replace(message_text, '^\[TYPE:(sticky|chat)\]', '')
+WHERE message_text ~ '^\[TYPE:(sticky|chat)\]';
+
+-- Lets the sticky board and the chat drawer each read only their own rows
+CREATE INDEX IF NOT EXISTS idx_messages_notebook_type ON Messages(notebook_id, type, message_id);
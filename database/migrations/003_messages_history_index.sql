@@ -0,0 +1,7 @@
+-- Backward keyset pagination over chat history:
+-- WHERE notebook_id = ? AND (timestamp, message_id) < (?, ?) ORDER BY timestamp DESC, message_id DESC
+
+UPDATE Messages SET timestamp = CURRENT_TIMESTAMP WHERE timestamp IS NULL;
+ALTER TABLE Messages ALTER COLUMN timestamp SET NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_messages_notebook_time ON Messages(notebook_id, timestamp, message_id);
@@ -0,0 +1,87 @@
+-- Monthly range partitioning of Messages on timestamp, plus the objects the
+-- retention job uses (see MessageRetentionListener):
+--   * create_messages_partition(date) creates the partition for a month if missing
+--   * the archive schema receives detached partitions and per-notebook archived rows
+--   * Notebooks.message_retention_days overrides the global cutoff for one notebook
+--
+-- Runs in one transaction; Messages is unavailable while rows are copied.
+
+BEGIN;
+
+ALTER TABLE Messages RENAME TO messages_unpartitioned;
+ALTER INDEX idx_messages_notebook_id RENAME TO idx_messages_unpartitioned_notebook_id;
+ALTER INDEX idx_messages_notebook_type RENAME TO idx_messages_unpartitioned_notebook_type;
+ALTER INDEX idx_messages_notebook_time RENAME TO idx_messages_unpartitioned_notebook_time;
+ALTER INDEX idx_messages_user RENAME TO idx_messages_unpartitioned_user;
+
+-- The partition key has to be part of the primary key
+CREATE TABLE Messages (
+    message_id INTEGER NOT NULL DEFAULT nextval('messages_message_id_seq'),
+    notebook_id INTEGER NOT NULL,
+    user_id INTEGER NOT NULL,
+    message_text TEXT NOT NULL,
+    type message_type NOT NULL DEFAULT 'sticky',
+    timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (message_id, timestamp),
+    FOREIGN KEY (notebook_id) REFERENCES Notebooks(notebook_id) ON DELETE CASCADE,
+    FOREIGN KEY (user_id) REFERENCES Users(user_id) ON DELETE CASCADE
+) PARTITION BY RANGE (timestamp);
+
+ALTER SEQUENCE messages_message_id_seq OWNED BY Messages.message_id;
+
+CREATE OR REPLACE FUNCTION create_messages_partition(month_start DATE)
+RETURNS TEXT AS $$
+DECLARE
+    start_date DATE := date_trunc('month', month_start)::date;
+    partition_name TEXT := 'messages_y' || to_char(start_date, 'YYYY') || 'm' || to_char(start_date, 'MM');
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF Messages FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, start_date, (start_date + INTERVAL '1 month')::date);
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Catches rows outside every monthly partition (e.g. clock skew); should stay empty
+CREATE TABLE messages_default PARTITION OF Messages DEFAULT;
+
+-- One partition per month of existing history, plus the next two months
+DO $$
+DECLARE
+    month DATE;
+BEGIN
+    FOR month IN
+        SELECT generate_series(
+            date_trunc('month', COALESCE((SELECT min(timestamp) FROM messages_unpartitioned), CURRENT_TIMESTAMP)),
+            date_trunc('month', CURRENT_TIMESTAMP) + INTERVAL '2 months',
+            INTERVAL '1 month')::date
+    LOOP
+        PERFORM create_messages_partition(month);
+    END LOOP;
+END $$;
+
+INSERT INTO Messages (message_id, notebook_id, user_id, message_text, type, timestamp)
+SELECT message_id, notebook_id, user_id, message_text, type, timestamp FROM messages_unpartitioned;
+
+DROP TABLE messages_unpartitioned;
+
+CREATE INDEX idx_messages_notebook_id ON Messages(notebook_id, message_id);
+CREATE INDEX idx_messages_notebook_type ON Messages(notebook_id, type, message_id);
+CREATE INDEX idx_messages_notebook_time ON Messages(notebook_id, timestamp, message_id);
+CREATE INDEX idx_messages_user ON Messages(user_id);
+
+-- Archive
+ALTER TABLE Notebooks ADD COLUMN IF NOT EXISTS message_retention_days INTEGER;
+
+CREATE SCHEMA IF NOT EXISTS archive;
+CREATE TABLE IF NOT EXISTS archive.messages_archive (
+    message_id INTEGER NOT NULL,
+    notebook_id INTEGER NOT NULL,
+    user_id INTEGER NOT NULL,
+    message_text TEXT NOT NULL,
+    type message_type NOT NULL,
+    timestamp TIMESTAMP NOT NULL,
+    archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_messages_archive_notebook ON archive.messages_archive(notebook_id, timestamp);
+
+COMMIT;
@@ -0,0 +1,12 @@
+-- Tokens revoked by logout before their expiry (jti claim).
+-- The backend keeps the unexpired rows in memory and purges expired ones.
+-- No foreign key to Users: guest tokens carry user id -1.
+
+CREATE TABLE IF NOT EXISTS RevokedTokens (
+    jti VARCHAR(64) PRIMARY KEY,
+    user_id INTEGER NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    revoked_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_revoked_tokens_expires ON RevokedTokens(expires_at);
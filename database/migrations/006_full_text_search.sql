@@ -0,0 +1,15 @@
+-- Full-text search over notebook titles/course names and note content.
+-- Stored generated columns are maintained by PostgreSQL on every insert/update;
+-- adding them rewrites both tables once, so run this outside peak hours.
+
+ALTER TABLE Notebooks ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('english', coalesce(title, '')), 'A') ||
+        setweight(to_tsvector('english', coalesce(course_name, '')), 'B')
+    ) STORED;
+
+ALTER TABLE Notes ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (to_tsvector('english', coalesce(content, ''))) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_notebooks_search ON Notebooks USING GIN (search_vector);
+CREATE INDEX IF NOT EXISTS idx_notes_search ON Notes USING GIN (search_vector);
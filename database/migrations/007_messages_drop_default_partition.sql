@@ -0,0 +1,18 @@
+-- Drop the default Messages partition so old monthly partitions can be detached
+-- with DETACH PARTITION ... CONCURRENTLY, which PostgreSQL refuses while a
+-- default partition exists. Any rows it caught are moved into monthly partitions.
+-- Requires PostgreSQL 14 or later.
+
+BEGIN;
+
+ALTER TABLE Messages DETACH PARTITION messages_default;
+
+SELECT create_messages_partition(month)
+FROM (SELECT DISTINCT date_trunc('month', timestamp)::date AS month FROM messages_default) AS months;
+
+INSERT INTO Messages (message_id, notebook_id, user_id, message_text, type, timestamp)
+SELECT message_id, notebook_id, user_id, message_text, type, timestamp FROM messages_default;
+
+DROP TABLE messages_default;
+
+COMMIT;
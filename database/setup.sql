@@ -3,6 +3,7 @@
 -- This script assumes you're already connected to your database
 
 -- Drop existing tables if they exist (in reverse order of dependencies)
+DROP TABLE IF EXISTS RevokedTokens CASCADE;
 DROP TABLE IF EXISTS Messages CASCADE;
 DROP TABLE IF EXISTS Answers CASCADE;
 DROP TABLE IF EXISTS Questions CASCADE;
@@ -10,14 +11,17 @@ DROP TABLE IF EXISTS Notes CASCADE;
 DROP TABLE IF EXISTS NotebookCollaborators CASCADE;
 DROP TABLE IF EXISTS Notebooks CASCADE;
 DROP TABLE IF EXISTS Users CASCADE;
+DROP SCHEMA IF EXISTS archive CASCADE;
 
 -- Drop existing types if they exist
 DROP TYPE IF EXISTS visibility_type CASCADE;
 DROP TYPE IF EXISTS role_type CASCADE;
+DROP TYPE IF EXISTS message_type CASCADE;
 
 -- Create custom enum types
 CREATE TYPE visibility_type AS ENUM ('Public', 'Private');
 CREATE TYPE role_type AS ENUM ('Editor', 'Viewer');
+CREATE TYPE message_type AS ENUM ('sticky', 'chat');
 
 -- Create Users table
 CREATE TABLE Users (
@@ -37,6 +41,12 @@ CREATE TABLE Notebooks (
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     course_name VARCHAR(255),
     visibility visibility_type DEFAULT 'Private',
+    message_retention_days INTEGER,
+    -- Title ranks above course name in search results
+    search_vector tsvector GENERATED ALWAYS AS (
+        setweight(to_tsvector('english', coalesce(title, '')), 'A') ||
+        setweight(to_tsvector('english', coalesce(course_name, '')), 'B')
+    ) STORED,
     FOREIGN KEY (owner_id) REFERENCES Users(user_id) ON DELETE CASCADE
 );
 
@@ -70,6 +80,7 @@ CREATE TABLE Notes (
     content TEXT,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    search_vector tsvector GENERATED ALWAYS AS (to_tsvector('english', coalesce(content, ''))) STORED,
     FOREIGN KEY (notebook_id) REFERENCES Notebooks(notebook_id) ON DELETE CASCADE
 );
 
@@ -98,15 +109,54 @@ CREATE TABLE Answers (
     FOREIGN KEY (user_id) REFERENCES Users(user_id) ON DELETE CASCADE
 );
 
--- Create Messages table
+-- Create Messages table, range-partitioned by month on timestamp
 CREATE TABLE Messages (
-    message_id SERIAL PRIMARY KEY,
+    message_id SERIAL,
     notebook_id INTEGER NOT NULL,
     user_id INTEGER NOT NULL,
     message_text TEXT NOT NULL,
-    timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    type message_type NOT NULL DEFAULT 'sticky',
+    timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (message_id, timestamp),
     FOREIGN KEY (notebook_id) REFERENCES Notebooks(notebook_id) ON DELETE CASCADE,
     FOREIGN KEY (user_id) REFERENCES Users(user_id) ON DELETE CASCADE
+) PARTITION BY RANGE (timestamp);
+
+-- Creates the partition for one month if missing; the retention job keeps a few months ahead
+CREATE OR REPLACE FUNCTION create_messages_partition(month_start DATE)
+RETURNS TEXT AS $$
+DECLARE
+    start_date DATE := date_trunc('month', month_start)::date;
+    partition_name TEXT := 'messages_y' || to_char(start_date, 'YYYY') || 'm' || to_char(start_date, 'MM');
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF Messages FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, start_date, (start_date + INTERVAL '1 month')::date);
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- No default partition: it would block DETACH PARTITION ... CONCURRENTLY in the retention job
+SELECT create_messages_partition((CURRENT_DATE + make_interval(months => n))::date)
+FROM generate_series(0, 2) AS n;
+
+-- Detached partitions and per-notebook archived rows end up here
+CREATE SCHEMA archive;
+CREATE TABLE archive.messages_archive (
+    message_id INTEGER NOT NULL,
+    notebook_id INTEGER NOT NULL,
+    user_id INTEGER NOT NULL,
+    message_text TEXT NOT NULL,
+    type message_type NOT NULL,
+    timestamp TIMESTAMP NOT NULL,
+    archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Tokens revoked by logout before their expiry (guest tokens use user id -1, so no foreign key)
+CREATE TABLE RevokedTokens (
+    jti VARCHAR(64) PRIMARY KEY,
+    user_id INTEGER NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    revoked_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
 );
 
 -- Create indexes for better query performance
@@ -114,9 +164,15 @@ CREATE INDEX idx_notebooks_owner ON Notebooks(owner_id);
 CREATE INDEX idx_collaborators_notebook ON NotebookCollaborators(notebook_id);
 CREATE INDEX idx_collaborators_user ON NotebookCollaborators(user_id);
 CREATE INDEX idx_notes_notebook ON Notes(notebook_id);
+CREATE INDEX idx_notebooks_search ON Notebooks USING GIN (search_vector);
+CREATE INDEX idx_notes_search ON Notes USING GIN (search_vector);
 CREATE INDEX idx_questions_note ON Questions(note_id);
 CREATE INDEX idx_questions_user ON Questions(user_id);
 CREATE INDEX idx_answers_question ON Answers(question_id);
 CREATE INDEX idx_answers_user ON Answers(user_id);
-CREATE INDEX idx_messages_notebook ON Messages(notebook_id);
+CREATE INDEX idx_messages_notebook_id ON Messages(notebook_id, message_id);
+CREATE INDEX idx_messages_notebook_type ON Messages(notebook_id, type, message_id);
+CREATE INDEX idx_messages_notebook_time ON Messages(notebook_id, timestamp, message_id);
 CREATE INDEX idx_messages_user ON Messages(user_id);
+CREATE INDEX idx_messages_archive_notebook ON archive.messages_archive(notebook_id, timestamp);
+CREATE INDEX idx_revoked_tokens_expires ON RevokedTokens(expires_at);
@@ -1,6 +1,6 @@
 "use server";
 
-import { cookies } from "next/headers";
+import { cookies, headers } from "next/headers";
 import { redirect } from "next/navigation";
 
 const COOKIE_NAME = "auth_token";
@@ -22,6 +22,22 @@ type AuthResponse = AuthUser & {
   token: string;
 };
 
+// Reverse proxies in front of this server that append to X-Forwarded-For
+// (Vercel, Render or nginx: 1). Entries left of those are client-supplied.
+const TRUSTED_PROXY_HOPS = Number.parseInt(process.env.TRUSTED_PROXY_HOPS ?? "1", 10);
+
+// Send only the browser address our own proxy observed, so the backend rate-limits
+// per client; a forged X-Forwarded-For from the browser is never passed through
+const forwardedFor = async (): Promise<Record<string, string>> => {
+  if (!(TRUSTED_PROXY_HOPS > 0)) return {};
+  const hops = ((await headers()).get("x-forwarded-for") ?? "")
+    .split(",")
+    .map((hop) => hop.trim())
+    .filter(Boolean);
+  const client = hops[hops.length - TRUSTED_PROXY_HOPS];
+  return client ? { "X-Forwarded-For": client } : {};
+}
+
 type Response<T> = {
     success: true
     data: T
@@ -37,7 +53,7 @@ export const login = async (
   try {
     const res = await fetch(`${process.env.API_URL}/auth/login`, {
       method: "POST",
-      headers: { "Content-Type": "application/json" },
+      headers: { "Content-Type": "application/json", ...(await forwardedFor()) },
       body: JSON.stringify({ email, password }),
     });
 
@@ -68,6 +84,7 @@ export const guestLogin = async (): Promise<Response<AuthUser>> => {
   try {
     const res = await fetch(`${process.env.API_URL}/auth/guest`, {
       method: "POST",
+      headers: await forwardedFor(),
     });
     const json: ApiResponse<AuthResponse> = await res.json();
 
@@ -102,7 +119,7 @@ export const register = async (
       console.log(JSON.stringify({ name, email, password }))
     const res = await fetch(`${process.env.API_URL}/auth/register`, {
       method: "POST",
-      headers: { "Content-Type": "application/json" },
+      headers: { "Content-Type": "application/json", ...(await forwardedFor()) },
       body: JSON.stringify({ name, email, password }),
     });
 
@@ -131,6 +148,20 @@ export const register = async (
 
 export const logout = async () => {
   const cookieStore = await cookies();
+  const token = cookieStore.get(COOKIE_NAME)?.value;
+
+  // Revoke the token server-side too, so a copied cookie stops working
+  if (token) {
+    try {
+      await fetch(`${process.env.API_URL}/auth/logout`, {
+        method: "POST",
+        headers: { Authorization: `Bearer ${token}` },
+      });
+    } catch {
+      // The cookie is removed regardless
+    }
+  }
+
   cookieStore.delete(COOKIE_NAME);
   redirect("/login");
 }
@@ -17,7 +17,7 @@ export type ChatMessage = {
   userName?: string;
   messageText: string;
   timestamp: string;
-  type?: "sticky" | "chat"; // Add type to distinguish message types
+  type: "sticky" | "chat";
 };
 
 type Response<T> =
@@ -58,14 +58,16 @@ export const deleteMessage = async (
 };
 
 export const getMessages = async (
-  notebookId: number
+  notebookId: number,
+  type?: "sticky" | "chat" // Only fetch one kind of message when set
 ): Promise<ChatMessage[]> => {
   const token = await getAuthToken();
   if (!token) return [];
 
   try {
+    const query = type ? `?type=${type}` : "";
     const res = await fetch(
-      `${process.env.API_URL}/notebooks/messages/${notebookId}`,
+      `${process.env.API_URL}/notebooks/messages/${notebookId}${query}`,
       {
         headers: { Authorization: `Bearer ${token}` },
         cache: "no-store", // Ensure fresh data
@@ -73,26 +75,71 @@ export const getMessages = async (
     );
     const json: ApiResponse<ChatMessage[]> = await res.json();
     if (!json.success || !json.data) return [];
-    
-    // Parse message type from text (workaround for no DB access)
-    // Format: [TYPE:sticky]actual message or [TYPE:chat]actual message
-    return json.data.map(msg => {
-      const typeMatch = msg.messageText.match(/^\[TYPE:(sticky|chat)\]/);
-      if (typeMatch) {
-        return {
-          ...msg,
-          type: typeMatch[1] as "sticky" | "chat",
-          messageText: msg.messageText.replace(/^\[TYPE:(sticky|chat)\]/, "")
-        };
+    return json.data;
+  } catch {
+    return [];
+  }
+};
+
+// Messages posted after the given id, oldest first
+export const getMessagesAfter = async (
+  notebookId: number,
+  afterId: number
+): Promise<ChatMessage[]> => {
+  const token = await getAuthToken();
+  if (!token) return [];
+
+  try {
+    const res = await fetch(
+      `${process.env.API_URL}/notebooks/messages/${notebookId}?afterId=${afterId}`,
+      {
+        headers: { Authorization: `Bearer ${token}` },
+        cache: "no-store",
       }
-      // Default to sticky for backward compatibility
-      return { ...msg, type: "sticky" as const };
-    });
+    );
+    const json: ApiResponse<ChatMessage[]> = await res.json();
+    if (!json.success || !json.data) return [];
+    return json.data;
   } catch {
     return [];
   }
 };
 
+export type MessagePage = {
+  messages: ChatMessage[];
+  nextCursor?: string;
+  hasMore: boolean;
+};
+
+// One page of a notebook's sticky notes or chat, newest page first; pass
+// nextCursor back as `before` to get older messages
+export const getMessagePage = async (
+  notebookId: number,
+  type: "sticky" | "chat",
+  before?: string,
+  limit = 200
+): Promise<MessagePage | null> => {
+  const token = await getAuthToken();
+  if (!token) return null;
+
+  try {
+    const params = new URLSearchParams({ type, limit: String(limit) });
+    if (before) params.set("before", before);
+    const res = await fetch(
+      `${process.env.API_URL}/notebooks/messages/${notebookId}?${params}`,
+      {
+        headers: { Authorization: `Bearer ${token}` },
+        cache: "no-store",
+      }
+    );
+    const json: ApiResponse<MessagePage> = await res.json();
+    if (!json.success || !json.data) return null;
+    return json.data;
+  } catch {
+    return null;
+  }
+};
+
 export const sendMessage = async (
   notebookId: number,
   text: string,
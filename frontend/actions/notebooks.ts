@@ -54,19 +54,62 @@ export const getDashboardNotebooks = async (): Promise<Notebook[]> => {
   }
 };
 
-export const searchNotebooks = async (query: string): Promise<Notebook[]> => {
+export type NotebookSearchPage = {
+  notebooks: Notebook[];
+  nextCursor?: string;
+  hasMore: boolean;
+};
+
+const EMPTY_SEARCH_PAGE: NotebookSearchPage = { notebooks: [], hasMore: false };
+
+export const searchNotebooks = async (
+  query: string,
+  cursor?: string
+): Promise<NotebookSearchPage> => {
+  const token = await getAuthToken();
+  if (!token) return EMPTY_SEARCH_PAGE;
+  if (!query || query.trim().length === 0) return EMPTY_SEARCH_PAGE;
+
+  const params = new URLSearchParams({ q: query });
+  if (cursor) params.set("cursor", cursor);
+
+  try {
+    const res = await fetch(
+      `${process.env.API_URL}/notebooks/search?${params.toString()}`,
+      {
+        headers: { Authorization: `Bearer ${token}` },
+      }
+    );
+    const json: ApiResponse<NotebookSearchPage> = await res.json();
+    if (!json.success || !json.data) return EMPTY_SEARCH_PAGE;
+    return json.data;
+  } catch {
+    return EMPTY_SEARCH_PAGE;
+  }
+};
+
+export type NotebookSuggestion = {
+  notebookId: number;
+  title: string;
+  courseName: string;
+  updatedAt: number;
+};
+
+export const suggestNotebooks = async (
+  prefix: string
+): Promise<NotebookSuggestion[]> => {
   const token = await getAuthToken();
   if (!token) return [];
-  if (!query || query.trim().length === 0) return [];
+  if (!prefix || prefix.trim().length === 0) return [];
 
   try {
     const res = await fetch(
-      `${process.env.API_URL}/notebooks/search?q=${encodeURIComponent(query)}`,
+      `${process.env.API_URL}/notebooks/suggest?prefix=${encodeURIComponent(prefix)}`,
       {
         headers: { Authorization: `Bearer ${token}` },
       }
     );
-    const json: ApiResponse<Notebook[]> = await res.json();
+    const json: ApiResponse<NotebookSuggestion[]> = await res.json();
     if (!json.success || !json.data) return [];
     return json.data;
   } catch {
@@ -1,17 +1,20 @@
 import Link from "next/link";
 import { searchNotebooks } from "@/actions/notebooks";
 import { NotebookList } from "@/components/notebook-list";
+import { NotebookSearchInput } from "@/components/notebook-search-input";
 import { Button } from "@/components/ui/button";
-import { Input } from "@/components/ui/input";
 
 export default async function NotebookSearchPage({
   searchParams,
 }: {
-  searchParams: Promise<{ q?: string }>;
+  searchParams: Promise<{ q?: string; cursor?: string }>;
 }) {
   const resolved = await searchParams;
   const query = resolved?.q ?? "";
-  const results = query ? await searchNotebooks(query) : [];
+  const cursor = resolved?.cursor;
+  const results = query
+    ? await searchNotebooks(query, cursor)
+    : { notebooks: [], hasMore: false };
 
   return (
     <div className="min-h-screen p-4 md:p-8">
@@ -29,18 +32,24 @@ export default async function NotebookSearchPage({
         </div>
 
         <form className="flex gap-2" method="get">
-          <Input
-            name="q"
-            placeholder="Search by title or course name"
-            defaultValue={query}
-          />
+          <NotebookSearchInput defaultValue={query} />
           <Button type="submit">Search</Button>
         </form>
 
         {query ? (
           <div className="space-y-3">
             <h2 className="text-lg font-semibold">Results</h2>
-            <NotebookList notebooks={results} />
+            <NotebookList notebooks={results.notebooks} />
+            {results.nextCursor && (
+              <Link
+                href={`/notebooks/search?${new URLSearchParams({
+                  q: query,
+                  cursor: results.nextCursor,
+                }).toString()}`}
+              >
+                <Button variant="outline">More results</Button>
+              </Link>
+            )}
           </div>
         ) : (
           <p className="text-muted-foreground">Enter a query to search.</p>
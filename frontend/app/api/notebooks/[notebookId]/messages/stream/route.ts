@@ -0,0 +1,46 @@
+import { cookies } from "next/headers";
+
+const COOKIE_NAME = "auth_token";
+
+export const dynamic = "force-dynamic";
+
+// Proxies the backend chat SSE stream so the browser's EventSource can use the auth cookie
+export async function GET(
+  request: Request,
+  { params }: { params: Promise<{ notebookId: string }> }
+) {
+  const { notebookId } = await params;
+  const cookieStore = await cookies();
+  const token = cookieStore.get(COOKIE_NAME)?.value;
+  if (!token) {
+    return new Response("Not authenticated", { status: 401 });
+  }
+
+  const headers: Record<string, string> = {
+    Authorization: `Bearer ${token}`,
+    Accept: "text/event-stream",
+  };
+  const lastEventId = request.headers.get("last-event-id");
+  if (lastEventId) {
+    headers["Last-Event-ID"] = lastEventId;
+  }
+
+  try {
+    const upstream = await fetch(
+      `${process.env.API_URL}/notebooks/messages/stream/${notebookId}`,
+      { headers, cache: "no-store", signal: request.signal }
+    );
+    if (!upstream.ok || !upstream.body) {
+      return new Response(null, { status: upstream.status });
+    }
+    return new Response(upstream.body, {
+      headers: {
+        "Content-Type": "text/event-stream",
+        "Cache-Control": "no-cache, no-transform",
+        Connection: "keep-alive",
+      },
+    });
+  } catch {
+    return new Response(null, { status: 502 });
+  }
+}
@@ -2,7 +2,7 @@
 
 import { useEffect, useRef, useState } from "react";
 import { AlertCircle, Plus, Save, X, Send, MessageCircle } from "lucide-react";
-import { getMessages, sendMessage, deleteMessage, ChatMessage } from "@/actions/chat";
+import { getMessagePage, getMessagesAfter, sendMessage, deleteMessage, ChatMessage } from "@/actions/chat";
 import { Button } from "@/components/ui/button";
 import { Alert, AlertDescription } from "@/components/ui/alert";
 import {
@@ -17,6 +17,7 @@ type Props = {
 
 export function ChatPanel({ notebookId }: Props) {
   const [messages, setMessages] = useState<ChatMessage[]>([]);
+  const [olderChatCursor, setOlderChatCursor] = useState<string | null>(null);
   const [stickyText, setStickyText] = useState("");
   const [chatText, setChatText] = useState("");
   const [composerOpen, setComposerOpen] = useState(false);
@@ -25,6 +26,7 @@ export function ChatPanel({ notebookId }: Props) {
   const [isSending, setIsSending] = useState(false);
   const [lastViewedTime, setLastViewedTime] = useState<number>(0);
   const rotationsRef = useRef<Map<number, number>>(new Map());
+  const lastIdRef = useRef(0);
   const chatEndRef = useRef<HTMLDivElement>(null);
 
   // Load last viewed time from localStorage on mount
@@ -44,15 +46,89 @@ export function ChatPanel({ notebookId }: Props) {
     }).format(date);
   };
 
+  // Every sticky stays on the board, so walk all of their pages; chat only
+  // needs its newest page until the user asks for older messages
+  async function loadStickies(): Promise<ChatMessage[]> {
+    const stickies: ChatMessage[] = [];
+    let before: string | undefined;
+    do {
+      const page = await getMessagePage(notebookId, "sticky", before, 500);
+      if (!page) break;
+      stickies.unshift(...page.messages);
+      before = page.hasMore ? page.nextCursor : undefined;
+    } while (before);
+    return stickies;
+  }
+
   async function load() {
-    const list = await getMessages(notebookId);
-    setMessages(Array.isArray(list) ? list : []);
+    const [stickies, chat] = await Promise.all([
+      loadStickies(),
+      getMessagePage(notebookId, "chat"),
+    ]);
+    const list = [...stickies, ...(chat?.messages ?? [])];
+    lastIdRef.current = list.reduce((max, m) => Math.max(max, m.messageId), 0);
+    setMessages(list);
+    setOlderChatCursor(chat?.hasMore ? chat.nextCursor ?? null : null);
+  }
+
+  // Add messages that arrived over the stream or a catch-up fetch, skipping ones already shown
+  function append(incoming: ChatMessage[]) {
+    if (incoming.length === 0) return;
+    for (const m of incoming) {
+      lastIdRef.current = Math.max(lastIdRef.current, m.messageId);
+    }
+    setMessages((prev) => {
+      const seen = new Set(prev.map((m) => m.messageId));
+      const fresh = incoming.filter((m) => !seen.has(m.messageId));
+      return fresh.length > 0 ? [...prev, ...fresh] : prev;
+    });
+  }
+
+  async function catchUp() {
+    append(await getMessagesAfter(notebookId, lastIdRef.current));
+  }
+
+  async function loadOlderChat() {
+    if (!olderChatCursor) return;
+    const page = await getMessagePage(notebookId, "chat", olderChatCursor);
+    if (!page) return;
+    setMessages((prev) => [...page.messages, ...prev]);
+    setOlderChatCursor(page.hasMore ? page.nextCursor ?? null : null);
   }
 
   useEffect(() => {
-    load();
-    const id = setInterval(load, 2500);
-    return () => clearInterval(id);
+    const initial = load();
+
+    // Push updates over SSE; fall back to polling if the stream can't be kept open.
+    // Events carry the change itself, so nothing is refetched per event.
+    let pollId: ReturnType<typeof setInterval> | undefined;
+    const source = new EventSource(`/api/notebooks/${notebookId}/messages/stream`);
+    source.addEventListener("message", (e) => {
+      append([JSON.parse((e as MessageEvent).data) as ChatMessage]);
+    });
+    source.addEventListener("delete", (e) => {
+      const { messageId } = JSON.parse((e as MessageEvent).data) as { messageId: number };
+      setMessages((prev) => prev.filter((m) => m.messageId !== messageId));
+    });
+    // Sent instead of a replay when the stream fell too far behind; reload through paged history
+    source.addEventListener("resync", () => {
+      initial.then(load);
+    });
+    // On each (re)connect fetch only what is newer than the last message shown,
+    // covering anything posted before the stream was attached
+    source.onopen = () => {
+      initial.then(catchUp);
+    };
+    source.onerror = () => {
+      if (source.readyState === EventSource.CLOSED && !pollId) {
+        pollId = setInterval(load, 2500);
+      }
+    };
+
+    return () => {
+      source.close();
+      if (pollId) clearInterval(pollId);
+    };
   }, [notebookId]);
 
   useEffect(() => {
@@ -82,7 +158,7 @@ export function ChatPanel({ notebookId }: Props) {
     }
     setStickyText("");
     setComposerOpen(false);
-    await load();
+    await catchUp();
     setIsSending(false);
   }
 
@@ -99,7 +175,7 @@ export function ChatPanel({ notebookId }: Props) {
       return;
     }
     setChatText("");
-    await load();
+    await catchUp();
     setIsSending(false);
   }
 
@@ -120,7 +196,7 @@ export function ChatPanel({ notebookId }: Props) {
   }
 
   // Filter messages by type
-  const stickyMessages = messages.filter(m => !m.type || m.type === "sticky");
+  const stickyMessages = messages.filter(m => m.type === "sticky");
   const chatMessages = messages.filter(m => m.type === "chat");
   
   // Count unread chat messages (messages after last viewed time)
@@ -292,6 +368,17 @@ export function ChatPanel({ notebookId }: Props) {
 
           {/* Chat Messages */}
           <div className="flex-1 overflow-y-auto p-4 space-y-3 bg-gray-50">
+            {olderChatCursor && (
+              <div className="text-center">
+                <button
+                  type="button"
+                  onClick={loadOlderChat}
+                  className="text-xs text-blue-600 hover:underline"
+                >
+                  Load earlier messages
+                </button>
+              </div>
+            )}
             {chatMessages.length === 0 && (
               <div className="text-center text-gray-500 mt-8">
                 No messages yet. Start the conversation!
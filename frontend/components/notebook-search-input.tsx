@@ -0,0 +1,51 @@
+"use client";
+
+import { useEffect, useState } from "react";
+import { NotebookSuggestion, suggestNotebooks } from "@/actions/notebooks";
+import { Input } from "@/components/ui/input";
+
+type Props = {
+  defaultValue: string;
+};
+
+// Suggests titles and course names while typing; the full search runs on submit
+export function NotebookSearchInput({ defaultValue }: Props) {
+  const [value, setValue] = useState(defaultValue);
+  const [suggestions, setSuggestions] = useState<NotebookSuggestion[]>([]);
+
+  useEffect(() => {
+    if (!value.trim()) {
+      setSuggestions([]);
+      return;
+    }
+    let cancelled = false;
+    const timer = setTimeout(async () => {
+      const list = await suggestNotebooks(value);
+      if (!cancelled) setSuggestions(list);
+    }, 150);
+    return () => {
+      cancelled = true;
+      clearTimeout(timer);
+    };
+  }, [value]);
+
+  return (
+    <>
+      <Input
+        name="q"
+        placeholder="Search by title or course name"
+        value={value}
+        onChange={(e) => setValue(e.target.value)}
+        list="notebook-suggestions"
+        autoComplete="off"
+      />
+      <datalist id="notebook-suggestions">
+        {suggestions.map((s) => (
+          <option key={s.notebookId} value={s.title}>
+            {s.courseName}
+          </option>
+        ))}
+      </datalist>
+    </>
+  );
+}